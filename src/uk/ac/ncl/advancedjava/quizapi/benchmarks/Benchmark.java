@@ -0,0 +1,295 @@
+package uk.ac.ncl.advancedjava.quizapi.benchmarks;
+
+import java.lang.management.ManagementFactory;
+import java.time.Duration;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Benchmark - measures the throughput and allocation rate of an operation run by a number of threads.
+ * Each run consists of warm-up iterations, whose results are discarded so the JIT compiler can settle, followed by
+ * measured iterations. In every iteration each thread calls the operation repeatedly until the iteration time has
+ * passed or the thread has made its share of the maximum number of operations, and the result of every call is
+ * consumed so the work cannot be eliminated as dead code.
+ * Allocation is measured per thread with the HotSpot {@code com.sun.management.ThreadMXBean}; on other virtual
+ * machines it is reported as unavailable.
+ *
+ * @author Filip Kovarik - S24039999
+ */
+public final class Benchmark {
+
+    private final int warmupIterations;
+    private final int measurementIterations;
+    private final long iterationNanos;
+    private final long maximumOperations;
+
+    private static final com.sun.management.ThreadMXBean THREADS = allocationCounter();
+
+    /**
+     * Sink for the results of the operations. Written only when a result is the very object held by
+     * {@link #sinkGuard}, which no operation can return, so the compiler has to compute every result but the writes
+     * never happen. The check is a reference comparison, so it does not touch the result's object header the way an
+     * identity hash code would.
+     */
+    private static volatile Object sink;
+    private static volatile Object sinkGuard = new Object();
+
+    /**
+     * Constructs a benchmark with the given iteration settings.
+     *
+     * @param warmupIterations      the number of iterations to run before measuring
+     * @param measurementIterations the number of measured iterations
+     * @param iterationTime         the duration of each iteration
+     * @param maximumOperations     the maximum number of operations per iteration, shared between the threads, for
+     *                              operations that accumulate state and would otherwise grow without bound
+     * @throws IllegalArgumentException if the number of measured iterations, the iteration time or the maximum
+     *                                  number of operations is not positive, or the number of warm-up iterations is
+     *                                  negative
+     */
+    public Benchmark(int warmupIterations, int measurementIterations, Duration iterationTime,
+                     long maximumOperations) {
+        if (warmupIterations < 0 || measurementIterations < 1) {
+            throw new IllegalArgumentException("There must be at least one measured iteration");
+        } else if (iterationTime.isNegative() || iterationTime.isZero() || maximumOperations < 1) {
+            throw new IllegalArgumentException("The iteration time and maximum operations must be positive");
+        }
+        this.warmupIterations = warmupIterations;
+        this.measurementIterations = measurementIterations;
+        this.iterationNanos = iterationTime.toNanos();
+        this.maximumOperations = maximumOperations;
+    }
+
+    /**
+     * Runs the operation on the given number of threads and returns the measurements.
+     *
+     * @param name      the name of the benchmark, including its parameters
+     * @param threads   the number of threads calling the operation
+     * @param operation the operation to measure
+     * @return the measurements of the measured iterations
+     * @throws IllegalArgumentException if the number of threads is not positive
+     * @throws IllegalStateException    if the operation throws an exception
+     */
+    public Result run(String name, int threads, Callable<?> operation) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("There must be at least one thread");
+        }
+        for (int i = 0; i < warmupIterations; i++) {
+            runIteration(threads, operation);
+        }
+        double[] throughputs = new double[measurementIterations];
+        long operations = 0;
+        long nanos = 0;
+        long allocatedBytes = 0;
+        for (int i = 0; i < measurementIterations; i++) {
+            long[] iteration = runIteration(threads, operation);
+            throughputs[i] = iteration[0] * 1e9 / iteration[1];
+            operations += iteration[0];
+            nanos += iteration[1];
+            allocatedBytes = allocatedBytes < 0 || iteration[2] < 0 ? -1 : allocatedBytes + iteration[2];
+        }
+        return new Result(name, threads, throughputs, operations, nanos, allocatedBytes);
+    }
+
+    /**
+     * Runs one iteration. The threads start together and the iteration lasts until the last of them finishes.
+     *
+     * @param threads   the number of threads calling the operation
+     * @param operation the operation to measure
+     * @return the number of operations, the elapsed nanoseconds and the allocated bytes, or -1 if allocation
+     * cannot be measured
+     */
+    private long[] runIteration(int threads, Callable<?> operation) {
+        long perThread = Math.max(1, maximumOperations / threads);
+        long[] operations = new long[threads];
+        long[] allocated = new long[threads];
+        CyclicBarrier start = new CyclicBarrier(threads + 1);
+        CountDownLatch done = new CountDownLatch(threads);
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        for (int t = 0; t < threads; t++) {
+            int index = t;
+            Thread thread = new Thread(() -> {
+                try {
+                    start.await();
+                    long bytesBefore = allocatedBytes();
+                    long deadline = System.nanoTime() + iterationNanos;
+                    long count = 0;
+                    do {
+                        consume(operation.call());
+                        count++;
+                    } while (count < perThread && System.nanoTime() < deadline);
+                    long bytesAfter = allocatedBytes();
+                    operations[index] = count;
+                    allocated[index] = bytesBefore < 0 ? -1 : bytesAfter - bytesBefore;
+                } catch (Throwable e) {
+                    failure.compareAndSet(null, e);
+                } finally {
+                    done.countDown();
+                }
+            }, "benchmark-" + t);
+            thread.setDaemon(true);
+            thread.start();
+        }
+        long startNanos;
+        try {
+            start.await();
+            startNanos = System.nanoTime();
+            done.await();
+        } catch (Exception e) {
+            throw new IllegalStateException("The benchmark was interrupted", e);
+        }
+        long elapsed = System.nanoTime() - startNanos;
+        if (failure.get() != null) {
+            throw new IllegalStateException("The benchmarked operation failed", failure.get());
+        }
+        long totalOperations = 0;
+        long totalAllocated = 0;
+        for (int t = 0; t < threads; t++) {
+            totalOperations += operations[t];
+            totalAllocated = totalAllocated < 0 || allocated[t] < 0 ? -1 : totalAllocated + allocated[t];
+        }
+        return new long[]{totalOperations, elapsed, totalAllocated};
+    }
+
+    /**
+     * Consumes the result of an operation.
+     *
+     * @param result the result
+     */
+    private static void consume(Object result) {
+        if (result == sinkGuard) {
+            sink = result;
+        }
+    }
+
+    /**
+     * Returns the number of bytes allocated by the calling thread so far.
+     *
+     * @return the allocated bytes, or -1 if allocation cannot be measured
+     */
+    private static long allocatedBytes() {
+        return THREADS == null ? -1 : THREADS.getCurrentThreadAllocatedBytes();
+    }
+
+    /**
+     * Returns the HotSpot thread bean with allocation measurement enabled, if the virtual machine supports it.
+     *
+     * @return the thread bean, or {@code null} if allocation cannot be measured
+     */
+    private static com.sun.management.ThreadMXBean allocationCounter() {
+        if (ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean bean
+                && bean.isThreadAllocatedMemorySupported()) {
+            bean.setThreadAllocatedMemoryEnabled(true);
+            return bean;
+        }
+        return null;
+    }
+
+    /**
+     * Result - the measurements of a benchmark run.
+     */
+    public static final class Result {
+
+        private final String name;
+        private final int threads;
+        private final double throughput;
+        private final double throughputError;
+        private final double nanosPerOperation;
+        private final double bytesPerOperation;
+
+        /**
+         * Constructs the result of a run.
+         *
+         * @param name           the name of the benchmark
+         * @param threads        the number of threads
+         * @param throughputs    the throughput of each measured iteration, in operations per second
+         * @param operations     the number of operations in the measured iterations
+         * @param nanos          the elapsed nanoseconds of the measured iterations
+         * @param allocatedBytes the bytes allocated in the measured iterations, or -1 if unknown
+         */
+        private Result(String name, int threads, double[] throughputs, long operations, long nanos,
+                       long allocatedBytes) {
+            double sum = 0;
+            for (double throughput : throughputs) {
+                sum += throughput;
+            }
+            double mean = sum / throughputs.length;
+            double squares = 0;
+            for (double throughput : throughputs) {
+                squares += (throughput - mean) * (throughput - mean);
+            }
+            this.name = name;
+            this.threads = threads;
+            this.throughput = mean;
+            this.throughputError = throughputs.length < 2 ? 0 : Math.sqrt(squares / (throughputs.length - 1));
+            this.nanosPerOperation = (double) nanos * threads / operations;
+            this.bytesPerOperation = allocatedBytes < 0 ? Double.NaN : (double) allocatedBytes / operations;
+        }
+
+        /**
+         * Returns the name of the benchmark.
+         *
+         * @return the name
+         */
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * Returns the number of threads that called the operation.
+         *
+         * @return the number of threads
+         */
+        public int getThreads() {
+            return threads;
+        }
+
+        /**
+         * Returns the mean throughput of all threads together over the measured iterations.
+         *
+         * @return the throughput, in operations per second
+         */
+        public double getThroughput() {
+            return throughput;
+        }
+
+        /**
+         * Returns the sample standard deviation of the throughput between the measured iterations.
+         *
+         * @return the standard deviation, in operations per second
+         */
+        public double getThroughputError() {
+            return throughputError;
+        }
+
+        /**
+         * Returns the average time an operation takes on one thread.
+         *
+         * @return the time per operation, in nanoseconds
+         */
+        public double getNanosPerOperation() {
+            return nanosPerOperation;
+        }
+
+        /**
+         * Returns the average number of bytes allocated by an operation.
+         *
+         * @return the bytes per operation, or {@code NaN} if allocation cannot be measured
+         */
+        public double getBytesPerOperation() {
+            return bytesPerOperation;
+        }
+
+        /**
+         * Returns the result as a line of a results table.
+         *
+         * @return the formatted result
+         */
+        @Override
+        public String toString() {
+            return String.format("%-60s %3d %,16.0f +- %,12.0f ops/s %,12.1f ns/op %,12.1f B/op",
+                    name, threads, throughput, throughputError, nanosPerOperation, bytesPerOperation);
+        }
+    }
+}
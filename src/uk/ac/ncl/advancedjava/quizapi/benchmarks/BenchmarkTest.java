@@ -0,0 +1,38 @@
+package uk.ac.ncl.advancedjava.quizapi.benchmarks;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BenchmarkTest {
+
+    @Test
+    void run() {
+        AtomicLong calls = new AtomicLong();
+        Benchmark benchmark = new Benchmark(1, 2, Duration.ofSeconds(5), 100);
+        Benchmark.Result result = benchmark.run("counter", 2, () -> new long[]{calls.incrementAndGet()});
+
+        // The maximum number of operations ends each iteration long before its time is up
+        assertEquals(300, calls.get());
+        assertEquals("counter", result.getName());
+        assertEquals(2, result.getThreads());
+        assertTrue(result.getThroughput() > 0);
+        assertTrue(result.getNanosPerOperation() > 0);
+        assertTrue(Double.isNaN(result.getBytesPerOperation()) || result.getBytesPerOperation() >= 16);
+        assertTrue(result.toString().startsWith("counter"));
+    }
+
+    @Test
+    void run_Failure() {
+        Benchmark benchmark = new Benchmark(0, 1, Duration.ofMillis(10), 10);
+        assertThrows(IllegalStateException.class, () -> benchmark.run("failing", 1, () -> {
+            throw new IllegalArgumentException();
+        }));
+        assertThrows(IllegalArgumentException.class, () -> benchmark.run("noThreads", 0, () -> null));
+        assertThrows(IllegalArgumentException.class, () -> new Benchmark(0, 0, Duration.ofMillis(10), 10));
+        assertThrows(IllegalArgumentException.class, () -> new Benchmark(0, 1, Duration.ZERO, 10));
+    }
+}
@@ -0,0 +1,309 @@
+package uk.ac.ncl.advancedjava.quizapi.benchmarks;
+
+import uk.ac.ncl.advancedjava.quizapi.questions.Question;
+import uk.ac.ncl.advancedjava.quizapi.questions.QuestionFactory;
+import uk.ac.ncl.advancedjava.quizapi.questions.QuestionType;
+import uk.ac.ncl.advancedjava.quizapi.quiztaking.AnswerSheet;
+import uk.ac.ncl.advancedjava.quizapi.quiztaking.Quiz;
+import uk.ac.ncl.advancedjava.quizapi.quiztaking.QuizGenerator;
+import uk.ac.ncl.advancedjava.quizapi.quiztaking.Student;
+import uk.ac.ncl.advancedjava.quizapi.quiztaking.StudentStatistics;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * QuizBenchmarks - the benchmark suite for the hot paths of the API: grading free-response and multiple-choice
+ * answers, generating regular and revision quizzes, taking a quiz and looking questions up in the
+ * {@link QuestionFactory}. Grading is measured for several shapes of answer, and generation and quiz taking for
+ * several question pool sizes, each on every requested number of threads.
+ * Run it with {@code java -cp <classes> uk.ac.ncl.advancedjava.quizapi.benchmarks.QuizBenchmarks [options] [names]},
+ * where the options are {@code threads=1,4}, {@code pools=16,256,4096}, {@code warmup=3}, {@code iterations=5} and
+ * {@code time=1} (seconds per iteration), and only benchmarks whose names contain one of the given names are run.
+ * Compare results from the same machine and JVM flags before and after a change; a single run is only indicative.
+ *
+ * @author Filip Kovarik - S24039999
+ */
+public final class QuizBenchmarks {
+
+    /**
+     * The maximum number of operations per iteration of the benchmarks that register new students or questions,
+     * which stay registered for the rest of the run.
+     */
+    private static final long MAXIMUM_REGISTERING_OPERATIONS = 20_000;
+
+    private static final Map<Character, String> OPTIONS = Map.of(
+            'A', "Option A", 'B', "Option B", 'C', "Option C", 'D', "Option D");
+    private static final Set<Character> CORRECT_OPTIONS = Set.of('A', 'C');
+    private static final String FREE_RESPONSE_ANSWER = "Three word answer";
+
+    private static final AtomicLong SEQUENCE = new AtomicLong();
+
+    private final int[] threadCounts;
+    private final int[] poolSizes;
+    private final Benchmark benchmark;
+    private final Benchmark registeringBenchmark;
+    private final List<String> filters;
+
+    /**
+     * Constructs a suite with the given settings.
+     *
+     * @param threadCounts          the numbers of threads to run every benchmark on
+     * @param poolSizes             the question pool sizes to run generation and quiz taking with
+     * @param warmupIterations      the number of warm-up iterations per benchmark
+     * @param measurementIterations the number of measured iterations per benchmark
+     * @param iterationTime         the duration of each iteration
+     * @param filters               the names of the benchmarks to run, or an empty list to run all of them
+     */
+    private QuizBenchmarks(int[] threadCounts, int[] poolSizes, int warmupIterations, int measurementIterations,
+                           Duration iterationTime, List<String> filters) {
+        this.threadCounts = threadCounts;
+        this.poolSizes = poolSizes;
+        this.benchmark = new Benchmark(warmupIterations, measurementIterations, iterationTime, Long.MAX_VALUE);
+        this.registeringBenchmark = new Benchmark(warmupIterations, measurementIterations, iterationTime,
+                MAXIMUM_REGISTERING_OPERATIONS);
+        this.filters = filters;
+    }
+
+    /**
+     * Runs the benchmarks selected by the arguments and prints a results table.
+     *
+     * @param args the options and names of the benchmarks to run
+     * @throws IllegalArgumentException if an option is malformed
+     */
+    public static void main(String[] args) {
+        int[] threadCounts = {1, 4};
+        int[] poolSizes = {16, 256, 4096};
+        int warmup = 3;
+        int iterations = 5;
+        long seconds = 1;
+        List<String> filters = new ArrayList<>();
+        for (String arg : args) {
+            int separator = arg.indexOf('=');
+            String value = arg.substring(separator + 1);
+            switch (separator < 0 ? "" : arg.substring(0, separator)) {
+                case "threads" -> threadCounts = parseList(value);
+                case "pools" -> poolSizes = parseList(value);
+                case "warmup" -> warmup = Integer.parseInt(value);
+                case "iterations" -> iterations = Integer.parseInt(value);
+                case "time" -> seconds = Long.parseLong(value);
+                case "" -> filters.add(arg);
+                default -> throw new IllegalArgumentException("Unknown option: " + arg);
+            }
+        }
+        System.out.printf("%-60s %3s %16s   %12s %18s %17s%n", "Benchmark", "Thr", "Throughput", "Error",
+                "Time", "Allocation");
+        new QuizBenchmarks(threadCounts, poolSizes, warmup, iterations, Duration.ofSeconds(seconds), filters)
+                .runAll();
+    }
+
+    /**
+     * Runs every selected benchmark.
+     */
+    private void runAll() {
+        gradeFreeResponse();
+        gradeMultipleChoice();
+        getInstance();
+        for (int poolSize : poolSizes) {
+            QuizGenerator generator = new QuizGenerator(createPool("pool" + poolSize, poolSize));
+            generateQuiz(generator, poolSize);
+            revise(generator, poolSize);
+            takeQuiz(generator, poolSize);
+        }
+    }
+
+    /**
+     * Benchmarks {@code FreeResponseQuestion.isCorrectAnswer} for exact, loosely formatted and wrong answers.
+     */
+    private void gradeFreeResponse() {
+        Question question = QuestionFactory.getInstance(QuestionType.FREE_RESPONSE,
+                "Benchmark free-response question", FREE_RESPONSE_ANSWER);
+        Map<String, String> shapes = new LinkedHashMap<>();
+        shapes.put("exact", FREE_RESPONSE_ANSWER);
+        shapes.put("caseAndSpacing", "  three   WORD Answer ");
+        shapes.put("wrongSameLength", "Three word answes");
+        shapes.put("wrongShort", "x");
+        shapes.put("long", "word ".repeat(200));
+        for (Map.Entry<String, String> shape : shapes.entrySet()) {
+            String answer = shape.getValue();
+            run(benchmark, "freeResponse.isCorrectAnswer answer=" + shape.getKey(),
+                    () -> question.isCorrectAnswer(answer));
+        }
+    }
+
+    /**
+     * Benchmarks {@code MultipleChoiceQuestion.isCorrectAnswer} for exact, loosely formatted, wrong and malformed
+     * answers.
+     */
+    private void gradeMultipleChoice() {
+        Question question = QuestionFactory.getInstance(QuestionType.MULTIPLE_CHOICE,
+                "Benchmark multiple-choice question", OPTIONS, CORRECT_OPTIONS);
+        Map<String, String> shapes = new LinkedHashMap<>();
+        shapes.put("exact", "A,C");
+        shapes.put("reorderedAndSpaced", " c , a ");
+        shapes.put("wrong", "A,B");
+        shapes.put("unknownOption", "A,Z");
+        shapes.put("empty", "");
+        for (Map.Entry<String, String> shape : shapes.entrySet()) {
+            String answer = shape.getValue();
+            run(benchmark, "multipleChoice.isCorrectAnswer answer=" + shape.getKey(),
+                    () -> question.isCorrectAnswer(answer));
+        }
+    }
+
+    /**
+     * Benchmarks {@code QuestionFactory.getInstance} for questions that are cached and for new questions.
+     */
+    private void getInstance() {
+        QuestionFactory.getInstance(QuestionType.FREE_RESPONSE, "Benchmark cached question", FREE_RESPONSE_ANSWER);
+        run(benchmark, "QuestionFactory.getInstance question=cached",
+                () -> QuestionFactory.getInstance(QuestionType.FREE_RESPONSE, "Benchmark cached question",
+                        FREE_RESPONSE_ANSWER));
+        run(registeringBenchmark, "QuestionFactory.getInstance question=new",
+                () -> QuestionFactory.getInstance(QuestionType.FREE_RESPONSE,
+                        "Benchmark new question " + SEQUENCE.incrementAndGet(), FREE_RESPONSE_ANSWER));
+    }
+
+    /**
+     * Benchmarks {@code QuizGenerator.generateQuiz} for quizzes of a few questions and of half the pool.
+     *
+     * @param generator the generator of the pool
+     * @param poolSize  the size of the pool
+     */
+    private void generateQuiz(QuizGenerator generator, int poolSize) {
+        for (int quizSize : quizSizes(poolSize)) {
+            run(benchmark, "QuizGenerator.generateQuiz pool=" + poolSize + " quiz=" + quizSize,
+                    () -> generator.generateQuiz(quizSize));
+        }
+    }
+
+    /**
+     * Benchmarks {@code QuizGenerator.revise} for a student who has answered half the pool, half of it wrongly.
+     *
+     * @param generator the generator of the pool
+     * @param poolSize  the size of the pool
+     */
+    private void revise(QuizGenerator generator, int poolSize) {
+        StudentStatistics statistics = StudentStatistics.getInstance(newStudent());
+        Quiz quiz = generator.generateQuiz(poolSize / 2);
+        AnswerSheet answerSheet = new AnswerSheet(quiz);
+        for (int i = 0; i < quiz.size(); i++) {
+            answerSheet.setAnswer(i, i % 2 == 0 ? answerFor(quiz.getQuestion(i)) : "wrong");
+        }
+        statistics.takeRevisionQuiz(answerSheet);
+        for (int quizSize : quizSizes(poolSize)) {
+            run(benchmark, "QuizGenerator.revise pool=" + poolSize + " quiz=" + quizSize,
+                    () -> generator.revise(statistics, quizSize));
+        }
+    }
+
+    /**
+     * Benchmarks {@code StudentStatistics.takeQuiz} for all-correct answer sheets. A student can only take two
+     * regular quizzes, so every operation registers a new student.
+     *
+     * @param generator the generator of the pool
+     * @param poolSize  the size of the pool
+     */
+    private void takeQuiz(QuizGenerator generator, int poolSize) {
+        for (int quizSize : quizSizes(poolSize)) {
+            Quiz quiz = generator.generateQuiz(quizSize);
+            String[] answers = new String[quiz.size()];
+            for (int i = 0; i < answers.length; i++) {
+                answers[i] = answerFor(quiz.getQuestion(i));
+            }
+            run(registeringBenchmark, "StudentStatistics.takeQuiz pool=" + poolSize + " quiz=" + quizSize,
+                    () -> StudentStatistics.getInstance(newStudent()).takeQuiz(new AnswerSheet(quiz, answers)));
+        }
+    }
+
+    /**
+     * Runs a benchmark on every requested number of threads if its name is selected, and prints the results.
+     *
+     * @param runner    the benchmark settings to run with
+     * @param name      the name of the benchmark, including its parameters
+     * @param operation the operation to measure
+     */
+    private void run(Benchmark runner, String name, Callable<?> operation) {
+        if (!filters.isEmpty() && filters.stream().noneMatch(name::contains)) {
+            return;
+        }
+        for (int threads : threadCounts) {
+            System.out.println(runner.run(name, threads, operation));
+        }
+    }
+
+    /**
+     * Creates a pool of questions, half free-response and half multiple-choice.
+     *
+     * @param prefix the prefix making the question texts unique to the pool
+     * @param size   the number of questions
+     * @return the pool
+     */
+    static Set<Question> createPool(String prefix, int size) {
+        Set<Question> pool = new HashSet<>();
+        for (int i = 0; i < size; i++) {
+            String text = "Benchmark " + prefix + " question " + i;
+            pool.add(i % 2 == 0
+                    ? QuestionFactory.getInstance(QuestionType.FREE_RESPONSE, text, FREE_RESPONSE_ANSWER)
+                    : QuestionFactory.getInstance(QuestionType.MULTIPLE_CHOICE, text, OPTIONS, CORRECT_OPTIONS));
+        }
+        return pool;
+    }
+
+    /**
+     * Returns the quiz sizes to benchmark for a pool: a short quiz and one of half the pool.
+     *
+     * @param poolSize the size of the pool
+     * @return the quiz sizes
+     */
+    private static int[] quizSizes(int poolSize) {
+        int shortQuiz = Math.min(10, poolSize);
+        return poolSize / 2 > shortQuiz ? new int[]{shortQuiz, poolSize / 2} : new int[]{shortQuiz};
+    }
+
+    /**
+     * Returns the correct answer to a question of a benchmark pool.
+     *
+     * @param question the question
+     * @return the correct answer
+     */
+    private static String answerFor(Question question) {
+        return question.getType() == QuestionType.FREE_RESPONSE ? FREE_RESPONSE_ANSWER : "A,C";
+    }
+
+    /**
+     * Registers a new student.
+     *
+     * @return the student
+     */
+    private static Student newStudent() {
+        return Student.getInstance("Benchmark", "Student" + SEQUENCE.incrementAndGet(), LocalDate.of(2000, 1, 1));
+    }
+
+    /**
+     * Parses a comma-separated list of positive numbers.
+     *
+     * @param value the list
+     * @return the numbers
+     * @throws IllegalArgumentException if a number is malformed or not positive
+     */
+    private static int[] parseList(String value) {
+        String[] parts = value.split(",");
+        int[] numbers = new int[parts.length];
+        for (int i = 0; i < parts.length; i++) {
+            numbers[i] = Integer.parseInt(parts[i].trim());
+            if (numbers[i] < 1) {
+                throw new IllegalArgumentException("Expected a positive number: " + parts[i]);
+            }
+        }
+        return numbers;
+    }
+}
@@ -0,0 +1,49 @@
+package uk.ac.ncl.advancedjava.quizapi.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counter - a monotonically increasing count of events, such as failed operations.
+ * It is backed by a {@link LongAdder}, so threads incrementing it concurrently do not contend.
+ *
+ * @author Filip Kovarik - S24039999
+ */
+public final class Counter {
+
+    private final LongAdder count = new LongAdder();
+
+    /**
+     * Constructs a counter at zero. Package-private, as counters are created by the {@link MetricsRegistry}.
+     */
+    Counter() {
+    }
+
+    /**
+     * Adds one to the counter.
+     */
+    public void increment() {
+        count.increment();
+    }
+
+    /**
+     * Adds the given amount to the counter.
+     *
+     * @param amount the amount to add
+     * @throws IllegalArgumentException if the amount is negative
+     */
+    public void add(long amount) {
+        if (amount < 0) {
+            throw new IllegalArgumentException("A counter cannot decrease");
+        }
+        count.add(amount);
+    }
+
+    /**
+     * Returns the current count.
+     *
+     * @return the count
+     */
+    public long get() {
+        return count.sum();
+    }
+}
@@ -0,0 +1,170 @@
+package uk.ac.ncl.advancedjava.quizapi.metrics;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * LatencyHistogram - counts recorded durations in log-linear buckets, in the manner of an HDR histogram.
+ * Durations below 16 nanoseconds have a bucket each; above that, every power of two is split into 16 equal buckets,
+ * so a bucket is never wider than 1/16 of the values it holds and any percentile is reported to within 6.25%,
+ * from nanoseconds up to centuries, with a fixed 960 buckets.
+ * Buckets are {@link LongAdder}s created on first use, so recording is a few shifts and an uncontended increment,
+ * and durations are only ever spread over a few dozen of them in practice. Reads are not atomic with respect to
+ * concurrent recording, so a snapshot may include some of the durations recorded while it is taken.
+ *
+ * @author Filip Kovarik - S24039999
+ */
+public final class LatencyHistogram {
+
+    static final int SUB_BUCKET_BITS = 4;
+    static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+    static final int BUCKET_COUNT = (Long.SIZE - SUB_BUCKET_BITS) * SUB_BUCKET_COUNT;
+
+    private final AtomicReferenceArray<LongAdder> buckets = new AtomicReferenceArray<>(BUCKET_COUNT);
+    private final LongAdder sum = new LongAdder();
+
+    /**
+     * Constructs an empty histogram. Package-private, as histograms are created by the {@link MetricsRegistry}.
+     */
+    LatencyHistogram() {
+    }
+
+    /**
+     * Records a duration. Negative durations, which a clock adjustment could produce, are recorded as zero.
+     *
+     * @param nanos the duration in nanoseconds
+     */
+    public void record(long nanos) {
+        long value = Math.max(0, nanos);
+        bucket(indexOf(value)).increment();
+        sum.add(value);
+    }
+
+    /**
+     * Returns the number of recorded durations.
+     *
+     * @return the count
+     */
+    public long getCount() {
+        long count = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            LongAdder bucket = buckets.get(i);
+            if (bucket != null) {
+                count += bucket.sum();
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Returns the total of the recorded durations.
+     *
+     * @return the sum in nanoseconds
+     */
+    public long getSum() {
+        return sum.sum();
+    }
+
+    /**
+     * Returns the duration below which the given percentage of the recorded durations fall. The result is the
+     * highest duration of the bucket holding that percentile, so it overstates the exact percentile by at most
+     * 6.25%.
+     *
+     * @param percentile the percentile, between 0 and 100
+     * @return the duration in nanoseconds, or 0 if nothing has been recorded
+     * @throws IllegalArgumentException if the percentile is not between 0 and 100
+     */
+    public long getValueAtPercentile(double percentile) {
+        if (!(percentile >= 0 && percentile <= 100)) {
+            throw new IllegalArgumentException("The percentile must be between 0 and 100");
+        }
+        return valueAtPercentile(snapshot(), percentile);
+    }
+
+    /**
+     * Returns a copy of the bucket counts.
+     *
+     * @return the count of every bucket, indexed as by {@link #indexOf(long)}
+     */
+    long[] snapshot() {
+        long[] counts = new long[BUCKET_COUNT];
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            LongAdder bucket = buckets.get(i);
+            if (bucket != null) {
+                counts[i] = bucket.sum();
+            }
+        }
+        return counts;
+    }
+
+    /**
+     * Returns the duration below which the given percentage of the durations in a snapshot fall.
+     *
+     * @param counts     the bucket counts
+     * @param percentile the percentile, between 0 and 100
+     * @return the highest duration of the bucket holding the percentile, or 0 if the snapshot is empty
+     */
+    static long valueAtPercentile(long[] counts, double percentile) {
+        long total = 0;
+        for (long count : counts) {
+            total += count;
+        }
+        if (total == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(percentile / 100 * total));
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return highestValue(i);
+            }
+        }
+        return highestValue(counts.length - 1);
+    }
+
+    /**
+     * Returns the index of the bucket holding a duration.
+     *
+     * @param value the non-negative duration in nanoseconds
+     * @return the bucket index
+     */
+    static int indexOf(long value) {
+        if (value < SUB_BUCKET_COUNT) {
+            return (int) value;
+        }
+        int shift = Long.SIZE - 1 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+        return (shift + 1) * SUB_BUCKET_COUNT + (int) ((value >>> shift) & (SUB_BUCKET_COUNT - 1));
+    }
+
+    /**
+     * Returns the highest duration held by a bucket.
+     *
+     * @param index the bucket index
+     * @return the highest duration in nanoseconds
+     */
+    static long highestValue(int index) {
+        int group = index / SUB_BUCKET_COUNT;
+        long subBucket = index % SUB_BUCKET_COUNT;
+        if (group == 0) {
+            return subBucket;
+        }
+        long lowest = (SUB_BUCKET_COUNT + subBucket) << (group - 1);
+        return lowest + (1L << (group - 1)) - 1;
+    }
+
+    /**
+     * Returns the counter of a bucket, creating it on first use.
+     *
+     * @param index the bucket index
+     * @return the counter
+     */
+    private LongAdder bucket(int index) {
+        LongAdder bucket = buckets.get(index);
+        if (bucket == null) {
+            buckets.compareAndSet(index, null, new LongAdder());
+            bucket = buckets.get(index);
+        }
+        return bucket;
+    }
+}
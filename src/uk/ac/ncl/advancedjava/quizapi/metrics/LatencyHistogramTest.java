@@ -0,0 +1,44 @@
+package uk.ac.ncl.advancedjava.quizapi.metrics;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LatencyHistogramTest {
+
+    @Test
+    void indexOf_MatchesBucketBounds() {
+        assertEquals(0, LatencyHistogram.indexOf(0));
+        assertEquals(15, LatencyHistogram.indexOf(15));
+        assertEquals(LatencyHistogram.BUCKET_COUNT - 1, LatencyHistogram.indexOf(Long.MAX_VALUE));
+        assertEquals(Long.MAX_VALUE, LatencyHistogram.highestValue(LatencyHistogram.BUCKET_COUNT - 1));
+        for (int index = 1; index < LatencyHistogram.BUCKET_COUNT; index++) {
+            long lowest = LatencyHistogram.highestValue(index - 1) + 1;
+            long highest = LatencyHistogram.highestValue(index);
+            assertEquals(index, LatencyHistogram.indexOf(lowest));
+            assertEquals(index, LatencyHistogram.indexOf(highest));
+            // A bucket is never wider than 1/16 of its lowest value
+            assertTrue(highest - lowest < Math.max(1, lowest / 16 + 1));
+        }
+    }
+
+    @Test
+    void getValueAtPercentile() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        assertEquals(0, histogram.getValueAtPercentile(99));
+        for (long micros = 1; micros <= 1000; micros++) {
+            histogram.record(micros * 1000);
+        }
+        histogram.record(-5);
+
+        assertEquals(1001, histogram.getCount());
+        assertEquals(500_500_000L, histogram.getSum());
+        assertEquals(0, histogram.getValueAtPercentile(0));
+        long median = histogram.getValueAtPercentile(50);
+        assertTrue(median >= 500_000 && median <= 500_000 * 1.0625, String.valueOf(median));
+        long p99 = histogram.getValueAtPercentile(99);
+        assertTrue(p99 >= 990_000 && p99 <= 990_000 * 1.0625, String.valueOf(p99));
+        assertThrows(IllegalArgumentException.class, () -> histogram.getValueAtPercentile(101));
+        assertThrows(IllegalArgumentException.class, () -> histogram.getValueAtPercentile(Double.NaN));
+    }
+}
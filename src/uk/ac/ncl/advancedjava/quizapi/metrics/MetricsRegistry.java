@@ -0,0 +1,245 @@
+package uk.ac.ncl.advancedjava.quizapi.metrics;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.DoubleSupplier;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+import java.util.regex.Pattern;
+
+/**
+ * MetricsRegistry - the registry of the counters, gauges and latency histograms of the API, which the
+ * {@link PrometheusExporter} publishes.
+ * Metrics are grouped in families by name, and the metrics of a family are told apart by their labels, given as
+ * alternating label names and values. Registering a counter or histogram that already exists returns the existing
+ * one, so metrics can be looked up once into static fields and updated on the hot paths without any lookup.
+ * Gauges and counters maintained elsewhere are registered as functions that are only read on export.
+ * The registry is safe to use from multiple threads.
+ *
+ * @author Filip Kovarik - S24039999
+ */
+public final class MetricsRegistry {
+
+    /**
+     * The name of the histogram family of the durations of API operations.
+     */
+    public static final String OPERATION_DURATION = "quizapi_operation_duration_seconds";
+
+    /**
+     * The name of the counter family of failed API operations.
+     */
+    public static final String OPERATION_FAILURES = "quizapi_operation_failures_total";
+
+    private static final Pattern METRIC_NAME = Pattern.compile("[a-zA-Z_:][a-zA-Z0-9_:]*");
+    private static final Pattern LABEL_NAME = Pattern.compile("[a-zA-Z_][a-zA-Z0-9_]*");
+
+    private static final Map<String, Family> FAMILIES = new ConcurrentSkipListMap<>();
+    private static final Map<String, OperationMetrics> OPERATIONS = new ConcurrentHashMap<>();
+
+    /**
+     * Private constructor to prevent instantiation of this utility class.
+     */
+    private MetricsRegistry() {}
+
+    /**
+     * Returns the counter with the given name and labels, registering it if it does not exist.
+     *
+     * @param name   the name of the counter family, conventionally ending in {@code _total}
+     * @param help   the description of the family
+     * @param labels alternating label names and values
+     * @return the counter
+     * @throws IllegalArgumentException if a name is invalid, the labels are not in pairs, or the family exists with
+     *                                  another type or as a function
+     */
+    public static Counter counter(String name, String help, String... labels) {
+        return register(Type.COUNTER, name, help, labels, Counter.class, Counter::new);
+    }
+
+    /**
+     * Registers a counter maintained elsewhere, read from a function on export. Registering it again replaces the
+     * function.
+     *
+     * @param name   the name of the counter family, conventionally ending in {@code _total}
+     * @param help   the description of the family
+     * @param value  the function returning the current count
+     * @param labels alternating label names and values
+     * @throws IllegalArgumentException if a name is invalid, the labels are not in pairs, or the family exists with
+     *                                  another type
+     */
+    public static void counter(String name, String help, LongSupplier value, String... labels) {
+        family(Type.COUNTER, name, help).metrics.put(formatLabels(labels), value);
+    }
+
+    /**
+     * Registers a gauge, read from a function on export. Registering it again replaces the function.
+     *
+     * @param name   the name of the gauge family
+     * @param help   the description of the family
+     * @param value  the function returning the current value
+     * @param labels alternating label names and values
+     * @throws IllegalArgumentException if a name is invalid, the labels are not in pairs, or the family exists with
+     *                                  another type
+     */
+    public static void gauge(String name, String help, DoubleSupplier value, String... labels) {
+        family(Type.GAUGE, name, help).metrics.put(formatLabels(labels), value);
+    }
+
+    /**
+     * Returns the latency histogram with the given name and labels, registering it if it does not exist.
+     *
+     * @param name   the name of the histogram family, conventionally ending in {@code _seconds}
+     * @param help   the description of the family
+     * @param labels alternating label names and values
+     * @return the histogram
+     * @throws IllegalArgumentException if a name is invalid, the labels are not in pairs, or the family exists with
+     *                                  another type
+     */
+    public static LatencyHistogram histogram(String name, String help, String... labels) {
+        return register(Type.HISTOGRAM, name, help, labels, LatencyHistogram.class, LatencyHistogram::new);
+    }
+
+    /**
+     * Returns the metrics of an API operation, registering them if they do not exist. They are published in the
+     * {@link #OPERATION_DURATION} and {@link #OPERATION_FAILURES} families, labelled with the operation.
+     *
+     * @param operation the name of the operation, such as {@code takeQuiz}
+     * @return the metrics of the operation
+     */
+    public static OperationMetrics operation(String operation) {
+        return OPERATIONS.computeIfAbsent(operation, name -> new OperationMetrics(name,
+                histogram(OPERATION_DURATION, "Duration of successful API operations", "operation", name),
+                counter(OPERATION_FAILURES, "API operations that failed with an exception", "operation", name)));
+    }
+
+    /**
+     * Returns the registered families, ordered by name.
+     *
+     * @return a weakly consistent view of the families
+     */
+    static Collection<Family> families() {
+        return FAMILIES.values();
+    }
+
+    /**
+     * Returns the metric of a family with the given labels, creating it if it does not exist.
+     *
+     * @param type        the type of the family
+     * @param name        the name of the family
+     * @param help        the description of the family
+     * @param labels      alternating label names and values
+     * @param metricClass the class of the metric
+     * @param factory     creates the metric
+     * @param <T>         the type of the metric
+     * @return the metric
+     * @throws IllegalArgumentException if a name is invalid, the labels are not in pairs, the family exists with
+     *                                  another type, or the metric exists as a function
+     */
+    private static <T> T register(Type type, String name, String help, String[] labels, Class<T> metricClass,
+                                  Supplier<T> factory) {
+        Object metric = family(type, name, help).metrics.computeIfAbsent(formatLabels(labels), key -> factory.get());
+        if (!metricClass.isInstance(metric)) {
+            throw new IllegalArgumentException("The metric " + name + " is registered as a function");
+        }
+        return metricClass.cast(metric);
+    }
+
+    /**
+     * Returns the family with the given name, creating it if it does not exist.
+     *
+     * @param type the type of the family
+     * @param name the name of the family
+     * @param help the description of the family, used if it is created
+     * @return the family
+     * @throws IllegalArgumentException if the name is invalid or the family exists with another type
+     */
+    private static Family family(Type type, String name, String help) {
+        if (name == null || !METRIC_NAME.matcher(name).matches()) {
+            throw new IllegalArgumentException("Invalid metric name: " + name);
+        }
+        Family family = FAMILIES.computeIfAbsent(name, key -> new Family(key, help, type));
+        if (family.type != type) {
+            throw new IllegalArgumentException("The metric " + name + " is already registered as a "
+                    + family.type.getName());
+        }
+        return family;
+    }
+
+    /**
+     * Formats labels as they appear between the braces of the Prometheus text format, escaping the values.
+     *
+     * @param labels alternating label names and values
+     * @return the formatted labels, or an empty string if there are none
+     * @throws IllegalArgumentException if the labels are not in pairs or a label name is invalid
+     */
+    static String formatLabels(String... labels) {
+        if (labels.length % 2 != 0) {
+            throw new IllegalArgumentException("Labels must be given as name and value pairs");
+        }
+        StringBuilder formatted = new StringBuilder();
+        for (int i = 0; i < labels.length; i += 2) {
+            if (labels[i] == null || !LABEL_NAME.matcher(labels[i]).matches() || labels[i].equals("le")
+                    || labels[i].equals("quantile")) {
+                throw new IllegalArgumentException("Invalid label name: " + labels[i]);
+            }
+            if (i > 0) {
+                formatted.append(',');
+            }
+            formatted.append(labels[i]).append("=\"");
+            String value = String.valueOf(labels[i + 1]);
+            for (int j = 0; j < value.length(); j++) {
+                char c = value.charAt(j);
+                switch (c) {
+                    case '\\' -> formatted.append("\\\\");
+                    case '"' -> formatted.append("\\\"");
+                    case '\n' -> formatted.append("\\n");
+                    default -> formatted.append(c);
+                }
+            }
+            formatted.append('"');
+        }
+        return formatted.toString();
+    }
+
+    /**
+     * Type - the type of a metric family, as named in the Prometheus text format.
+     */
+    enum Type {
+        COUNTER("counter"),
+        GAUGE("gauge"),
+        HISTOGRAM("histogram");
+
+        private final String name;
+
+        Type(String name) {
+            this.name = name;
+        }
+
+        /**
+         * Returns the name of the type in the Prometheus text format.
+         *
+         * @return the name of the type
+         */
+        String getName() {
+            return name;
+        }
+    }
+
+    /**
+     * Family - the metrics sharing a name, keyed by their formatted labels. The values are {@link Counter}s,
+     * {@link LatencyHistogram}s, {@link LongSupplier}s or {@link DoubleSupplier}s.
+     */
+    static final class Family {
+        final String name;
+        final String help;
+        final Type type;
+        final Map<String, Object> metrics = new ConcurrentSkipListMap<>();
+
+        Family(String name, String help, Type type) {
+            this.name = name;
+            this.help = help;
+            this.type = type;
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package uk.ac.ncl.advancedjava.quizapi.metrics;
+
+/**
+ * OperationMetrics - the latency histogram and failure counter of one API operation, such as grading a quiz.
+ * Instrumented code reads {@link System#nanoTime()} when the operation starts and reports the outcome when it ends:
+ * <pre>{@code
+ * long start = System.nanoTime();
+ * try {
+ *     Quiz quiz = ...;
+ *     METRICS.recordSuccess(start);
+ *     return quiz;
+ * } catch (RuntimeException e) {
+ *     METRICS.recordFailure();
+ *     throw e;
+ * }
+ * }</pre>
+ * Only successful operations are timed, so fast rejections do not hide slow grading in the percentiles; the failure
+ * rate is the failure count over the sum of the failure count and the histogram count.
+ *
+ * @author Filip Kovarik - S24039999
+ */
+public final class OperationMetrics {
+
+    private final String operation;
+    private final LatencyHistogram latency;
+    private final Counter failures;
+
+    /**
+     * Constructs the metrics of an operation. Package-private, as they are created by the {@link MetricsRegistry}.
+     *
+     * @param operation the name of the operation
+     * @param latency   the histogram of successful operations
+     * @param failures  the counter of failed operations
+     */
+    OperationMetrics(String operation, LatencyHistogram latency, Counter failures) {
+        this.operation = operation;
+        this.latency = latency;
+        this.failures = failures;
+    }
+
+    /**
+     * Records an operation that completed successfully.
+     *
+     * @param startNanos the value of {@link System#nanoTime()} when the operation started
+     */
+    public void recordSuccess(long startNanos) {
+        latency.record(System.nanoTime() - startNanos);
+    }
+
+    /**
+     * Records an operation that failed with an exception.
+     */
+    public void recordFailure() {
+        failures.increment();
+    }
+
+    /**
+     * Returns the name of the operation.
+     *
+     * @return the operation
+     */
+    public String getOperation() {
+        return operation;
+    }
+
+    /**
+     * Returns the histogram of the durations of successful operations.
+     *
+     * @return the latency histogram
+     */
+    public LatencyHistogram getLatency() {
+        return latency;
+    }
+
+    /**
+     * Returns the counter of failed operations.
+     *
+     * @return the failure counter
+     */
+    public Counter getFailures() {
+        return failures;
+    }
+}
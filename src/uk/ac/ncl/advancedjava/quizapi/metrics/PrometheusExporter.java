@@ -0,0 +1,272 @@
+package uk.ac.ncl.advancedjava.quizapi.metrics;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.DoubleSupplier;
+import java.util.function.LongSupplier;
+
+/**
+ * PrometheusExporter - publishes the metrics of the {@link MetricsRegistry} in the Prometheus text exposition format,
+ * either written to an {@link Appendable} or served over HTTP at {@code /metrics} for Prometheus to scrape.
+ * Durations are exported in seconds. Every latency histogram is exported with cumulative buckets at four boundaries
+ * per power of two nanoseconds, from about a microsecond to about half a minute. The boundaries line up exactly with
+ * the buckets the histogram counts in, and no exported bucket is wider than a quarter of the values it holds, so
+ * {@code histogram_quantile} over a {@code rate} of the buckets gives the percentiles of any time window to within
+ * 25%. Durations are whole nanoseconds and a boundary counts the durations below it, so each {@code le} label is the
+ * boundary less a nanosecond, the longest duration the bucket holds. Each histogram is also exported as a gauge
+ * family named after it with a {@code _quantile} suffix, holding its 50th, 90th, 99th and 99.9th percentiles to
+ * within 6.25%; these cover every duration since start-up and never decay, so they describe the whole run rather
+ * than recent behaviour.
+ *
+ * @author Filip Kovarik - S24039999
+ */
+public final class PrometheusExporter implements AutoCloseable {
+
+    /**
+     * The content type of the Prometheus text exposition format.
+     */
+    public static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+
+    private static final int FIRST_BOUNDARY_SHIFT = 10;
+    private static final int LAST_BOUNDARY_SHIFT = 35;
+    private static final int BOUNDARY_BITS = 2;
+    private static final double[] QUANTILES = {0.5, 0.9, 0.99, 0.999};
+
+    private final HttpServer server;
+    private final ExecutorService executor;
+
+    /**
+     * Private constructor, exporters are started with {@link #start(InetSocketAddress)}.
+     *
+     * @param server   the started server
+     * @param executor the executor handling the requests
+     */
+    private PrometheusExporter(HttpServer server, ExecutorService executor) {
+        this.server = server;
+        this.executor = executor;
+    }
+
+    /**
+     * Starts serving the metrics over HTTP at {@code /metrics}. Requests are handled one at a time on a daemon
+     * thread. Bind to the loopback address, for example {@code new InetSocketAddress("127.0.0.1", 9400)}, unless
+     * the metrics are meant to be reachable from other machines.
+     *
+     * @param address the address to listen on; port 0 picks a free port
+     * @return the running exporter
+     * @throws IOException if the server cannot be bound to the address
+     */
+    public static PrometheusExporter start(InetSocketAddress address) throws IOException {
+        HttpServer server = HttpServer.create(address, 0);
+        ExecutorService executor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "prometheus-exporter");
+            thread.setDaemon(true);
+            return thread;
+        });
+        server.createContext("/metrics", PrometheusExporter::handle);
+        server.setExecutor(executor);
+        server.start();
+        return new PrometheusExporter(server, executor);
+    }
+
+    /**
+     * Returns the address the exporter is listening on.
+     *
+     * @return the bound address
+     */
+    public InetSocketAddress getAddress() {
+        return server.getAddress();
+    }
+
+    /**
+     * Stops serving the metrics, letting requests in progress finish for up to a second.
+     */
+    @Override
+    public void close() {
+        server.stop(1);
+        executor.shutdown();
+    }
+
+    /**
+     * Writes every registered metric in the Prometheus text exposition format.
+     *
+     * @param out the output to write to
+     * @throws IOException if the output cannot be written
+     */
+    public static void write(Appendable out) throws IOException {
+        for (MetricsRegistry.Family family : MetricsRegistry.families()) {
+            writeHeader(out, family.name, family.help, family.type.getName());
+            for (Map.Entry<String, Object> metric : family.metrics.entrySet()) {
+                String labels = metric.getKey();
+                Object value = metric.getValue();
+                if (value instanceof LatencyHistogram histogram) {
+                    writeHistogram(out, family.name, labels, histogram.snapshot(), histogram.getSum());
+                } else if (value instanceof Counter counter) {
+                    writeSample(out, family.name, labels, Long.toString(counter.get()));
+                } else if (value instanceof LongSupplier supplier) {
+                    writeSample(out, family.name, labels, Long.toString(supplier.getAsLong()));
+                } else if (value instanceof DoubleSupplier supplier) {
+                    writeSample(out, family.name, labels, formatDouble(supplier.getAsDouble()));
+                }
+            }
+            if (family.type == MetricsRegistry.Type.HISTOGRAM) {
+                writeQuantiles(out, family);
+            }
+        }
+    }
+
+    /**
+     * Serves a scrape request.
+     *
+     * @param exchange the request and response
+     * @throws IOException if the response cannot be sent
+     */
+    private static void handle(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            String method = exchange.getRequestMethod();
+            if (!method.equals("GET") && !method.equals("HEAD")) {
+                exchange.getResponseHeaders().set("Allow", "GET, HEAD");
+                exchange.sendResponseHeaders(405, -1);
+                return;
+            }
+            StringBuilder body = new StringBuilder();
+            try {
+                write(body);
+            } catch (RuntimeException e) {
+                // A failing gauge function fails the scrape rather than the server
+                exchange.sendResponseHeaders(500, -1);
+                return;
+            }
+            byte[] bytes = body.toString().getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", CONTENT_TYPE);
+            if (method.equals("HEAD")) {
+                exchange.sendResponseHeaders(200, -1);
+                return;
+            }
+            exchange.sendResponseHeaders(200, bytes.length);
+            try (OutputStream response = exchange.getResponseBody()) {
+                response.write(bytes);
+            }
+        }
+    }
+
+    /**
+     * Writes the cumulative buckets, sum and count of a histogram.
+     *
+     * @param out      the output to write to
+     * @param name     the name of the family
+     * @param labels   the formatted labels of the histogram
+     * @param counts   the bucket counts of the histogram
+     * @param sumNanos the sum of the recorded durations in nanoseconds
+     * @throws IOException if the output cannot be written
+     */
+    private static void writeHistogram(Appendable out, String name, String labels, long[] counts, long sumNanos)
+            throws IOException {
+        String prefix = labels.isEmpty() ? "" : labels + ",";
+        long cumulative = 0;
+        int index = 0;
+        for (int shift = FIRST_BOUNDARY_SHIFT; shift <= LAST_BOUNDARY_SHIFT; shift++) {
+            int steps = shift == LAST_BOUNDARY_SHIFT ? 1 : 1 << BOUNDARY_BITS;
+            for (int step = 0; step < steps; step++) {
+                long boundary = (1L << shift) + ((long) step << (shift - BOUNDARY_BITS));
+                // Every boundary is the lowest value of a bucket, so this counts exactly the durations below it
+                while (index < counts.length && LatencyHistogram.highestValue(index) < boundary) {
+                    cumulative += counts[index++];
+                }
+                writeSample(out, name + "_bucket", prefix + "le=\"" + formatDouble((boundary - 1) / 1e9) + "\"",
+                        Long.toString(cumulative));
+            }
+        }
+        while (index < counts.length) {
+            cumulative += counts[index++];
+        }
+        writeSample(out, name + "_bucket", prefix + "le=\"+Inf\"", Long.toString(cumulative));
+        writeSample(out, name + "_sum", labels, formatDouble(sumNanos / 1e9));
+        writeSample(out, name + "_count", labels, Long.toString(cumulative));
+    }
+
+    /**
+     * Writes the percentiles of every histogram of a family as a gauge family.
+     *
+     * @param out    the output to write to
+     * @param family the histogram family
+     * @throws IOException if the output cannot be written
+     */
+    private static void writeQuantiles(Appendable out, MetricsRegistry.Family family) throws IOException {
+        String name = family.name + "_quantile";
+        writeHeader(out, name, "Percentiles since start-up of " + family.name, "gauge");
+        for (Map.Entry<String, Object> metric : family.metrics.entrySet()) {
+            if (metric.getValue() instanceof LatencyHistogram histogram) {
+                long[] counts = histogram.snapshot();
+                String prefix = metric.getKey().isEmpty() ? "" : metric.getKey() + ",";
+                for (double quantile : QUANTILES) {
+                    long nanos = LatencyHistogram.valueAtPercentile(counts, quantile * 100);
+                    writeSample(out, name, prefix + "quantile=\"" + quantile + "\"", formatDouble(nanos / 1e9));
+                }
+            }
+        }
+    }
+
+    /**
+     * Writes the HELP and TYPE lines of a family.
+     *
+     * @param out  the output to write to
+     * @param name the name of the family
+     * @param help the description of the family
+     * @param type the type of the family
+     * @throws IOException if the output cannot be written
+     */
+    private static void writeHeader(Appendable out, String name, String help, String type) throws IOException {
+        out.append("# HELP ").append(name).append(' ');
+        String text = help == null ? "" : help;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            switch (c) {
+                case '\\' -> out.append("\\\\");
+                case '\n' -> out.append("\\n");
+                default -> out.append(c);
+            }
+        }
+        out.append('\n');
+        out.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+    }
+
+    /**
+     * Writes a sample line.
+     *
+     * @param out    the output to write to
+     * @param name   the name of the sample
+     * @param labels the formatted labels, or an empty string
+     * @param value  the formatted value
+     * @throws IOException if the output cannot be written
+     */
+    private static void writeSample(Appendable out, String name, String labels, String value) throws IOException {
+        out.append(name);
+        if (!labels.isEmpty()) {
+            out.append('{').append(labels).append('}');
+        }
+        out.append(' ').append(value).append('\n');
+    }
+
+    /**
+     * Formats a value as the Prometheus text format expects.
+     *
+     * @param value the value
+     * @return the formatted value
+     */
+    private static String formatDouble(double value) {
+        if (Double.isNaN(value)) {
+            return "NaN";
+        } else if (Double.isInfinite(value)) {
+            return value > 0 ? "+Inf" : "-Inf";
+        }
+        return Double.toString(value);
+    }
+}
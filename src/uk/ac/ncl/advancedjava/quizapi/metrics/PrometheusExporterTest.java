@@ -0,0 +1,94 @@
+package uk.ac.ncl.advancedjava.quizapi.metrics;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PrometheusExporterTest {
+
+    @Test
+    void write() throws Exception {
+        Counter counter = MetricsRegistry.counter("test_exporter_events_total", "Events", "kind", "a\"b");
+        counter.add(3);
+        assertSame(counter, MetricsRegistry.counter("test_exporter_events_total", "Events", "kind", "a\"b"));
+        MetricsRegistry.gauge("test_exporter_temperature", "Temperature", () -> 21.5);
+        LatencyHistogram histogram = MetricsRegistry.histogram("test_exporter_duration_seconds", "Duration");
+        histogram.record(1500);
+        histogram.record(3000);
+        histogram.record(3_000_000);
+
+        StringBuilder out = new StringBuilder();
+        PrometheusExporter.write(out);
+        String text = out.toString();
+
+        assertTrue(text.contains("# TYPE test_exporter_events_total counter\n"));
+        assertTrue(text.contains("test_exporter_events_total{kind=\"a\\\"b\"} 3\n"));
+        assertTrue(text.contains("# HELP test_exporter_temperature Temperature\n"));
+        assertTrue(text.contains("test_exporter_temperature 21.5\n"));
+        assertTrue(text.contains("# TYPE test_exporter_duration_seconds histogram\n"));
+        assertTrue(text.contains("test_exporter_duration_seconds_bucket{le=\"1.023E-6\"} 0\n"));
+        assertTrue(text.contains("test_exporter_duration_seconds_bucket{le=\"1.279E-6\"} 0\n"));
+        assertTrue(text.contains("test_exporter_duration_seconds_bucket{le=\"1.535E-6\"} 1\n"));
+        assertTrue(text.contains("test_exporter_duration_seconds_bucket{le=\"2.559E-6\"} 1\n"));
+        assertTrue(text.contains("test_exporter_duration_seconds_bucket{le=\"3.071E-6\"} 2\n"));
+        assertTrue(text.contains("test_exporter_duration_seconds_bucket{le=\"34.359738367\"} 3\n"));
+        // Four boundaries per power of two from 2^10 to 2^35 nanoseconds, and +Inf
+        assertEquals(102, text.lines().filter(line -> line.startsWith("test_exporter_duration_seconds_bucket"))
+                .count());
+        assertTrue(text.contains("test_exporter_duration_seconds_bucket{le=\"+Inf\"} 3\n"));
+        assertTrue(text.contains("test_exporter_duration_seconds_count 3\n"));
+        assertTrue(text.contains("test_exporter_duration_seconds_sum 0.0030045\n"));
+        assertTrue(text.contains("# TYPE test_exporter_duration_seconds_quantile gauge\n"));
+        assertTrue(text.contains("test_exporter_duration_seconds_quantile{quantile=\"0.5\"} 3.071E-6\n"));
+    }
+
+    @Test
+    void register_Invalid() {
+        MetricsRegistry.counter("test_exporter_conflict", "Conflict");
+        assertThrows(IllegalArgumentException.class, () -> MetricsRegistry.histogram("test_exporter_conflict", ""));
+        assertThrows(IllegalArgumentException.class, () -> MetricsRegistry.counter("1invalid", ""));
+        assertThrows(IllegalArgumentException.class, () -> MetricsRegistry.counter("test_exporter_odd", "", "a"));
+        assertThrows(IllegalArgumentException.class, () -> MetricsRegistry.histogram("test_exporter_le", "", "le",
+                "1"));
+    }
+
+    @Test
+    void operation() {
+        OperationMetrics metrics = MetricsRegistry.operation("testExporterOperation");
+        assertSame(metrics, MetricsRegistry.operation("testExporterOperation"));
+        metrics.recordSuccess(System.nanoTime());
+        metrics.recordFailure();
+
+        assertEquals(1, metrics.getLatency().getCount());
+        assertEquals(1, metrics.getFailures().get());
+        assertSame(metrics.getLatency(), MetricsRegistry.histogram(MetricsRegistry.OPERATION_DURATION, "",
+                "operation", "testExporterOperation"));
+    }
+
+    @Test
+    void start() throws Exception {
+        MetricsRegistry.counter("test_exporter_scraped_total", "Scraped").increment();
+        try (PrometheusExporter exporter = PrometheusExporter.start(
+                new InetSocketAddress(InetAddress.getLoopbackAddress(), 0))) {
+            URL url = new URL("http://127.0.0.1:" + exporter.getAddress().getPort() + "/metrics");
+            HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+            assertEquals(200, connection.getResponseCode());
+            assertEquals(PrometheusExporter.CONTENT_TYPE, connection.getContentType());
+            try (InputStream in = connection.getInputStream()) {
+                String body = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+                assertTrue(body.contains("test_exporter_scraped_total 1\n"));
+            }
+
+            HttpURLConnection post = (HttpURLConnection) url.openConnection();
+            post.setRequestMethod("POST");
+            assertEquals(405, post.getResponseCode());
+        }
+    }
+}
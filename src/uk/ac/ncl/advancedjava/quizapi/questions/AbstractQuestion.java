@@ -1,8 +1,11 @@
 package uk.ac.ncl.advancedjava.quizapi.questions;
 
+import java.util.Set;
+
 /**
  * AbstractQuestion - an abstract implementation of the {@link Question} interface. It provides the base functionality
- * for all questions by storing the question text and implementing the {@code getQuestionText()} method.
+ * for all questions by storing the question text, ID and topics and implementing the {@code getQuestionText()},
+ * {@code getId()} and {@code getTopics()} methods.
  * Specific question types should extend this class to add further functionality.
  *
  * @author Filip Kovarik - S24039999
@@ -10,19 +13,33 @@ package uk.ac.ncl.advancedjava.quizapi.questions;
 abstract class AbstractQuestion implements Question {
 
     final String questionText;
+    private int id = -1;
+    private final Set<String> topics;
 
     /**
      * Constructs an {@code AbstractQuestion} with the given question text. Package-private to prevent instantiating
-     * this class instead of the specific subclasses.
+     * this class instead of the specific subclasses. The ID is taken from the {@link QuestionIdRegistry} once the
+     * question is fully constructed, so questions with the same type and text share the same ID and questions that
+     * fail validation never use one up.
      *
      * @param questionText  the text of the question, must not be null or empty
-     * @throws IllegalArgumentException if the question text is null or empty
+     * @param topics        the topic tags of the question, may be empty
+     * @throws IllegalArgumentException if the question text is null or empty, if the topics are null, or if any
+     *                                  topic is null or blank
      */
-    AbstractQuestion(String questionText) {
+    AbstractQuestion(String questionText, Set<String> topics) {
         if (questionText == null || questionText.isEmpty()) {
             throw new IllegalArgumentException("Question text cannot be null or empty");
+        } else if (topics == null) {
+            throw new IllegalArgumentException("Topics cannot be null");
+        }
+        for (String topic : topics) {
+            if (topic == null || topic.isBlank()) {
+                throw new IllegalArgumentException("Topics cannot be null or blank");
+            }
         }
         this.questionText = questionText;
+        this.topics = Set.copyOf(topics);
     }
 
     /**
@@ -34,4 +51,41 @@ abstract class AbstractQuestion implements Question {
     public String getQuestionText() {
         return questionText;
     }
+
+    /**
+     * Retrieves the dense ID of the question, registering the question for it on first use. Questions created by
+     * the {@link QuestionFactory} are registered as they are created.
+     *
+     * @return the ID of the question
+     */
+    @Override
+    public int getId() {
+        int value = id;
+        if (value < 0) {
+            // Racing threads register the same question and read back the same ID, as String.hashCode does
+            value = QuestionIdRegistry.register(this, QuestionFactory.generateKey(getType(), questionText));
+            id = value;
+        }
+        return value;
+    }
+
+    /**
+     * Retrieves the ID of the question if it has one, without registering the question.
+     *
+     * @return the ID of the question, or {@code -1} if no question with the same type and text has an ID
+     */
+    int findId() {
+        int value = id;
+        return value >= 0 ? value : QuestionIdRegistry.find(QuestionFactory.generateKey(getType(), questionText));
+    }
+
+    /**
+     * Retrieves the topic tags of the question.
+     *
+     * @return an unmodifiable set of the question's topics
+     */
+    @Override
+    public Set<String> getTopics() {
+        return topics;
+    }
 }
@@ -0,0 +1,100 @@
+package uk.ac.ncl.advancedjava.quizapi.questions;
+
+/**
+ * CacheStatistics - an immutable snapshot of the {@link QuestionFactory} cache counters - hits, misses,
+ * evictions and the total time spent creating questions on a miss.
+ *
+ * @author Filip Kovarik - S24039999
+ */
+public final class CacheStatistics {
+
+    private final long hitCount;
+    private final long missCount;
+    private final long evictionCount;
+    private final long totalLoadTime;
+
+    /**
+     * Constructs a {@code CacheStatistics} snapshot. Package-private as snapshots are only taken by the cache itself.
+     *
+     * @param hitCount      the number of lookups that returned an already cached question
+     * @param missCount     the number of lookups that created a new question
+     * @param evictionCount the number of questions evicted to keep the cache within its bound
+     * @param totalLoadTime the total time spent creating questions, in nanoseconds
+     */
+    CacheStatistics(long hitCount, long missCount, long evictionCount, long totalLoadTime) {
+        this.hitCount = hitCount;
+        this.missCount = missCount;
+        this.evictionCount = evictionCount;
+        this.totalLoadTime = totalLoadTime;
+    }
+
+    /**
+     * Returns the number of lookups that returned an already cached question.
+     *
+     * @return the hit count
+     */
+    public long getHitCount() {
+        return hitCount;
+    }
+
+    /**
+     * Returns the number of lookups that created a new question.
+     *
+     * @return the miss count
+     */
+    public long getMissCount() {
+        return missCount;
+    }
+
+    /**
+     * Returns the number of questions evicted to keep the cache within its maximum size.
+     *
+     * @return the eviction count
+     */
+    public long getEvictionCount() {
+        return evictionCount;
+    }
+
+    /**
+     * Returns the total time spent creating questions on cache misses.
+     *
+     * @return the total load time in nanoseconds
+     */
+    public long getTotalLoadTime() {
+        return totalLoadTime;
+    }
+
+    /**
+     * Returns the ratio of hits to all lookups, or {@code 1.0} if there were no lookups yet.
+     *
+     * @return the hit rate between 0 and 1
+     */
+    public double getHitRate() {
+        long requests = hitCount + missCount;
+        return requests == 0 ? 1.0 : (double) hitCount / requests;
+    }
+
+    /**
+     * Returns the average time spent creating a question on a cache miss.
+     *
+     * @return the average load time in nanoseconds, or {@code 0.0} if there were no misses
+     */
+    public double getAverageLoadTime() {
+        return missCount == 0 ? 0.0 : (double) totalLoadTime / missCount;
+    }
+
+    /**
+     * Returns a string representation of the statistics.
+     *
+     * @return a string representation of the cache counters
+     */
+    @Override
+    public String toString() {
+        return "CacheStatistics{" +
+                "hitCount=" + hitCount +
+                ", missCount=" + missCount +
+                ", evictionCount=" + evictionCount +
+                ", totalLoadTime=" + totalLoadTime +
+                '}';
+    }
+}
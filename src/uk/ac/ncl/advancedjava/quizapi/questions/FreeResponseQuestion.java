@@ -1,5 +1,10 @@
 package uk.ac.ncl.advancedjava.quizapi.questions;
 
+import java.util.BitSet;
+import java.util.Locale;
+import java.util.Set;
+import java.util.regex.Pattern;
+
 /**
  * FreeResponseQuestion - represents a free-response question. It extends the {@link AbstractQuestion} class
  * and includes logic to check whether the student's answer matches the correct answer.
@@ -8,39 +13,145 @@ package uk.ac.ncl.advancedjava.quizapi.questions;
  */
 final class FreeResponseQuestion extends AbstractQuestion {
 
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
     private final String correctAnswer;
+    private final String normalizedCorrectAnswer;
+    private final Locale normalizedIn;
     private final QuestionType TYPE = QuestionType.FREE_RESPONSE;
 
     /**
-     * Constructs a {@code FreeResponseQuestion} with the given question text and correct answer.
+     * Constructs a {@code FreeResponseQuestion} with the given question text and correct answer and no topics.
      *
      * @param questionText  the text of the question
      * @param correctAnswer the correct answer to the question
      * @throws IllegalArgumentException if the correct answer is null or empty
      */
     FreeResponseQuestion(String questionText, String correctAnswer) {
-        super(questionText);
+        this(questionText, correctAnswer, Set.of());
+    }
+
+    /**
+     * Constructs a {@code FreeResponseQuestion} with the given question text, correct answer and topics.
+     *
+     * @param questionText  the text of the question
+     * @param correctAnswer the correct answer to the question
+     * @param topics        the topic tags of the question
+     * @throws IllegalArgumentException if the correct answer is null or empty, or if the topics are invalid
+     */
+    FreeResponseQuestion(String questionText, String correctAnswer, Set<String> topics) {
+        super(questionText, topics);
         if (correctAnswer == null || correctAnswer.isEmpty()) {
             throw new IllegalArgumentException("Correct answer cannot be null or empty");
         }
         this.correctAnswer = correctAnswer;
+        this.normalizedIn = Locale.getDefault();
+        this.normalizedCorrectAnswer = sanitizeAnswer(correctAnswer, normalizedIn);
     }
 
     /**
-     * Checks whether the given answer matches the correct answer. The comparison ignores case and extra whitespace,
-     * normalizing both the student's answer and the correct answer for comparison.
+     * Checks whether the given answer matches the correct answer. The comparison ignores case and extra whitespace.
+     * The correct answer is normalized once on construction, and the student's answer is normalized on the fly
+     * while it is compared character by character, so grading ASCII answers does not allocate.
      *
      * @param answer the student's answer to the question as a {@code String}
      * @return {@code true} if the student's answer matches the correct answer, {@code false} otherwise
      */
     @Override
     public boolean isCorrectAnswer(String answer) {
+        Locale locale = Locale.getDefault();
+        return matches(getNormalizedCorrectAnswer(locale), answer, locale);
+    }
+
+    /**
+     * Grades a batch of answers to this question in a single loop over the normalized correct answer.
+     *
+     * @param answers the students' answers to the question, {@code null} elements are treated as incorrect
+     * @return a {@link BitSet} with the bit at index {@code i} set if {@code answers[i]} is correct
+     */
+    @Override
+    public BitSet gradeAnswers(String[] answers) {
+        Locale locale = Locale.getDefault();
+        String expected = getNormalizedCorrectAnswer(locale);
+        BitSet correct = new BitSet(answers.length);
+        for (int i = 0; i < answers.length; i++) {
+            if (matches(expected, answers[i], locale)) {
+                correct.set(i);
+            }
+        }
+        return correct;
+    }
+
+    /**
+     * Returns the correct answer normalized for the given locale, which is the one normalized on construction unless
+     * the default locale has changed since.
+     *
+     * @param locale the current default locale
+     * @return the normalized correct answer
+     */
+    private String getNormalizedCorrectAnswer(Locale locale) {
+        return locale.equals(normalizedIn) ? normalizedCorrectAnswer : sanitizeAnswer(correctAnswer, locale);
+    }
+
+    /**
+     * Compares a student's answer to a normalized correct answer, normalizing the student's answer on the fly.
+     * Only ASCII characters are normalized on the fly, as they are the only ones whose lowercase never depends on
+     * their neighbours or takes more than one character; an answer with any other character is normalized in full
+     * with {@link #sanitizeAnswer(String, Locale)} instead, so both paths accept exactly the same answers.
+     *
+     * @param expected the normalized correct answer
+     * @param answer   the student's answer, may be {@code null}
+     * @param locale   the locale the correct answer was normalized in
+     * @return {@code true} if the answers match, {@code false} otherwise
+     */
+    private static boolean matches(String expected, String answer, Locale locale) {
         if (answer == null) {
             return false;
         }
-        String sanitizedCorrectAnswer = sanitizeAnswer(correctAnswer);
-        String sanitizedStudentAnswer = sanitizeAnswer(answer);
-        return sanitizedCorrectAnswer.equals(sanitizedStudentAnswer);
+        // Turkish and Azerbaijani lowercase the ASCII letter I to a dotless i
+        boolean dotlessI = locale.getLanguage().equals("tr") || locale.getLanguage().equals("az");
+        int start = 0;
+        int end = answer.length();
+        while (start < end && answer.charAt(start) <= ' ') {
+            start++;
+        }
+        while (end > start && answer.charAt(end - 1) <= ' ') {
+            end--;
+        }
+        int expectedLength = expected.length();
+        int j = 0;
+
+        for (int i = start; i < end; ) {
+            char c = answer.charAt(i);
+            if (c >= 0x80 || (c == 'I' && dotlessI)) {
+                return sanitizeAnswer(answer, locale).equals(expected);
+            } else if (isWhitespace(c)) {
+                while (isWhitespace(answer.charAt(i))) {
+                    i++; // The trimmed answer ends in a character that is not whitespace
+                }
+                c = ' ';
+            } else {
+                if (c >= 'A' && c <= 'Z') {
+                    c += 'a' - 'A';
+                }
+                i++;
+            }
+            if (j == expectedLength || expected.charAt(j) != c) {
+                return false;
+            }
+            j++;
+        }
+
+        return j == expectedLength;
+    }
+
+    /**
+     * Returns the correct answer as it was given on construction, for use when the question is persisted.
+     *
+     * @return the correct answer
+     */
+    String getCorrectAnswer() {
+        return correctAnswer;
     }
 
     /**
@@ -54,14 +165,26 @@ final class FreeResponseQuestion extends AbstractQuestion {
     }
 
     /**
-     * Sanitizes an answer by converting it to lowercase, trimming it, and replacing multiple spaces with
-     * a single space.
+     * Sanitizes an answer by converting it to lowercase, trimming it, and replacing multiple whitespace characters
+     * with a single space. This applies the same rules as {@link #isCorrectAnswer(String)}.
      *
-     * @param input the answer to sanitize
+     * @param input  the answer to sanitize
+     * @param locale the locale to convert the answer to lowercase in
      * @return the sanitized version of the answer
      */
-    private String sanitizeAnswer(String input) {
-        return input.toLowerCase().trim().replaceAll("\\s+", " ");
+    private static String sanitizeAnswer(String input, Locale locale) {
+        return WHITESPACE.matcher(input.toLowerCase(locale).trim()).replaceAll(" ");
+    }
+
+    /**
+     * Checks whether the character is whitespace for the purpose of collapsing runs of it inside an answer. Matches
+     * the regular expression whitespace class; other control characters are only removed from the ends.
+     *
+     * @param c the character to check
+     * @return {@code true} if the character is whitespace, {@code false} otherwise
+     */
+    private static boolean isWhitespace(char c) {
+        return c == ' ' || (c >= '\t' && c <= '\r');
     }
 
     /**
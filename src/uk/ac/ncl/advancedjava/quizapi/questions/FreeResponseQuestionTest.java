@@ -4,6 +4,10 @@ import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Locale;
+
 import static org.junit.jupiter.api.Assertions.*;
 class FreeResponseQuestionTest {
 
@@ -58,6 +62,61 @@ class FreeResponseQuestionTest {
 
         answer = "newyork";
         assertFalse(frq1.isCorrectAnswer(answer));
+
+        answer = "\tNew\n York\r\n";
+        assertTrue(frq1.isCorrectAnswer(answer));
+
+        answer = "New York City";
+        assertFalse(frq1.isCorrectAnswer(answer));
+
+        answer = "New Yor";
+        assertFalse(frq1.isCorrectAnswer(answer));
+
+        assertFalse(frq1.isCorrectAnswer(""));
+        assertFalse(frq1.isCorrectAnswer(null));
+    }
+
+    @Test
+    void isCorrectAnswer_FollowsStringNormalization() {
+        // Only the regular expression whitespace class is collapsed inside an answer, other control characters are
+        // only trimmed from the ends
+        assertFalse(frq1.isCorrectAnswer("New\u0001York"));
+        assertFalse(frq1.isCorrectAnswer("New \u0001York"));
+        assertTrue(frq1.isCorrectAnswer("\u0001New York\u0000"));
+        assertTrue(frq1.isCorrectAnswer("New\u000B\fYork"));
+        assertFalse(frq1.isCorrectAnswer("New\u00A0York"));
+
+        // Case is folded as String.toLowerCase() does, including final sigma and supplementary characters
+        FreeResponseQuestion greek = new FreeResponseQuestion("Which word means road?", "\u039F\u0394\u039F\u03A3");
+        assertTrue(greek.isCorrectAnswer("\u03BF\u03B4\u03BF\u03C2"));
+        assertFalse(greek.isCorrectAnswer("\u03BF\u03B4\u03BF\u03C3"));
+        FreeResponseQuestion deseret = new FreeResponseQuestion("What is this letter?", "\uD801\uDC00");
+        assertTrue(deseret.isCorrectAnswer("\uD801\uDC28"));
+
+        // ... in the current default locale
+        Locale defaultLocale = Locale.getDefault();
+        try {
+            Locale.setDefault(Locale.forLanguageTag("tr"));
+            FreeResponseQuestion city = new FreeResponseQuestion("What is the largest city in Turkey?", "ISTANBUL");
+            assertTrue(city.isCorrectAnswer("\u0131stanbul"));
+            assertFalse(city.isCorrectAnswer("istanbul"));
+            assertFalse(frq2.isCorrectAnswer("PARIS"));
+            assertTrue(frq2.isCorrectAnswer("paris"));
+        } finally {
+            Locale.setDefault(defaultLocale);
+        }
+    }
+
+    @Test
+    void gradeAnswers() {
+        String[] answers = {"new york", "Paris", null, "  NEW   york ", ""};
+        BitSet expected = new BitSet();
+        expected.set(0);
+        expected.set(3);
+
+        assertEquals(expected, frq1.gradeAnswers(answers));
+        assertEquals(expected, frq1.gradeAnswers(Arrays.asList(answers)));
+        assertTrue(frq1.gradeAnswers(new String[0]).isEmpty());
     }
 
     @Test
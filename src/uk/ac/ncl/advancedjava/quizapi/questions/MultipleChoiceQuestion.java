@@ -1,22 +1,25 @@
 package uk.ac.ncl.advancedjava.quizapi.questions;
 
-import java.util.Arrays;
+import java.util.BitSet;
 import java.util.Map;
 import java.util.Set;
-import java.util.stream.Collectors;
 
 /**
  * MultipleChoiceQuestion - represents a multiple-choice question with a set of options and correct answers.
  * This class extends the {@link AbstractQuestion} class and implements the {@link OptionableQuestion} interface,
  * which allows the retrieval of multiple-choice options.
+ * Options are identified by letters. Internally, a set of options is stored as an {@code int} bitmask with one bit
+ * per letter, so grading an answer is a single integer comparison.
  *
  * @author Filip Kovarik - S24039999
  */
 final class MultipleChoiceQuestion extends AbstractQuestion implements OptionableQuestion {
 
     private final Map<Character, String> options; // Option (a,b,c,d) -> Option text
-    private final Set<Character> correctOptions;
+    private final int correctOptions; // Bitmask, bit 0 = 'a', bit 1 = 'b', ...
+    private final int availableOptions; // Bitmask of the keys of options
     private final QuestionType TYPE = QuestionType.MULTIPLE_CHOICE;
+    private final int hash;
 
     /**
      * Constructs a {@code MultipleChoiceQuestion} with the given question text, options, and correct answers.
@@ -27,11 +30,26 @@ final class MultipleChoiceQuestion extends AbstractQuestion implements Optionabl
      * @param options           a map of option characters (e.g. 'A', 'B', 'C') to their corresponding option text
      * @param correctOptions    a set of characters representing the correct options
      * @throws IllegalArgumentException if the options or correct options are null or empty, if the number of options
-     *                                  is not between 2 and 4, or if the number of correct options exceeds the number
-     *                                  of available options
+     *                                  is not between 2 and 4, if the number of correct options exceeds the number
+     *                                  of available options, or if any option is not identified by a letter
      */
     MultipleChoiceQuestion(String questionText, Map<Character, String> options, Set<Character> correctOptions) {
-        super(questionText);
+        this(questionText, options, correctOptions, Set.of());
+    }
+
+    /**
+     * Constructs a {@code MultipleChoiceQuestion} with the given question text, options, correct answers and topics.
+     *
+     * @param questionText      the text of the question
+     * @param options           a map of option characters (e.g. 'A', 'B', 'C') to their corresponding option text
+     * @param correctOptions    a set of characters representing the correct options
+     * @param topics            the topic tags of the question
+     * @throws IllegalArgumentException if the options or correct options are invalid as described in
+     *                                  {@link #MultipleChoiceQuestion(String, Map, Set)}, or if the topics are invalid
+     */
+    MultipleChoiceQuestion(String questionText, Map<Character, String> options, Set<Character> correctOptions,
+                           Set<String> topics) {
+        super(questionText, topics);
 
         if (options == null || options.isEmpty()) {
             throw new IllegalArgumentException("Options cannot be null or empty");
@@ -43,10 +61,27 @@ final class MultipleChoiceQuestion extends AbstractQuestion implements Optionabl
             throw new IllegalArgumentException("Number of correct options exceeds the number of available options");
         }
 
+        int optionMask = 0;
+        for (Character option : options.keySet()) {
+            int bit = optionBit(option);
+            if (bit == 0) {
+                throw new IllegalArgumentException("Options must be identified by letters: " + option);
+            }
+            optionMask |= bit;
+        }
+        int correctMask = 0;
+        for (Character option : correctOptions) {
+            int bit = optionBit(option);
+            if (bit == 0) {
+                throw new IllegalArgumentException("Correct options must be identified by letters: " + option);
+            }
+            correctMask |= bit;
+        }
+
         this.options = options;
-        this.correctOptions = correctOptions.stream()
-                .map(Character::toLowerCase)
-                .collect(Collectors.toSet());
+        this.correctOptions = correctMask;
+        this.availableOptions = optionMask;
+        this.hash = computeHashCode();
     }
 
     /**
@@ -58,17 +93,85 @@ final class MultipleChoiceQuestion extends AbstractQuestion implements Optionabl
      */
     @Override
     public boolean isCorrectAnswer(String answer) {
-        if (answer == null || answer.isEmpty()) {
-            return false;
+        return parseAnswer(answer) == correctOptions;
+    }
+
+    /**
+     * Returns the options of this question selected by the given answer as a bitmask, bit 0 being option 'A'.
+     *
+     * @param answer a comma-separated string of option characters representing the student's answer
+     * @return the bitmask of the selected options, {@code 0} if none are selected or the answer cannot be parsed
+     */
+    @Override
+    public int getSelectedOptions(String answer) {
+        int selected = parseAnswer(answer);
+        return selected == -1 ? 0 : selected & availableOptions;
+    }
+
+    /**
+     * Grades a batch of answers to this question. Each answer is parsed into a bitmask and compared to the
+     * correct options in a single loop.
+     *
+     * @param answers the students' answers to the question, {@code null} elements are treated as incorrect
+     * @return a {@link BitSet} with the bit at index {@code i} set if {@code answers[i]} is correct
+     */
+    @Override
+    public BitSet gradeAnswers(String[] answers) {
+        int expected = correctOptions;
+        BitSet correct = new BitSet(answers.length);
+        for (int i = 0; i < answers.length; i++) {
+            if (parseAnswer(answers[i]) == expected) {
+                correct.set(i);
+            }
         }
-        String[] studentInputArray = (answer).toLowerCase().split(",");
+        return correct;
+    }
 
-        Set<Character> studentAnswers = Arrays.stream(studentInputArray)
-                .map(String::trim)
-                .map(s -> s.charAt(0))
-                .collect(Collectors.toSet());
+    /**
+     * Parses a comma-separated answer (e.g. "a, b") into an option bitmask without allocating. Only the first
+     * non-whitespace character of each comma-separated part is read, and empty parts are skipped.
+     *
+     * @param answer a comma-separated string of option characters
+     * @return the bitmask of the selected options, {@code 0} if nothing was selected, or {@code -1} if the answer
+     *         selects something other than a letter
+     */
+    static int parseAnswer(String answer) {
+        if (answer == null) {
+            return 0;
+        }
+        int mask = 0;
+        int length = answer.length();
+        int i = 0;
+        while (i < length) {
+            char c = answer.charAt(i);
+            if (c == ',' || c <= ' ') {
+                i++;
+                continue;
+            }
+            int bit = optionBit(c);
+            if (bit == 0) {
+                return -1;
+            }
+            mask |= bit;
+            while (i < length && answer.charAt(i) != ',') {
+                i++;
+            }
+        }
+        return mask;
+    }
 
-        return correctOptions.equals(studentAnswers);
+    /**
+     * Returns the bitmask bit representing the given option, ignoring case.
+     *
+     * @param option the option identifier
+     * @return the bit for the option, or {@code 0} if the option is not a letter
+     */
+    private static int optionBit(char option) {
+        char lowerCase = Character.toLowerCase(option);
+        if (lowerCase < 'a' || lowerCase > 'z') {
+            return 0;
+        }
+        return 1 << (lowerCase - 'a');
     }
 
     /**
@@ -81,6 +184,16 @@ final class MultipleChoiceQuestion extends AbstractQuestion implements Optionabl
         return options;
     }
 
+    /**
+     * Checks whether the given option is one of the correct options, for use when the question is persisted.
+     *
+     * @param option the option character
+     * @return {@code true} if the option is correct, {@code false} otherwise
+     */
+    boolean isCorrectOption(char option) {
+        return (correctOptions & optionBit(option)) != 0;
+    }
+
     /**
      * Retrieves the type of this question, which is {@code MULTIPLE_CHOICE}
      *
@@ -104,19 +217,29 @@ final class MultipleChoiceQuestion extends AbstractQuestion implements Optionabl
         if (!(o instanceof MultipleChoiceQuestion that)) return false;
 
         return getQuestionText().equals(that.getQuestionText()) && getOptions().equals(that.getOptions()) &&
-                correctOptions.equals(that.correctOptions);
+                correctOptions == that.correctOptions;
     }
 
     /**
-     * Generates a hash code for this question based on the question text, options, and correct answers.
+     * Returns the hash code for this question based on the question text, options, and correct answers.
+     * The hash code is computed once on construction, as hashing the options map is comparatively expensive.
      *
      * @return the hash code of this question
      */
     @Override
     public int hashCode() {
+        return hash;
+    }
+
+    /**
+     * Computes the hash code for this question based on the question text, options, and correct answers.
+     *
+     * @return the hash code of this question
+     */
+    private int computeHashCode() {
         int result = getQuestionText().hashCode();
-        result = 31 * result * getOptions().hashCode();
-        result = 31 * result + correctOptions.hashCode();
+        result = 31 * result + options.hashCode();
+        result = 31 * result + correctOptions;
         return result;
     }
 
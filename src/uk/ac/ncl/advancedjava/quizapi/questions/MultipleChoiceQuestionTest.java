@@ -4,6 +4,8 @@ import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import java.util.Arrays;
+import java.util.BitSet;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Map;
@@ -82,6 +84,15 @@ class MultipleChoiceQuestionTest {
         Set<Character> correctOptions6 = Set.of('B', 'C', 'D', 'E');
         assertThrowsExactly(IllegalArgumentException.class, () -> new MultipleChoiceQuestion(
                 "Test", options5, correctOptions6));
+
+        Map<Character, String> options7 = Map.of(
+                '1', "wrong",
+                '2', "correct"
+        );
+        assertThrowsExactly(IllegalArgumentException.class, () -> new MultipleChoiceQuestion(
+                "Test", options7, Set.of('2')));
+        assertThrowsExactly(IllegalArgumentException.class, () -> new MultipleChoiceQuestion(
+                "Test", options5, Set.of('?')));
         // ***********
     }
 
@@ -134,6 +145,41 @@ class MultipleChoiceQuestionTest {
 
         studentAnswers = "A";
         assertFalse(mcq2.isCorrectAnswer(studentAnswers));
+
+        studentAnswers = "B,C,A";
+        assertFalse(mcq2.isCorrectAnswer(studentAnswers));
+
+        studentAnswers = "B";
+        assertFalse(mcq2.isCorrectAnswer(studentAnswers));
+
+        studentAnswers = "b,,c,";
+        assertTrue(mcq2.isCorrectAnswer(studentAnswers));
+
+        studentAnswers = "b,c,?";
+        assertFalse(mcq2.isCorrectAnswer(studentAnswers));
+
+        assertFalse(mcq2.isCorrectAnswer(""));
+        assertFalse(mcq2.isCorrectAnswer(null));
+    }
+
+    @Test
+    void parseAnswer() {
+        assertEquals(0b1010, MultipleChoiceQuestion.parseAnswer("b,d"));
+        assertEquals(0b1010, MultipleChoiceQuestion.parseAnswer(" D ,  b,b"));
+        assertEquals(0b0001, MultipleChoiceQuestion.parseAnswer("apple"));
+        assertEquals(0, MultipleChoiceQuestion.parseAnswer(" , "));
+        assertEquals(0, MultipleChoiceQuestion.parseAnswer(null));
+        assertEquals(-1, MultipleChoiceQuestion.parseAnswer("a,1"));
+    }
+
+    @Test
+    void getSelectedOptions() {
+        OptionableQuestion optionable = (OptionableQuestion) mcq2;
+        assertEquals(0b110, optionable.getSelectedOptions("b, C"));
+        // D is not an option of the question
+        assertEquals(0b001, optionable.getSelectedOptions("a,d"));
+        assertEquals(0, optionable.getSelectedOptions("a,1"));
+        assertEquals(0, optionable.getSelectedOptions(null));
     }
 
     @Test
@@ -164,6 +210,18 @@ class MultipleChoiceQuestionTest {
         }
     }
 
+    @Test
+    void gradeAnswers() {
+        String[] answers = {"b,d", "a", null, " D , b", ""};
+        BitSet expected = new BitSet();
+        expected.set(0);
+        expected.set(3);
+
+        assertEquals(expected, mcq1.gradeAnswers(answers));
+        assertEquals(expected, mcq1.gradeAnswers(Arrays.asList(answers)));
+        assertTrue(mcq1.gradeAnswers(new String[0]).isEmpty());
+    }
+
     @Test
     void testEquals() {
         assertFalse(mcq1.equals(mcq2));
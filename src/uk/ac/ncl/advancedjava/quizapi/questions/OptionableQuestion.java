@@ -16,4 +16,15 @@ public interface OptionableQuestion extends Question {
      * @return a {@link Map} of option IDs and corresponding option texts
      */
     Map<Character, String> getOptions();
+
+    /**
+     * Returns the options of this question selected by the given answer, as a bitmask with bit 0 set for option 'A',
+     * bit 1 for option 'B' and so on, ignoring case. Letters that are not options of this question are left out, and
+     * an answer that cannot be parsed selects nothing. The answer is parsed without allocating, so the selections of
+     * every graded answer can be counted.
+     *
+     * @param answer the student's answer, in the same form as for {@link #isCorrectAnswer(String)}
+     * @return the bitmask of the selected options, {@code 0} if none are selected
+     */
+    int getSelectedOptions(String answer);
 }
@@ -1,5 +1,9 @@
 package uk.ac.ncl.advancedjava.quizapi.questions;
 
+import java.util.BitSet;
+import java.util.List;
+import java.util.Set;
+
 /**
  * Question - defines the common functionality for different types of quiz questions.
  * Implementations of this interface can represent various question types such as free-response or multiple-choice.
@@ -15,6 +19,23 @@ public interface Question {
      */
     String getQuestionText();
 
+    /**
+     * Retrieves the ID of the question. IDs are dense, starting from 0, and stable for the lifetime of the
+     * application - all questions with the same type and text have the same ID. This makes them suitable as
+     * indexes into arrays and bitsets.
+     *
+     * @return the ID of the question
+     */
+    int getId();
+
+    /**
+     * Retrieves the topic tags of the question, such as the module or week it belongs to.
+     * Topics do not take part in equality - two questions that differ only in their topics are equal.
+     *
+     * @return an unmodifiable set of the question's topics, empty if it has none
+     */
+    Set<String> getTopics();
+
     /**
      * Checks whether the provided answer is correct for the question.
      *
@@ -23,6 +44,34 @@ public interface Question {
      */
     boolean isCorrectAnswer(String answer);
 
+    /**
+     * Grades a batch of answers to this question, for example when re-grading a whole cohort after an exam.
+     * Question types should override this with a loop specialised for their representation; the default
+     * implementation calls {@link #isCorrectAnswer(String)} for each answer.
+     *
+     * @param answers the answers to check, {@code null} elements are treated as incorrect
+     * @return a {@link BitSet} with the bit at index {@code i} set if {@code answers[i]} is correct
+     */
+    default BitSet gradeAnswers(String[] answers) {
+        BitSet correct = new BitSet(answers.length);
+        for (int i = 0; i < answers.length; i++) {
+            if (isCorrectAnswer(answers[i])) {
+                correct.set(i);
+            }
+        }
+        return correct;
+    }
+
+    /**
+     * Grades a batch of answers to this question. See {@link #gradeAnswers(String[])}.
+     *
+     * @param answers the answers to check, {@code null} elements are treated as incorrect
+     * @return a {@link BitSet} with the bit at index {@code i} set if the answer at index {@code i} is correct
+     */
+    default BitSet gradeAnswers(List<String> answers) {
+        return gradeAnswers(answers.toArray(new String[0]));
+    }
+
     /**
      * Retrieves the type of the question, represented by the {@link QuestionType} enum.
      *
@@ -0,0 +1,191 @@
+package uk.ac.ncl.advancedjava.quizapi.questions;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * QuestionCache - a thread-safe, size-bounded interning cache used by {@link QuestionFactory}.
+ * Reads are lock-free and only touch a single {@link ConcurrentHashMap} bin, while creation of a missing question
+ * is atomic per key, so two threads asking for the same question always receive the same instance.
+ * When the number of cached questions exceeds the maximum size, entries are evicted using the CLOCK
+ * (second-chance) approximation of LRU - questions read since the last sweep get another chance, the rest are dropped.
+ *
+ * @author Filip Kovarik - S24039999
+ */
+final class QuestionCache {
+
+    private final ConcurrentHashMap<String, Node> entries = new ConcurrentHashMap<>();
+    private final Queue<Node> clock = new ConcurrentLinkedQueue<>();
+    private volatile long maximumSize;
+
+    private final LongAdder hitCount = new LongAdder();
+    private final LongAdder missCount = new LongAdder();
+    private final LongAdder evictionCount = new LongAdder();
+    private final LongAdder totalLoadTime = new LongAdder();
+
+    /**
+     * Constructs an empty {@code QuestionCache} holding at most the given number of questions.
+     *
+     * @param maximumSize the maximum number of questions kept in the cache, must be positive
+     * @throws IllegalArgumentException if the maximum size is not positive
+     */
+    QuestionCache(long maximumSize) {
+        setMaximumSize(maximumSize);
+    }
+
+    /**
+     * Returns the question cached under the given key, creating it with the given loader if it is not present.
+     * The loader is invoked at most once per key at a time; if it throws, nothing is cached and the exception
+     * is propagated to the caller.
+     *
+     * @param key    the key identifying the question
+     * @param loader creates the question when it is not cached yet
+     * @return the cached or newly created question
+     */
+    Question get(String key, Supplier<Question> loader) {
+        Node node = entries.get(key);
+        if (node != null) {
+            node.markReferenced();
+            hitCount.increment();
+            return node.question;
+        }
+
+        boolean[] loaded = new boolean[1];
+        node = entries.computeIfAbsent(key, k -> {
+            long start = System.nanoTime();
+            try {
+                loaded[0] = true;
+                return new Node(k, loader.get());
+            } finally {
+                totalLoadTime.add(System.nanoTime() - start);
+            }
+        });
+
+        if (loaded[0]) {
+            missCount.increment();
+            clock.offer(node);
+            evictIfNeeded();
+        } else {
+            node.markReferenced();
+            hitCount.increment();
+        }
+
+        return node.question;
+    }
+
+    /**
+     * Evicts questions until the cache is back within its maximum size. Each entry met by the clock hand that was
+     * referenced since the previous sweep has its reference bit cleared and is moved to the back of the queue.
+     */
+    private void evictIfNeeded() {
+        while (entries.size() > maximumSize) {
+            Node candidate = clock.poll();
+            if (candidate == null) {
+                return;
+            }
+            if (candidate.referenced) {
+                candidate.referenced = false;
+                clock.offer(candidate);
+            } else if (entries.remove(candidate.key, candidate)) {
+                evictionCount.increment();
+            }
+        }
+    }
+
+    /**
+     * Sets the maximum number of questions kept in the cache, evicting entries straight away if the cache
+     * is currently larger than the new bound.
+     *
+     * @param maximumSize the maximum number of questions, must be positive
+     * @throws IllegalArgumentException if the maximum size is not positive
+     */
+    void setMaximumSize(long maximumSize) {
+        if (maximumSize < 1) {
+            throw new IllegalArgumentException("Maximum cache size must be positive");
+        }
+        this.maximumSize = maximumSize;
+        evictIfNeeded();
+    }
+
+    /**
+     * Returns the maximum number of questions kept in the cache.
+     *
+     * @return the maximum cache size
+     */
+    long getMaximumSize() {
+        return maximumSize;
+    }
+
+    /**
+     * Returns the number of questions currently held in the cache.
+     *
+     * @return the current cache size
+     */
+    int size() {
+        return entries.size();
+    }
+
+    /**
+     * Returns the questions currently held in the cache. Questions added or evicted concurrently may or may not be
+     * included.
+     *
+     * @return a list of the cached questions
+     */
+    List<Question> questions() {
+        List<Question> questions = new ArrayList<>(entries.size());
+        for (Node node : entries.values()) {
+            questions.add(node.question);
+        }
+        return questions;
+    }
+
+    /**
+     * Returns a point-in-time snapshot of the hit, miss, eviction and load time counters.
+     *
+     * @return the current cache statistics
+     */
+    CacheStatistics statistics() {
+        return new CacheStatistics(hitCount.sum(), missCount.sum(), evictionCount.sum(), totalLoadTime.sum());
+    }
+
+    /**
+     * Removes all cached questions and resets the statistics counters.
+     */
+    void clear() {
+        entries.clear();
+        clock.clear();
+        hitCount.reset();
+        missCount.reset();
+        evictionCount.reset();
+        totalLoadTime.reset();
+    }
+
+    /**
+     * Node - a cache entry holding the question, its key and the CLOCK reference bit.
+     */
+    private static final class Node {
+        final String key;
+        final Question question;
+        volatile boolean referenced;
+
+        Node(String key, Question question) {
+            this.key = key;
+            this.question = question;
+        }
+
+        /**
+         * Sets the reference bit, skipping the volatile write when it is already set so that hot entries
+         * read by many threads do not bounce their cache line around.
+         */
+        void markReferenced() {
+            if (!referenced) {
+                referenced = true;
+            }
+        }
+    }
+}
@@ -1,6 +1,15 @@
 package uk.ac.ncl.advancedjava.quizapi.questions;
 
+import uk.ac.ncl.advancedjava.quizapi.metrics.MetricsRegistry;
+import uk.ac.ncl.advancedjava.quizapi.metrics.OperationMetrics;
+
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
@@ -9,12 +18,31 @@ import java.util.Set;
  * {@link FreeResponseQuestion} and {@link MultipleChoiceQuestion}. It ensures that identical questions are reused
  * by maintaining and internal cache of previously created questions.
  * This class uses the Factory design pattern to manage the creation and caching of questions.
+ * The cache is safe to use from multiple threads and is bounded - once it holds more than
+ * {@link #getMaximumSize()} questions, the least recently used ones are evicted.
+ * The duration and failures of {@code getInstance} and the cache counters are published in the
+ * {@link MetricsRegistry}.
  *
  * @author Filip Kovarik - S24039999
  */
 public class QuestionFactory {
 
-    private static final Map<String, Question> QUESTIONS = new HashMap<>();
+    static final long DEFAULT_MAXIMUM_SIZE = 250_000;
+
+    private static final QuestionCache QUESTIONS = new QuestionCache(DEFAULT_MAXIMUM_SIZE);
+
+    private static final OperationMetrics GET_INSTANCE_METRICS = MetricsRegistry.operation("getInstance");
+
+    static {
+        MetricsRegistry.gauge("quizapi_cached_questions", "Questions held in the question cache",
+                QuestionFactory::getCachedQuestionCount);
+        MetricsRegistry.counter("quizapi_question_cache_hits_total", "Question lookups served from the cache",
+                () -> QUESTIONS.statistics().getHitCount());
+        MetricsRegistry.counter("quizapi_question_cache_misses_total", "Question lookups that created a question",
+                () -> QUESTIONS.statistics().getMissCount());
+        MetricsRegistry.counter("quizapi_question_cache_evictions_total", "Questions evicted from the cache",
+                () -> QUESTIONS.statistics().getEvictionCount());
+    }
 
     /**
      * Private constructor to prevent instantiation of this utility class.
@@ -33,20 +61,37 @@ public class QuestionFactory {
      * @throws IllegalArgumentException if the provided type is not {@link QuestionType#FREE_RESPONSE}
      */
     public static Question getInstance(QuestionType type, String questionText, String correctAnswer) {
-        String key = generateKey(type, questionText);
-        Question question = QUESTIONS.get(key);
-
-        if (question != null) { return question; }
+        return getInstance(type, questionText, correctAnswer, Set.of());
+    }
 
-        if (type == QuestionType.FREE_RESPONSE) {
-            question = new FreeResponseQuestion(questionText, correctAnswer);
-        } else {
-            throw new IllegalArgumentException("Incorrect question type: " + type);
+    /**
+     * Retrieves an instance of {@link FreeResponseQuestion} tagged with the given topics. If the question already
+     * exists in the internal cache, it is returned with the topics it was created with.
+     *
+     * @param type          the type of question to create; must be {@link QuestionType#FREE_RESPONSE}
+     * @param questionText  the text of the question
+     * @param correctAnswer the correct answer for the question
+     * @param topics        the topic tags of the question, such as its module and week
+     * @return an instance of {@link FreeResponseQuestion}
+     * @throws IllegalArgumentException if the provided type is not {@link QuestionType#FREE_RESPONSE}
+     */
+    public static Question getInstance(QuestionType type, String questionText, String correctAnswer,
+                                       Set<String> topics) {
+        long start = System.nanoTime();
+        try {
+            Question question = QUESTIONS.get(generateKey(type, questionText), () -> {
+                if (type == QuestionType.FREE_RESPONSE) {
+                    return register(new FreeResponseQuestion(questionText, correctAnswer, topics));
+                } else {
+                    throw new IllegalArgumentException("Incorrect question type: " + type);
+                }
+            });
+            GET_INSTANCE_METRICS.recordSuccess(start);
+            return question;
+        } catch (RuntimeException e) {
+            GET_INSTANCE_METRICS.recordFailure();
+            throw e;
         }
-
-        QUESTIONS.put(key, question);
-
-        return question;
     }
 
     /**
@@ -62,38 +107,273 @@ public class QuestionFactory {
      * @throws IllegalArgumentException if the provided type is not {@link QuestionType#MULTIPLE_CHOICE}
      */
     public static Question getInstance(QuestionType type, String questionText, Map<Character, String> options, Set<Character> correctOptions) {
-        String key = generateKey(type, questionText);
-        Question question = QUESTIONS.get(key);
-
-        if (question != null) { return question; }
+        return getInstance(type, questionText, options, correctOptions, Set.of());
+    }
 
-        if (type == QuestionType.MULTIPLE_CHOICE) {
-            question = new MultipleChoiceQuestion(questionText, options, correctOptions);
-        } else {
-            throw new IllegalArgumentException("Incorrect question type: " + type);
+    /**
+     * Retrieves an instance of {@link MultipleChoiceQuestion} tagged with the given topics. If the question already
+     * exists in the internal cache, it is returned with the topics it was created with.
+     *
+     * @param type              the type of question to create; must be {@link QuestionType#MULTIPLE_CHOICE}
+     * @param questionText      the text of the question
+     * @param options           a map of option identifiers to option text
+     * @param correctOptions    a set of identifiers for the correct options
+     * @param topics            the topic tags of the question, such as its module and week
+     * @return an instance of {@link MultipleChoiceQuestion}
+     * @throws IllegalArgumentException if the provided type is not {@link QuestionType#MULTIPLE_CHOICE}
+     */
+    public static Question getInstance(QuestionType type, String questionText, Map<Character, String> options,
+                                       Set<Character> correctOptions, Set<String> topics) {
+        long start = System.nanoTime();
+        try {
+            Question question = QUESTIONS.get(generateKey(type, questionText), () -> {
+                if (type == QuestionType.MULTIPLE_CHOICE) {
+                    return register(new MultipleChoiceQuestion(questionText, options, correctOptions, topics));
+                } else {
+                    throw new IllegalArgumentException("Incorrect question type: " + type);
+                }
+            });
+            GET_INSTANCE_METRICS.recordSuccess(start);
+            return question;
+        } catch (RuntimeException e) {
+            GET_INSTANCE_METRICS.recordFailure();
+            throw e;
         }
+    }
+
+    /**
+     * Retrieves the question with the given ID, as returned by {@link Question#getId()}.
+     *
+     * @param id the ID of the question
+     * @return the question with the given ID, or {@code null} if no question with this ID is in use
+     */
+    public static Question getQuestion(int id) {
+        return QuestionIdRegistry.lookup(id);
+    }
+
+    /**
+     * Returns the ID of the question with the given type and text, as returned by {@link Question#getId()}.
+     * The ID is assigned on first use, so it can be resolved before the question itself is created, for example when
+     * restoring persisted data that refers to questions by type and text.
+     *
+     * @param type         the type of the question
+     * @param questionText the text of the question
+     * @return the ID of the question
+     */
+    public static int getQuestionId(QuestionType type, String questionText) {
+        return QuestionIdRegistry.idOf(generateKey(type, questionText));
+    }
+
+    /**
+     * Returns the ID of the given question if it has one, as returned by {@link Question#getId()}. Unlike
+     * {@code getId()}, this never registers the question, so it suits read-only lookups of questions that may never
+     * have been used.
+     *
+     * @param question the question
+     * @return the ID of the question, or {@code -1} if no question with the same type and text has an ID
+     */
+    public static int findQuestionId(Question question) {
+        return question instanceof AbstractQuestion abstractQuestion
+                ? abstractQuestion.findId()
+                : QuestionIdRegistry.find(generateKey(question.getType(), question.getQuestionText()));
+    }
+
+    /**
+     * Returns the type of the question with the given ID, which does not need to be created yet.
+     *
+     * @param id the ID of the question
+     * @return the type of the question, or {@code null} if the ID has not been assigned or its question has been
+     *         garbage collected
+     */
+    public static QuestionType getQuestionType(int id) {
+        String key = QuestionIdRegistry.keyOf(id);
+        return key == null ? null : QuestionType.valueOf(key.substring(0, key.indexOf(':')));
+    }
+
+    /**
+     * Returns the text of the question with the given ID, which does not need to be created yet.
+     *
+     * @param id the ID of the question
+     * @return the text of the question, or {@code null} if the ID has not been assigned or its question has been
+     *         garbage collected
+     */
+    public static String getQuestionText(int id) {
+        String key = QuestionIdRegistry.keyOf(id);
+        return key == null ? null : key.substring(key.indexOf(':') + 1);
+    }
 
-        QUESTIONS.put(key, question);
+    /**
+     * Returns the number of question IDs assigned so far, including the retired IDs of garbage collected questions.
+     * Every question ID is smaller than this number, so it can be used to size arrays and bitsets indexed by question
+     * ID.
+     *
+     * @return the number of assigned question IDs
+     */
+    public static int getQuestionIdCount() {
+        return QuestionIdRegistry.size();
+    }
 
+    /**
+     * Records a newly created question in the ID directory, so that it can be looked up by its ID.
+     *
+     * @param question the newly created question
+     * @return the same question
+     */
+    private static Question register(Question question) {
+        question.getId();
         return question;
     }
 
     /**
      * Generates a unique key based on the question type and question text. This key is used to cache and retrieve
-     * question instances.
+     * question instances and to assign question IDs.
      *
      * @param type          the type of question
      * @param questionText  the text of the question
      * @return a unique key representing the question
      */
-    private static String generateKey(QuestionType type, String questionText) {
+    static String generateKey(QuestionType type, String questionText) {
         return type + ":" + questionText;
     }
 
     /**
-     * Clears the internal question cache. This method is intended for use in unit tests to reset the factory state.
+     * Sets the maximum number of questions kept in the internal cache. If the cache currently holds more questions,
+     * the least recently used ones are evicted straight away.
+     *
+     * @param maximumSize the maximum number of cached questions, must be positive
+     * @throws IllegalArgumentException if the maximum size is not positive
+     */
+    public static void setMaximumSize(long maximumSize) {
+        QUESTIONS.setMaximumSize(maximumSize);
+    }
+
+    /**
+     * Returns the maximum number of questions kept in the internal cache.
+     *
+     * @return the maximum cache size
+     */
+    public static long getMaximumSize() {
+        return QUESTIONS.getMaximumSize();
+    }
+
+    /**
+     * Returns the number of questions currently held in the internal cache.
+     *
+     * @return the number of cached questions
+     */
+    public static int getCachedQuestionCount() {
+        return QUESTIONS.size();
+    }
+
+    /**
+     * Returns a snapshot of the cache hit, miss, eviction and load time counters.
+     *
+     * @return the current {@link CacheStatistics}
+     */
+    public static CacheStatistics getStatistics() {
+        return QUESTIONS.statistics();
+    }
+
+    /**
+     * Writes the full definitions of all cached questions, including their correct answers, in a compact binary
+     * form that can be read back with {@link #readQuestions(ByteBuffer)}. Used to persist the question cache in
+     * snapshots; the output must be kept private as it reveals the answers.
+     *
+     * @param out the output to write to
+     * @throws IOException if the output cannot be written
+     */
+    public static void writeQuestions(DataOutput out) throws IOException {
+        List<Question> questions = QUESTIONS.questions();
+        out.writeInt(questions.size());
+        for (Question question : questions) {
+            out.writeByte(question.getType().ordinal());
+            writeString(out, question.getQuestionText());
+            out.writeInt(question.getTopics().size());
+            for (String topic : question.getTopics()) {
+                writeString(out, topic);
+            }
+            if (question instanceof FreeResponseQuestion freeResponse) {
+                writeString(out, freeResponse.getCorrectAnswer());
+            } else if (question instanceof MultipleChoiceQuestion multipleChoice) {
+                out.writeInt(multipleChoice.getOptions().size());
+                for (Map.Entry<Character, String> option : multipleChoice.getOptions().entrySet()) {
+                    out.writeChar(option.getKey());
+                    out.writeBoolean(multipleChoice.isCorrectOption(option.getKey()));
+                    writeString(out, option.getValue());
+                }
+            }
+        }
+    }
+
+    /**
+     * Reads question definitions written by {@link #writeQuestions(DataOutput)} and adds them to the cache, as if
+     * each was requested through {@code getInstance}.
+     *
+     * @param in the buffer to read from, positioned at the start of the definitions
+     * @return the number of questions read
+     * @throws IllegalArgumentException if the definitions are malformed
+     */
+    public static int readQuestions(ByteBuffer in) {
+        int count = in.getInt();
+        for (int i = 0; i < count; i++) {
+            QuestionType type = QuestionType.values()[in.get()];
+            String questionText = readString(in);
+            int topicCount = in.getInt();
+            Set<String> topics = new HashSet<>();
+            for (int j = 0; j < topicCount; j++) {
+                topics.add(readString(in));
+            }
+            if (type == QuestionType.FREE_RESPONSE) {
+                getInstance(type, questionText, readString(in), topics);
+            } else {
+                int optionCount = in.getInt();
+                Map<Character, String> options = new HashMap<>();
+                Set<Character> correctOptions = new HashSet<>();
+                for (int j = 0; j < optionCount; j++) {
+                    char option = in.getChar();
+                    if (in.get() != 0) {
+                        correctOptions.add(option);
+                    }
+                    options.put(option, readString(in));
+                }
+                getInstance(type, questionText, Map.copyOf(options), correctOptions, topics);
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Writes a string as its length in bytes followed by its UTF-8 encoding.
+     *
+     * @param out    the output to write to
+     * @param string the string to write
+     * @throws IOException if the output cannot be written
+     */
+    private static void writeString(DataOutput out, String string) throws IOException {
+        byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    /**
+     * Reads a string written by {@link #writeString(DataOutput, String)}.
+     *
+     * @param in the buffer to read from
+     * @return the string
+     */
+    private static String readString(ByteBuffer in) {
+        byte[] bytes = new byte[in.getInt()];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Clears the internal question cache and the assigned question IDs. This method is intended for use in unit tests
+     * to reset the factory state.
      */
     static void resetFactory() {
         QUESTIONS.clear();
+        QuestionIdRegistry.clear();
+        QUESTIONS.setMaximumSize(DEFAULT_MAXIMUM_SIZE);
     }
 }
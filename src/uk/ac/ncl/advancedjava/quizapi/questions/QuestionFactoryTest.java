@@ -5,8 +5,14 @@ import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -117,4 +123,125 @@ class QuestionFactoryTest {
         ));
         // *************
     }
-}
\ No newline at end of file
+
+    @Test
+    void getStatistics() {
+        // setUp created frq, frq3, mcq and mcq3, and found frqDuplicate and mcqDuplicate in the cache
+        CacheStatistics statistics = QuestionFactory.getStatistics();
+        assertEquals(2, statistics.getHitCount());
+        assertEquals(4, statistics.getMissCount());
+        assertEquals(0, statistics.getEvictionCount());
+        assertEquals(4, QuestionFactory.getCachedQuestionCount());
+
+        assertThrowsExactly(IllegalArgumentException.class, () -> QuestionFactory.getInstance(
+                QuestionType.MULTIPLE_CHOICE,
+                "Not a multiple choice question",
+                "3"
+        ));
+        assertEquals(4, QuestionFactory.getCachedQuestionCount());
+    }
+
+    @Test
+    void setMaximumSize() {
+        assertThrowsExactly(IllegalArgumentException.class, () -> QuestionFactory.setMaximumSize(0));
+
+        QuestionFactory.setMaximumSize(2);
+        assertEquals(2, QuestionFactory.getMaximumSize());
+        assertEquals(2, QuestionFactory.getCachedQuestionCount());
+        assertEquals(2, QuestionFactory.getStatistics().getEvictionCount());
+
+        for (int i = 0; i < 10; i++) {
+            QuestionFactory.getInstance(QuestionType.FREE_RESPONSE, "Question " + i, "Answer " + i);
+        }
+        assertEquals(2, QuestionFactory.getCachedQuestionCount());
+        assertEquals(12, QuestionFactory.getStatistics().getEvictionCount());
+    }
+
+    @Test
+    void getInstance_Concurrent() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        List<Callable<Question>> tasks = new ArrayList<>();
+        for (int i = 0; i < 64; i++) {
+            tasks.add(() -> QuestionFactory.getInstance(QuestionType.FREE_RESPONSE, "What is 5+5?", "10"));
+        }
+
+        try {
+            List<Future<Question>> results = executor.invokeAll(tasks);
+            Question first = results.get(0).get();
+            for (Future<Question> result : results) {
+                assertSame(first, result.get());
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    void getQuestion() {
+        assertEquals(frq.getId(), frqDuplicate.getId());
+        assertEquals(frq.getId(), frq2.getId());
+        assertEquals(mcq.getId(), mcq2.getId());
+        assertNotEquals(frq.getId(), frq3.getId());
+        assertNotEquals(frq.getId(), mcq.getId());
+
+        // IDs are dense, starting from 0
+        assertEquals(4, QuestionFactory.getQuestionIdCount());
+        assertTrue(frq.getId() < 4 && frq3.getId() < 4 && mcq.getId() < 4 && mcq3.getId() < 4);
+
+        assertSame(frq, QuestionFactory.getQuestion(frq.getId()));
+        assertSame(mcq3, QuestionFactory.getQuestion(mcq3.getId()));
+        assertNull(QuestionFactory.getQuestion(4));
+        assertNull(QuestionFactory.getQuestion(-1));
+
+        // A question evicted from the cache keeps its ID when it is created again
+        int id = frq3.getId();
+        QuestionFactory.setMaximumSize(1);
+        Question recreated = QuestionFactory.getInstance(QuestionType.FREE_RESPONSE, "What is 3+3?", "6");
+        assertEquals(id, recreated.getId());
+
+        assertEquals(mcq.getId(), QuestionFactory.getQuestionId(QuestionType.MULTIPLE_CHOICE, mcq.getQuestionText()));
+        int reserved = QuestionFactory.getQuestionId(QuestionType.FREE_RESPONSE, "What is 5+5?");
+        assertEquals(reserved, QuestionFactory.getInstance(QuestionType.FREE_RESPONSE, "What is 5+5?", "10").getId());
+    }
+
+    @Test
+    void getQuestion_FailedConstructionUsesNoId() {
+        int count = QuestionFactory.getQuestionIdCount();
+        assertThrows(IllegalArgumentException.class, () -> QuestionFactory.getInstance(
+                QuestionType.FREE_RESPONSE, "What is 6+6?", ""));
+        assertThrows(IllegalArgumentException.class, () -> QuestionFactory.getInstance(
+                QuestionType.MULTIPLE_CHOICE, "What is 7+7?", Map.of('A', "14"), Set.of('A')));
+        assertEquals(count, QuestionFactory.getQuestionIdCount());
+        assertEquals(count, QuestionFactory.getInstance(QuestionType.FREE_RESPONSE, "What is 6+6?", "12").getId());
+    }
+
+    @Test
+    void findQuestionId() {
+        Question unused = new FreeResponseQuestion("What is 10+10?", "20");
+        int count = QuestionFactory.getQuestionIdCount();
+        assertEquals(-1, QuestionFactory.findQuestionId(unused));
+        assertEquals(count, QuestionFactory.getQuestionIdCount());
+
+        // Once another instance with the same type and text has an ID, it is found without registering this one
+        int id = QuestionFactory.getInstance(QuestionType.FREE_RESPONSE, "What is 10+10?", "20").getId();
+        assertEquals(id, QuestionFactory.findQuestionId(unused));
+        assertEquals(count + 1, QuestionFactory.getQuestionIdCount());
+    }
+
+    @Test
+    void getQuestion_CollectedQuestionRetiresId() throws InterruptedException {
+        QuestionFactory.setMaximumSize(1);
+        int id = QuestionFactory.getInstance(QuestionType.FREE_RESPONSE, "What is 8+8?", "16").getId();
+        QuestionFactory.getInstance(QuestionType.FREE_RESPONSE, "What is 9+9?", "18");
+        for (int i = 0; i < 50 && QuestionFactory.getQuestion(id) != null; i++) {
+            System.gc();
+            Thread.sleep(10);
+        }
+        assertNull(QuestionFactory.getQuestion(id));
+
+        // The key is forgotten once the registry notices, and the question gets a fresh ID when created again
+        QuestionFactory.getQuestionId(QuestionType.FREE_RESPONSE, "Unrelated question");
+        assertNull(QuestionFactory.getQuestionText(id));
+        assertNotEquals(id, QuestionFactory.getInstance(QuestionType.FREE_RESPONSE, "What is 8+8?", "16").getId());
+    }
+}
@@ -0,0 +1,200 @@
+package uk.ac.ncl.advancedjava.quizapi.questions;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * QuestionIdRegistry - assigns every question a stable, dense {@code int} ID (0, 1, 2, ...) and keeps a directory
+ * from IDs back to the interned question instances. IDs are assigned per question key (type and text), so a question
+ * evicted from the {@link QuestionFactory} cache and created again while it is still in use elsewhere keeps its ID.
+ * The directory only holds weak references, so it does not stop evicted questions that are no longer used anywhere
+ * from being garbage collected. Once a question has been collected its key is forgotten and its ID is retired: the
+ * ID is never handed out again, so the answers recorded against it can never be mistaken for another question, and
+ * the registry only holds the keys of questions in use.
+ * An ID can also be reserved for a key before its question is created, when restoring persisted data; the key is
+ * then held until the question is created.
+ *
+ * @author Filip Kovarik - S24039999
+ */
+final class QuestionIdRegistry {
+
+    private static final ConcurrentHashMap<String, Integer> IDS = new ConcurrentHashMap<>();
+    private static final ReferenceQueue<Question> COLLECTED = new ReferenceQueue<>();
+
+    private static volatile Entry[] directory = new Entry[64];
+    private static int nextId;
+
+    /**
+     * Private constructor to prevent instantiation of this utility class.
+     */
+    private QuestionIdRegistry() {}
+
+    /**
+     * Returns the ID for the question with the given key, reserving the next free ID if the key is not in use.
+     *
+     * @param key the question key, as generated by {@link QuestionFactory}
+     * @return the dense ID of the question
+     */
+    static int idOf(String key) {
+        Integer id = IDS.get(key);
+        if (id != null && isHeld(id)) {
+            return id;
+        }
+        synchronized (QuestionIdRegistry.class) {
+            expungeCollected();
+            id = IDS.get(key);
+            if (id == null) {
+                return bind(nextId++, key, null);
+            } else if (!isHeld(id)) {
+                // The question was collected but not yet expunged; reserve the ID again so that it is not retired
+                bind(id, key, null);
+            }
+            return id;
+        }
+    }
+
+    /**
+     * Returns the ID assigned to the given key without assigning one, so that read-only lookups do not use up IDs.
+     *
+     * @param key the question key, as generated by {@link QuestionFactory}
+     * @return the ID of the question, or {@code -1} if the key is not in use
+     */
+    static int find(String key) {
+        Integer id = IDS.get(key);
+        return id == null ? -1 : id;
+    }
+
+    /**
+     * Records the given question as the interned instance for its key, assigning the next free ID if the key is not
+     * in use. A question whose key is already bound to another live instance shares that instance's ID.
+     *
+     * @param question the question to register
+     * @param key      the question key, as generated by {@link QuestionFactory}
+     * @return the ID of the question
+     */
+    static synchronized int register(Question question, String key) {
+        expungeCollected();
+        Integer id = IDS.get(key);
+        if (id == null) {
+            return bind(nextId++, key, question);
+        }
+        if (directory[id].get() == null) {
+            // Reserved, or collected but not yet expunged; either way the ID is free to take over
+            bind(id, key, question);
+        }
+        return id;
+    }
+
+    /**
+     * Checks whether an assigned ID is reserved or its question is still in use.
+     *
+     * @param id the assigned ID
+     * @return {@code true} if the ID will not be retired before its question is next created or collected
+     */
+    private static boolean isHeld(int id) {
+        Entry[] current = directory;
+        Entry entry = id < current.length ? current[id] : null;
+        return entry != null && (entry.reserved || entry.get() != null);
+    }
+
+    /**
+     * Stores a directory entry, growing the directory if needed.
+     *
+     * @param id       the ID
+     * @param key      the question key
+     * @param question the question, or {@code null} to reserve the ID
+     * @return the ID
+     */
+    private static int bind(int id, String key, Question question) {
+        Entry[] current = directory;
+        if (id >= current.length) {
+            current = Arrays.copyOf(current, Math.max(id + 1, current.length * 2));
+        }
+        current[id] = new Entry(question, key, id);
+        IDS.put(key, id);
+        directory = current; // Volatile write publishes the new entry to readers
+        return id;
+    }
+
+    /**
+     * Forgets the keys of questions that have been garbage collected, retiring their IDs. Must be called while
+     * holding the class lock.
+     */
+    private static void expungeCollected() {
+        Reference<? extends Question> reference;
+        while ((reference = COLLECTED.poll()) != null) {
+            Entry entry = (Entry) reference;
+            Entry[] current = directory;
+            if (entry.id < current.length && current[entry.id] == entry) {
+                current[entry.id] = null;
+                IDS.remove(entry.key, entry.id);
+            }
+        }
+    }
+
+    /**
+     * Returns the key the given ID was assigned to.
+     *
+     * @param id the ID of the question
+     * @return the question key, or {@code null} if the ID has not been assigned or has been retired
+     */
+    static String keyOf(int id) {
+        Entry[] current = directory;
+        Entry entry = id < 0 || id >= current.length ? null : current[id];
+        return entry == null ? null : entry.key;
+    }
+
+    /**
+     * Returns the interned question with the given ID.
+     *
+     * @param id the ID of the question
+     * @return the question, or {@code null} if no question with this ID is in use
+     */
+    static Question lookup(int id) {
+        Entry[] current = directory;
+        Entry entry = id < 0 || id >= current.length ? null : current[id];
+        return entry == null ? null : entry.get();
+    }
+
+    /**
+     * Returns the number of IDs assigned so far, including retired ones. Every assigned ID is smaller than this
+     * number.
+     *
+     * @return the number of assigned IDs
+     */
+    static synchronized int size() {
+        return nextId;
+    }
+
+    /**
+     * Forgets all assigned IDs. Intended for use in unit tests through {@link QuestionFactory}.
+     */
+    static synchronized void clear() {
+        IDS.clear();
+        nextId = 0;
+        directory = new Entry[64];
+        while (COLLECTED.poll() != null) {
+            // Entries of the previous directory no longer refer to anything
+        }
+    }
+
+    /**
+     * Entry - a directory entry, weakly referring to the question with an ID and holding its key until the
+     * question is collected.
+     */
+    private static final class Entry extends WeakReference<Question> {
+        final String key;
+        final int id;
+        final boolean reserved;
+
+        Entry(Question question, String key, int id) {
+            super(question, question == null ? null : COLLECTED);
+            this.key = key;
+            this.id = id;
+            this.reserved = question == null;
+        }
+    }
+}
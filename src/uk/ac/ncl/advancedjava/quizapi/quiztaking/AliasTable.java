@@ -0,0 +1,94 @@
+package uk.ac.ncl.advancedjava.quizapi.quiztaking;
+
+import java.util.random.RandomGenerator;
+
+/**
+ * AliasTable - an immutable table for drawing indexes from a discrete probability distribution in O(1) time,
+ * built with Vose's alias method in O(n). Each column holds a probability of keeping its own index and an alias
+ * index to return otherwise.
+ *
+ * @author Filip Kovarik - S24039999
+ */
+final class AliasTable {
+
+    private final double[] probabilities;
+    private final int[] aliases;
+
+    /**
+     * Builds an alias table for the given weights. The probability of drawing index {@code i} is proportional to
+     * {@code weights[i]}. If all weights are zero, indexes are drawn uniformly.
+     *
+     * @param weights the non-negative weights, at least one
+     * @throws IllegalArgumentException if there are no weights or a weight is negative or not finite
+     */
+    AliasTable(double[] weights) {
+        int n = weights.length;
+        if (n == 0) {
+            throw new IllegalArgumentException("An alias table needs at least one weight");
+        }
+        double total = 0;
+        for (double weight : weights) {
+            if (weight < 0 || !Double.isFinite(weight)) {
+                throw new IllegalArgumentException("Weights must be finite and non-negative: " + weight);
+            }
+            total += weight;
+        }
+
+        probabilities = new double[n];
+        aliases = new int[n];
+        double[] scaled = new double[n];
+        int[] small = new int[n];
+        int[] large = new int[n];
+        int smallCount = 0;
+        int largeCount = 0;
+
+        for (int i = 0; i < n; i++) {
+            scaled[i] = total == 0 ? 1.0 : weights[i] * n / total;
+            if (scaled[i] < 1.0) {
+                small[smallCount++] = i;
+            } else {
+                large[largeCount++] = i;
+            }
+        }
+
+        while (smallCount > 0 && largeCount > 0) {
+            int less = small[--smallCount];
+            int more = large[--largeCount];
+            probabilities[less] = scaled[less];
+            aliases[less] = more;
+            scaled[more] = (scaled[more] + scaled[less]) - 1.0;
+            if (scaled[more] < 1.0) {
+                small[smallCount++] = more;
+            } else {
+                large[largeCount++] = more;
+            }
+        }
+        // Whatever is left is 1.0 up to rounding errors
+        while (largeCount > 0) {
+            probabilities[large[--largeCount]] = 1.0;
+        }
+        while (smallCount > 0) {
+            probabilities[small[--smallCount]] = 1.0;
+        }
+    }
+
+    /**
+     * Draws a random index according to the weights the table was built from.
+     *
+     * @param random the source of randomness
+     * @return an index between 0 (inclusive) and the number of weights (exclusive)
+     */
+    int sample(RandomGenerator random) {
+        int column = random.nextInt(probabilities.length);
+        return random.nextDouble() < probabilities[column] ? column : aliases[column];
+    }
+
+    /**
+     * Returns the number of weights the table was built from.
+     *
+     * @return the size of the table
+     */
+    int size() {
+        return probabilities.length;
+    }
+}
@@ -0,0 +1,45 @@
+package uk.ac.ncl.advancedjava.quizapi.quiztaking;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AliasTableTest {
+
+    @Test
+    void sample() {
+        AliasTable table = new AliasTable(new double[]{1, 0, 3, 4});
+        SplittableRandom random = new SplittableRandom(7);
+        int[] counts = new int[4];
+        int draws = 80_000;
+        for (int i = 0; i < draws; i++) {
+            counts[table.sample(random)]++;
+        }
+
+        assertEquals(4, table.size());
+        assertEquals(0, counts[1]);
+        assertEquals(draws / 8.0, counts[0], draws * 0.01);
+        assertEquals(draws * 3 / 8.0, counts[2], draws * 0.01);
+        assertEquals(draws / 2.0, counts[3], draws * 0.01);
+    }
+
+    @Test
+    void sample_AllZeroWeights() {
+        AliasTable table = new AliasTable(new double[]{0, 0});
+        SplittableRandom random = new SplittableRandom(7);
+        int[] counts = new int[2];
+        for (int i = 0; i < 10_000; i++) {
+            counts[table.sample(random)]++;
+        }
+        assertTrue(counts[0] > 0 && counts[1] > 0);
+    }
+
+    @Test
+    void constructor() {
+        assertThrowsExactly(IllegalArgumentException.class, () -> new AliasTable(new double[0]));
+        assertThrowsExactly(IllegalArgumentException.class, () -> new AliasTable(new double[]{1, -1}));
+        assertThrowsExactly(IllegalArgumentException.class, () -> new AliasTable(new double[]{1, Double.NaN}));
+    }
+}
@@ -0,0 +1,116 @@
+package uk.ac.ncl.advancedjava.quizapi.quiztaking;
+
+import uk.ac.ncl.advancedjava.quizapi.questions.Question;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * AnswerSheet - holds a student's answers to a quiz by position, so the answer at index {@code i} belongs to the
+ * question at index {@code i} of the quiz. A sheet is created for a specific quiz and has one slot per question;
+ * unanswered questions are left as {@code null}.
+ * Answers are graded by walking the quiz and the sheet side by side, without hashing the questions.
+ *
+ * @author Filip Kovarik - S24039999
+ */
+public final class AnswerSheet {
+
+    private final Quiz quiz;
+    private final String[] answers;
+
+    /**
+     * Constructs an empty answer sheet for the given quiz.
+     *
+     * @param quiz the quiz the answers belong to
+     */
+    public AnswerSheet(Quiz quiz) {
+        this.quiz = Objects.requireNonNull(quiz);
+        this.answers = new String[quiz.size()];
+    }
+
+    /**
+     * Constructs an answer sheet for the given quiz filled with the given answers, in the order of the questions.
+     *
+     * @param quiz    the quiz the answers belong to
+     * @param answers the answers to the questions of the quiz, {@code null} for unanswered questions
+     * @throws IllegalArgumentException if the number of answers does not match the number of questions
+     */
+    public AnswerSheet(Quiz quiz, String... answers) {
+        this.quiz = Objects.requireNonNull(quiz);
+        if (answers.length != quiz.size()) {
+            throw new IllegalArgumentException("Expected " + quiz.size() + " answers, got " + answers.length);
+        }
+        this.answers = answers.clone();
+    }
+
+    /**
+     * Creates an answer sheet for the given quiz from answers keyed by question. Answers to questions that are not
+     * in the quiz are discarded.
+     *
+     * @param quiz           the quiz the answers belong to
+     * @param studentAnswers a map of the student's answers, keyed by the questions
+     * @return the answer sheet
+     */
+    static AnswerSheet fromMap(Quiz quiz, Map<Question, String> studentAnswers) {
+        AnswerSheet answerSheet = new AnswerSheet(quiz);
+        for (int i = 0; i < answerSheet.answers.length; i++) {
+            answerSheet.answers[i] = studentAnswers.get(quiz.getQuestion(i));
+        }
+        return answerSheet;
+    }
+
+    /**
+     * Records the answer to the question at the given position.
+     *
+     * @param index  the position of the question in the quiz, starting at 0
+     * @param answer the answer, or {@code null} to clear it
+     * @throws IndexOutOfBoundsException if the index is negative or not less than {@link #size()}
+     */
+    public void setAnswer(int index, String answer) {
+        Objects.checkIndex(index, answers.length);
+        answers[index] = answer;
+    }
+
+    /**
+     * Returns the answer to the question at the given position.
+     *
+     * @param index the position of the question in the quiz, starting at 0
+     * @return the answer, or {@code null} if the question has not been answered
+     * @throws IndexOutOfBoundsException if the index is negative or not less than {@link #size()}
+     */
+    public String getAnswer(int index) {
+        Objects.checkIndex(index, answers.length);
+        return answers[index];
+    }
+
+    /**
+     * Returns the quiz the answers belong to.
+     *
+     * @return the quiz
+     */
+    public Quiz getQuiz() {
+        return quiz;
+    }
+
+    /**
+     * Returns the number of answer slots, which is the number of questions in the quiz.
+     *
+     * @return the size of the sheet
+     */
+    public int size() {
+        return answers.length;
+    }
+
+    /**
+     * Returns a string representation of the answer sheet.
+     *
+     * @return a string representation of the answers
+     */
+    @Override
+    public String toString() {
+        return "AnswerSheet{" +
+                "answers=" + Arrays.toString(answers) +
+                '}';
+    }
+}
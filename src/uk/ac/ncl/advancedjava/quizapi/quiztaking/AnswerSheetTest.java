@@ -0,0 +1,74 @@
+package uk.ac.ncl.advancedjava.quizapi.quiztaking;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import uk.ac.ncl.advancedjava.quizapi.questions.Question;
+import uk.ac.ncl.advancedjava.quizapi.questions.QuestionFactory;
+import uk.ac.ncl.advancedjava.quizapi.questions.QuestionType;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AnswerSheetTest {
+
+    Question frq1, mcq1;
+    Quiz quiz;
+
+    @BeforeEach
+    void setUp() {
+        frq1 = QuestionFactory.getInstance(
+                QuestionType.FREE_RESPONSE,
+                "What is the capital of France?",
+                "Paris"
+        );
+        mcq1 = QuestionFactory.getInstance(
+                QuestionType.MULTIPLE_CHOICE,
+                "Select correct options (A)",
+                Map.of('A', "correct", 'B', "incorrect", 'C', "incorrect"),
+                Set.of('A')
+        );
+        quiz = new Quiz(List.of(frq1, mcq1));
+    }
+
+    @AfterEach
+    void tearDown() {
+        frq1 = null;
+        mcq1 = null;
+        quiz = null;
+    }
+
+    @Test
+    void setAndGetAnswer() {
+        AnswerSheet answerSheet = new AnswerSheet(quiz);
+        assertEquals(2, answerSheet.size());
+        assertSame(quiz, answerSheet.getQuiz());
+        assertNull(answerSheet.getAnswer(0));
+
+        answerSheet.setAnswer(1, "a");
+        assertEquals("a", answerSheet.getAnswer(1));
+        assertThrows(IndexOutOfBoundsException.class, () -> answerSheet.setAnswer(2, "b"));
+        assertThrows(IndexOutOfBoundsException.class, () -> answerSheet.getAnswer(-1));
+    }
+
+    @Test
+    void constructWithAnswers() {
+        String[] answers = {"Paris", "a"};
+        AnswerSheet answerSheet = new AnswerSheet(quiz, answers);
+        answers[0] = "London";
+        assertEquals("Paris", answerSheet.getAnswer(0));
+
+        assertThrowsExactly(IllegalArgumentException.class, () -> new AnswerSheet(quiz, "Paris"));
+    }
+
+    @Test
+    void fromMap() {
+        AnswerSheet answerSheet = AnswerSheet.fromMap(quiz, Map.of(mcq1, "a"));
+        assertNull(answerSheet.getAnswer(0));
+        assertEquals("a", answerSheet.getAnswer(1));
+        assertEquals("AnswerSheet{answers=[null, a]}", answerSheet.toString());
+    }
+}
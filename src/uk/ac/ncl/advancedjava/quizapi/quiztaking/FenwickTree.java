@@ -0,0 +1,99 @@
+package uk.ac.ncl.advancedjava.quizapi.quiztaking;
+
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * FenwickTree - a binary indexed tree of counts over a fixed number of buckets, supporting point updates, prefix
+ * sums and searches for the bucket holding the k-th smallest element, each in O(log n).
+ * The cells are updated atomically, so concurrent updates are never lost and queries do not lock; a query that runs
+ * during an update may or may not see it.
+ *
+ * @author Filip Kovarik - S24039999
+ */
+final class FenwickTree {
+
+    private final AtomicLongArray tree; // 1-based, cell i covers the (i & -i) buckets ending at bucket i - 1
+    private final int size;
+
+    /**
+     * Constructs a tree with all counts zero.
+     *
+     * @param size the number of buckets
+     * @throws IllegalArgumentException if the size is not positive
+     */
+    FenwickTree(int size) {
+        if (size < 1) {
+            throw new IllegalArgumentException("A Fenwick tree needs at least one bucket");
+        }
+        this.tree = new AtomicLongArray(size + 1);
+        this.size = size;
+    }
+
+    /**
+     * Adds to the count of a bucket.
+     *
+     * @param bucket the bucket, from 0 to {@code size() - 1}
+     * @param delta  the amount to add, negative to remove
+     * @throws IndexOutOfBoundsException if the bucket is out of range
+     */
+    void add(int bucket, long delta) {
+        for (int i = Objects.checkIndex(bucket, size) + 1; i <= size; i += i & -i) {
+            tree.getAndAdd(i, delta);
+        }
+    }
+
+    /**
+     * Returns the total count of the buckets before the given one.
+     *
+     * @param bucket the end of the prefix, exclusive, from 0 to {@code size()}
+     * @return the sum of the counts of buckets {@code 0} to {@code bucket - 1}
+     */
+    long prefixSum(int bucket) {
+        long sum = 0;
+        for (int i = Math.min(bucket, size); i > 0; i -= i & -i) {
+            sum += tree.get(i);
+        }
+        return sum;
+    }
+
+    /**
+     * Returns the total count of all buckets.
+     *
+     * @return the total count
+     */
+    long total() {
+        return prefixSum(size);
+    }
+
+    /**
+     * Finds the bucket holding the k-th smallest element, counting from 1, by descending the tree.
+     *
+     * @param k the position of the element in ascending order
+     * @return the bucket of the element, or {@code size()} if the tree holds fewer than {@code k} elements
+     */
+    int search(long k) {
+        int position = 0;
+        long remaining = k;
+        for (int step = Integer.highestOneBit(size); step > 0; step >>>= 1) {
+            int next = position + step;
+            if (next <= size) {
+                long count = tree.get(next);
+                if (count < remaining) {
+                    position = next;
+                    remaining -= count;
+                }
+            }
+        }
+        return position;
+    }
+
+    /**
+     * Returns the number of buckets.
+     *
+     * @return the size of the tree
+     */
+    int size() {
+        return size;
+    }
+}
@@ -0,0 +1,65 @@
+package uk.ac.ncl.advancedjava.quizapi.quiztaking;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FenwickTreeTest {
+
+    @Test
+    void prefixSum() {
+        FenwickTree tree = new FenwickTree(5);
+        tree.add(0, 2);
+        tree.add(2, 3);
+        tree.add(4, 1);
+        tree.add(2, -1);
+
+        assertEquals(0, tree.prefixSum(0));
+        assertEquals(2, tree.prefixSum(1));
+        assertEquals(2, tree.prefixSum(2));
+        assertEquals(4, tree.prefixSum(3));
+        assertEquals(5, tree.prefixSum(5));
+        assertEquals(5, tree.total());
+        assertThrows(IndexOutOfBoundsException.class, () -> tree.add(5, 1));
+        assertThrows(IllegalArgumentException.class, () -> new FenwickTree(0));
+    }
+
+    @Test
+    void search() {
+        FenwickTree tree = new FenwickTree(5);
+        tree.add(0, 2);
+        tree.add(2, 2);
+        tree.add(4, 1);
+
+        assertEquals(0, tree.search(1));
+        assertEquals(0, tree.search(2));
+        assertEquals(2, tree.search(3));
+        assertEquals(2, tree.search(4));
+        assertEquals(4, tree.search(5));
+        assertEquals(5, tree.search(6));
+    }
+
+    @Test
+    void search_MatchesNaiveCounts() {
+        Random random = new Random(42);
+        int size = 101;
+        long[] counts = new long[size];
+        FenwickTree tree = new FenwickTree(size);
+        for (int i = 0; i < 1000; i++) {
+            int bucket = random.nextInt(size);
+            counts[bucket]++;
+            tree.add(bucket, 1);
+        }
+
+        long seen = 0;
+        for (int bucket = 0; bucket < size; bucket++) {
+            assertEquals(seen, tree.prefixSum(bucket));
+            for (long k = seen + 1; k <= seen + counts[bucket]; k++) {
+                assertEquals(bucket, tree.search(k));
+            }
+            seen += counts[bucket];
+        }
+    }
+}
@@ -0,0 +1,195 @@
+package uk.ac.ncl.advancedjava.quizapi.quiztaking;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * FileStatisticsStore - a {@link StatisticsStore} that keeps the records in slots of a single file and the slot of
+ * each student in memory. Records are written and read with positional I/O, so reads and writes of different students
+ * do not block each other.
+ * A new record overwrites the student's previous one in place when it fits the slot. Slots are sized to the next
+ * power of two, so a history growing one answer at a time only moves every so often; a slot that is outgrown is
+ * handed to the next record needing one of its size, so the file stays in proportion to the records it holds rather
+ * than to the number of writes.
+ * The file is a paging file for the current run: it is emptied when the store is opened.
+ *
+ * @author Filip Kovarik - S24039999
+ */
+public final class FileStatisticsStore implements StatisticsStore, AutoCloseable {
+
+    private static final int MINIMUM_SLOT_CAPACITY = 64;
+
+    private final Path path;
+    private final FileChannel channel;
+    private final ConcurrentHashMap<Student, Slot> slots = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Integer, Queue<Long>> freeSlots = new ConcurrentHashMap<>();
+    private final AtomicInteger recordCount = new AtomicInteger();
+    private final AtomicLong end = new AtomicLong();
+
+    /**
+     * Private constructor, stores are opened with {@link #open(Path)}.
+     *
+     * @param path    the path of the file
+     * @param channel the channel of the empty file
+     */
+    private FileStatisticsStore(Path path, FileChannel channel) {
+        this.path = path;
+        this.channel = channel;
+    }
+
+    /**
+     * Opens a store backed by the file at the given path, creating the file or emptying it if it exists.
+     *
+     * @param path the path of the file
+     * @return the open store
+     * @throws IOException if the file cannot be opened
+     */
+    public static FileStatisticsStore open(Path path) throws IOException {
+        return new FileStatisticsStore(path, FileChannel.open(path, StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING));
+    }
+
+    /**
+     * Writes the record into the student's slot, moving the student to a larger slot if it does not fit.
+     *
+     * @param student the student
+     * @param record  the record
+     * @throws IOException if the record cannot be written
+     */
+    @Override
+    public void write(Student student, ByteBuffer record) throws IOException {
+        int length = record.remaining();
+        Slot slot = slots.computeIfAbsent(student, key -> new Slot());
+        synchronized (slot) {
+            if (length > slot.capacity) {
+                int capacity = capacityFor(length);
+                long offset = allocate(capacity);
+                writeFully(record, offset);
+                if (slot.capacity > 0) {
+                    // Nobody can be reading the old slot, since reads of this student also hold the slot's lock
+                    freeSlots.computeIfAbsent(slot.capacity, key -> new ConcurrentLinkedQueue<>()).offer(slot.offset);
+                }
+                slot.offset = offset;
+                slot.capacity = capacity;
+            } else {
+                writeFully(record, slot.offset);
+            }
+            if (slot.length < 0) {
+                recordCount.incrementAndGet();
+            }
+            slot.length = length;
+        }
+    }
+
+    /**
+     * Reads the latest record of the student from the file.
+     *
+     * @param student the student
+     * @return the record, or {@code null} if none has been stored
+     * @throws IOException if the record cannot be read
+     */
+    @Override
+    public ByteBuffer read(Student student) throws IOException {
+        Slot slot = slots.get(student);
+        if (slot == null) {
+            return null;
+        }
+        synchronized (slot) {
+            if (slot.length < 0) {
+                return null;
+            }
+            ByteBuffer record = ByteBuffer.allocate(slot.length);
+            for (long position = slot.offset; record.hasRemaining(); ) {
+                int read = channel.read(record, position);
+                if (read < 0) {
+                    throw new IOException("The statistics store " + path + " was truncated");
+                }
+                position += read;
+            }
+            return record.flip();
+        }
+    }
+
+    /**
+     * Returns the capacity of the slot for a record: the next power of two, at least {@link #MINIMUM_SLOT_CAPACITY}.
+     *
+     * @param length the length of the record
+     * @return the slot capacity
+     */
+    private static int capacityFor(int length) {
+        if (length > 1 << 30) {
+            return length;
+        }
+        return Math.max(MINIMUM_SLOT_CAPACITY, Integer.highestOneBit(length - 1) << 1);
+    }
+
+    /**
+     * Takes a free slot of the given capacity, or appends a new one to the file.
+     *
+     * @param capacity the slot capacity
+     * @return the offset of the slot
+     */
+    private long allocate(int capacity) {
+        Queue<Long> free = freeSlots.get(capacity);
+        Long offset = free == null ? null : free.poll();
+        return offset != null ? offset : end.getAndAdd(capacity);
+    }
+
+    /**
+     * Writes the whole of a buffer to the file.
+     *
+     * @param record   the buffer
+     * @param position the position in the file
+     * @throws IOException if the buffer cannot be written
+     */
+    private void writeFully(ByteBuffer record, long position) throws IOException {
+        while (record.hasRemaining()) {
+            position += channel.write(record, position);
+        }
+    }
+
+    /**
+     * Returns the number of students with a stored record.
+     *
+     * @return the number of records
+     */
+    public int size() {
+        return recordCount.get();
+    }
+
+    /**
+     * Returns the path of the file backing the store.
+     *
+     * @return the path of the file
+     */
+    public Path getPath() {
+        return path;
+    }
+
+    /**
+     * Closes the file. Records can no longer be read or written.
+     *
+     * @throws IOException if the file cannot be closed
+     */
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    /**
+     * Slot - the region of the file holding a student's record. Guarded by its own lock.
+     */
+    private static final class Slot {
+        long offset;
+        int capacity;
+        int length = -1;
+    }
+}
@@ -0,0 +1,150 @@
+package uk.ac.ncl.advancedjava.quizapi.quiztaking;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import uk.ac.ncl.advancedjava.quizapi.questions.Question;
+import uk.ac.ncl.advancedjava.quizapi.questions.QuestionFactory;
+import uk.ac.ncl.advancedjava.quizapi.questions.QuestionType;
+
+import java.lang.reflect.Field;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FileStatisticsStoreTest {
+
+    Path path;
+    FileStatisticsStore store;
+    Question frq1, frq2;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        path = Files.createTempFile("statistics", ".store");
+        store = FileStatisticsStore.open(path);
+        frq1 = QuestionFactory.getInstance(QuestionType.FREE_RESPONSE, "What is the largest ocean?", "Pacific");
+        frq2 = QuestionFactory.getInstance(QuestionType.FREE_RESPONSE, "What is the smallest continent?",
+                "Australia");
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        StudentStatistics.setStatisticsStore(null, 0);
+        Field field = StudentStatistics.class.getDeclaredField("ALLSTUDENTSTATISTICS");
+        field.setAccessible(true);
+        ((Map<?, ?>) field.get(null)).clear();
+        store.close();
+        Files.deleteIfExists(path);
+        path = null;
+        store = null;
+        frq1 = null;
+        frq2 = null;
+    }
+
+    @Test
+    void writeAndRead() throws Exception {
+        Student carol = Student.getInstance("Carol", "Store", LocalDate.of(2000, 2, 2));
+        Student dave = Student.getInstance("Dave", "Store", LocalDate.of(2000, 3, 3));
+        assertNull(store.read(carol));
+
+        store.write(carol, ByteBuffer.wrap(new byte[]{1, 2, 3}));
+        store.write(dave, ByteBuffer.wrap(new byte[]{4}));
+        store.write(carol, ByteBuffer.wrap(new byte[]{5, 6}));
+
+        assertEquals(ByteBuffer.wrap(new byte[]{5, 6}), store.read(carol));
+        assertEquals(ByteBuffer.wrap(new byte[]{4}), store.read(dave));
+        assertEquals(2, store.size());
+    }
+
+    @Test
+    void write_ReusesSlots() throws Exception {
+        Student carol = Student.getInstance("Carol", "Store", LocalDate.of(2000, 2, 2));
+        Student dave = Student.getInstance("Dave", "Store", LocalDate.of(2000, 3, 3));
+
+        // Records that fit the slot overwrite it in place
+        for (int i = 1; i <= 64; i++) {
+            store.write(carol, ByteBuffer.wrap(new byte[i]));
+        }
+        assertEquals(64, Files.size(path));
+
+        // Carol outgrows her slot, and Dave takes it over
+        store.write(carol, ByteBuffer.wrap(new byte[100]));
+        long size = Files.size(path);
+        store.write(dave, ByteBuffer.wrap(new byte[]{7}));
+        assertEquals(size, Files.size(path));
+        assertEquals(ByteBuffer.wrap(new byte[100]), store.read(carol));
+        assertEquals(ByteBuffer.wrap(new byte[]{7}), store.read(dave));
+        assertEquals(2, store.size());
+    }
+
+    @Test
+    void setStatisticsStore_PagesHistoriesOut() throws Exception {
+        StudentStatistics.setStatisticsStore(store, 2);
+        assertSame(store, StudentStatistics.getStatisticsStore());
+        assertThrows(IllegalArgumentException.class, () -> StudentStatistics.setStatisticsStore(store, 0));
+
+        List<StudentStatistics> statistics = new ArrayList<>();
+        for (int i = 0; i < 6; i++) {
+            StudentStatistics stats = StudentStatistics.getInstance(
+                    Student.getInstance("Pager" + i, "Store", LocalDate.of(2000, 1, 1 + i)));
+            stats.takeQuiz(new AnswerSheet(new Quiz(List.of(frq1, frq2)), "Pacific", i % 2 == 0 ? "Australia" : "?"));
+            statistics.add(stats);
+        }
+
+        long deadline = System.nanoTime() + 5_000_000_000L;
+        while ((StudentStatistics.getResidentCount() > 2 || store.size() < 4) && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertTrue(StudentStatistics.getResidentCount() <= 2);
+        assertTrue(store.size() >= 4);
+
+        // Paged-out histories are read back on demand
+        for (int i = 0; i < 6; i++) {
+            Map<Question, Boolean> history = statistics.get(i).getQuestionHistory();
+            assertEquals(2, history.size());
+            assertTrue(history.get(frq1));
+            assertEquals(i % 2 == 0, history.get(frq2));
+        }
+
+        // Removing the store reads every history back onto the heap
+        StudentStatistics.setStatisticsStore(null, 0);
+        assertNull(StudentStatistics.getStatisticsStore());
+        store.close();
+        assertEquals(2, statistics.get(0).getQuestionHistory().size());
+        assertEquals(1f, statistics.get(0).getAttemptedRegularQuizzes().values().iterator().next());
+    }
+
+    @Test
+    void setStatisticsStore_RemovedWhilePaging() throws Exception {
+        StudentStatistics.setStatisticsStore(store, 1);
+        List<StudentStatistics> statistics = new ArrayList<>();
+        for (int i = 0; i < 3000; i++) {
+            StudentStatistics stats = StudentStatistics.getInstance(
+                    Student.getInstance("Busy" + i, "Store", LocalDate.of(2000, 1, 1)));
+            stats.takeQuiz(new AnswerSheet(new Quiz(List.of(frq1, frq2)), "Pacific", "?"));
+            statistics.add(stats);
+        }
+        // The pager is still writing and evicting when the store is removed, which must not close the file
+        Thread.sleep(20);
+        StudentStatistics.setStatisticsStore(null, 0);
+        for (StudentStatistics stats : statistics) {
+            assertEquals(Map.of(frq1, true, frq2, false), stats.getQuestionHistory());
+        }
+        assertEquals(ByteBuffer.wrap(new byte[]{1}), writeAndReadBack());
+    }
+
+    /**
+     * Checks that the store can still be written and read.
+     */
+    private ByteBuffer writeAndReadBack() throws Exception {
+        Student probe = Student.getInstance("Probe", "Store", LocalDate.of(2000, 4, 4));
+        store.write(probe, ByteBuffer.wrap(new byte[]{1}));
+        return store.read(probe);
+    }
+}
@@ -0,0 +1,85 @@
+package uk.ac.ncl.advancedjava.quizapi.quiztaking;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * FileWindow - reads a file of any size through read-only memory mappings, since a single mapping cannot be larger
+ * than 2 GiB. A slice covers a contiguous range of the file; when the range does not fit in the current mapping, a
+ * new one is mapped starting at the range, so a file read from front to back is mapped about once per window.
+ *
+ * @author Filip Kovarik - S24039999
+ */
+final class FileWindow {
+
+    /**
+     * The default size of a mapping, which leaves room for ranges of up to 1 GiB beyond it.
+     */
+    static final int DEFAULT_WINDOW_SIZE = 1 << 30;
+
+    private final FileChannel channel;
+    private final long size;
+    private final int windowSize;
+    private ByteBuffer window;
+    private long windowStart;
+
+    /**
+     * Constructs a reader of the whole file with mappings of the default size.
+     *
+     * @param channel the channel of the file
+     * @throws IOException if the size of the file cannot be read
+     */
+    FileWindow(FileChannel channel) throws IOException {
+        this(channel, DEFAULT_WINDOW_SIZE);
+    }
+
+    /**
+     * Constructs a reader of the whole file.
+     *
+     * @param channel    the channel of the file
+     * @param windowSize the size of a mapping; longer ranges get a mapping of their own
+     * @throws IOException if the size of the file cannot be read
+     * @throws IllegalArgumentException if the window size is not positive
+     */
+    FileWindow(FileChannel channel, int windowSize) throws IOException {
+        if (windowSize < 1) {
+            throw new IllegalArgumentException("The window size must be positive");
+        }
+        this.channel = channel;
+        this.size = channel.size();
+        this.windowSize = windowSize;
+    }
+
+    /**
+     * Returns the size of the file when the reader was constructed.
+     *
+     * @return the size of the file in bytes
+     */
+    long size() {
+        return size;
+    }
+
+    /**
+     * Returns a range of the file, mapping it if it is not in the current mapping. The slice stays valid after the
+     * window moves on.
+     *
+     * @param position the position of the range in the file
+     * @param length   the length of the range
+     * @return a buffer holding the range, positioned at its start
+     * @throws IndexOutOfBoundsException if the range is not within the file
+     * @throws IOException if the file cannot be mapped
+     */
+    ByteBuffer slice(long position, int length) throws IOException {
+        if (position < 0 || length < 0 || position > size - length) {
+            throw new IndexOutOfBoundsException("Range " + position + "+" + length + " is outside the file of "
+                    + size + " bytes");
+        }
+        if (window == null || position < windowStart || position + length > windowStart + window.capacity()) {
+            window = channel.map(FileChannel.MapMode.READ_ONLY, position,
+                    Math.min(size - position, Math.max(windowSize, length)));
+            windowStart = position;
+        }
+        return window.slice((int) (position - windowStart), length);
+    }
+}
@@ -0,0 +1,75 @@
+package uk.ac.ncl.advancedjava.quizapi.quiztaking;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FileWindowTest {
+
+    Path path;
+    FileChannel channel;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        path = Files.createTempFile("window", ".bin");
+        byte[] bytes = new byte[1000];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = (byte) i;
+        }
+        Files.write(path, bytes);
+        channel = FileChannel.open(path, StandardOpenOption.READ);
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        channel.close();
+        Files.deleteIfExists(path);
+        channel = null;
+        path = null;
+    }
+
+    @Test
+    void slice() throws Exception {
+        FileWindow file = new FileWindow(channel, 64);
+        assertEquals(1000, file.size());
+
+        // Ranges within the window, straddling its end, and longer than a window
+        ByteBuffer first = file.slice(10, 20);
+        ByteBuffer straddling = file.slice(60, 10);
+        ByteBuffer longer = file.slice(100, 200);
+        ByteBuffer earlier = file.slice(0, 4);
+        assertRange(10, 20, first);
+        assertRange(60, 10, straddling);
+        assertRange(100, 200, longer);
+        assertRange(0, 4, earlier);
+        assertRange(996, 4, file.slice(996, 4));
+        assertEquals(0, file.slice(1000, 0).remaining());
+    }
+
+    @Test
+    void slice_OutsideFile() throws Exception {
+        FileWindow file = new FileWindow(channel, 64);
+        assertThrows(IndexOutOfBoundsException.class, () -> file.slice(990, 20));
+        assertThrows(IndexOutOfBoundsException.class, () -> file.slice(-1, 4));
+        assertThrows(IndexOutOfBoundsException.class, () -> file.slice(0, -1));
+        assertThrows(IllegalArgumentException.class, () -> new FileWindow(channel, 0));
+    }
+
+    /**
+     * Checks that a slice holds the given range of the file written by {@link #setUp()}.
+     */
+    private static void assertRange(int position, int length, ByteBuffer slice) {
+        assertEquals(length, slice.remaining());
+        for (int i = 0; i < length; i++) {
+            assertEquals((byte) (position + i), slice.get(i));
+        }
+    }
+}
@@ -0,0 +1,190 @@
+package uk.ac.ncl.advancedjava.quizapi.quiztaking;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * GradingPipeline - grades quiz submissions asynchronously, so the threads that receive submissions are released
+ * straight away and grading catches up in the background.
+ * Submissions are spread over a fixed number of worker threads by student, and each worker grades its submissions
+ * in the order they were made, so the submissions of one student are always graded in order. Different students are
+ * graded in parallel.
+ * <p>
+ * The pipeline is bounded. It accepts at most a given number of submissions that are waiting or being graded, and
+ * rejects further submissions with a {@link RejectedExecutionException} until some of them are done, so a burst of
+ * submissions pushes back on the callers instead of queueing without limit.
+ *
+ * @author Filip Kovarik - S24039999
+ */
+public final class GradingPipeline implements AutoCloseable {
+
+    private final ExecutorService[] workers;
+    private final Semaphore capacity;
+    private final int maximumPending;
+    private volatile boolean closed;
+
+    /**
+     * Constructs a grading pipeline with one worker per available processor.
+     *
+     * @param maximumPending the maximum number of submissions waiting or being graded
+     * @throws IllegalArgumentException if the maximum number of submissions is not positive
+     */
+    public GradingPipeline(int maximumPending) {
+        this(Runtime.getRuntime().availableProcessors(), maximumPending);
+    }
+
+    /**
+     * Constructs a grading pipeline with the given number of workers. When submissions are written to a
+     * {@link SubmissionLog}, each worker waits for its submission to be durable, so more workers than processors
+     * let more submissions share each group commit.
+     *
+     * @param workerCount    the number of worker threads
+     * @param maximumPending the maximum number of submissions waiting or being graded
+     * @throws IllegalArgumentException if the number of workers or the maximum number of submissions is not positive
+     */
+    public GradingPipeline(int workerCount, int maximumPending) {
+        if (workerCount < 1) {
+            throw new IllegalArgumentException("The number of workers must be positive");
+        } else if (maximumPending < 1) {
+            throw new IllegalArgumentException("The maximum number of pending submissions must be positive");
+        }
+        this.workers = new ExecutorService[workerCount];
+        for (int i = 0; i < workerCount; i++) {
+            String name = "grading-worker-" + i;
+            workers[i] = Executors.newSingleThreadExecutor(task -> {
+                Thread thread = new Thread(task, name);
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        this.capacity = new Semaphore(maximumPending);
+        this.maximumPending = maximumPending;
+    }
+
+    /**
+     * Queues a regular quiz for grading, as {@link StudentStatistics#takeQuiz(AnswerSheet)} would grade it.
+     *
+     * @param statistics  the statistics of the student taking the quiz
+     * @param answerSheet the student's answers to the quiz
+     * @return a future completed with the score, or exceptionally with the exception thrown while grading
+     * @throws RejectedExecutionException if the pipeline is full
+     * @throws IllegalStateException if the pipeline is closed
+     */
+    public CompletableFuture<Float> submitQuiz(StudentStatistics statistics, AnswerSheet answerSheet) {
+        return submit(statistics, answerSheet, false);
+    }
+
+    /**
+     * Queues a revision quiz for grading, as {@link StudentStatistics#takeRevisionQuiz(AnswerSheet)} would grade it.
+     *
+     * @param statistics  the statistics of the student taking the quiz
+     * @param answerSheet the student's answers to the revision quiz
+     * @return a future completed with the score, or exceptionally with the exception thrown while grading
+     * @throws RejectedExecutionException if the pipeline is full
+     * @throws IllegalStateException if the pipeline is closed
+     */
+    public CompletableFuture<Float> submitRevisionQuiz(StudentStatistics statistics, AnswerSheet answerSheet) {
+        return submit(statistics, answerSheet, true);
+    }
+
+    /**
+     * Returns the number of submissions currently waiting or being graded.
+     *
+     * @return the number of pending submissions
+     */
+    public int getPendingCount() {
+        return maximumPending - capacity.availablePermits();
+    }
+
+    /**
+     * Returns the maximum number of submissions that can be waiting or being graded.
+     *
+     * @return the maximum number of pending submissions
+     */
+    public int getMaximumPending() {
+        return maximumPending;
+    }
+
+    /**
+     * Stops accepting submissions and waits until the submissions already accepted have been graded.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        for (ExecutorService worker : workers) {
+            worker.shutdown();
+        }
+        try {
+            for (ExecutorService worker : workers) {
+                worker.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Queues a submission on the worker of its student.
+     *
+     * @param statistics  the statistics of the student taking the quiz
+     * @param answerSheet the student's answers
+     * @param isRevision  whether the quiz is a revision quiz
+     * @return a future completed with the score
+     * @throws RejectedExecutionException if the pipeline is full
+     * @throws IllegalStateException if the pipeline is closed
+     */
+    private CompletableFuture<Float> submit(StudentStatistics statistics, AnswerSheet answerSheet,
+                                            boolean isRevision) {
+        if (closed) {
+            throw new IllegalStateException("The grading pipeline is closed");
+        }
+        if (!capacity.tryAcquire()) {
+            throw new RejectedExecutionException("The grading pipeline is full");
+        }
+        CompletableFuture<Float> score = new CompletableFuture<>();
+        Runnable grading = () -> {
+            float result = 0;
+            Throwable failure = null;
+            try {
+                result = isRevision ? statistics.takeRevisionQuiz(answerSheet) : statistics.takeQuiz(answerSheet);
+            } catch (Throwable e) {
+                failure = e;
+            } finally {
+                // The slot is freed first, so a caller reacting to the score can submit again straight away
+                capacity.release();
+            }
+            if (failure == null) {
+                score.complete(result);
+            } else {
+                score.completeExceptionally(failure);
+                if (failure instanceof Error error) {
+                    // Still reported to the worker's uncaught exception handler
+                    throw error;
+                }
+            }
+        };
+        try {
+            workerOf(statistics.getStudent()).execute(grading);
+        } catch (RejectedExecutionException e) {
+            // The pipeline was closed in the meantime
+            capacity.release();
+            throw new IllegalStateException("The grading pipeline is closed", e);
+        }
+        return score;
+    }
+
+    /**
+     * Returns the worker that grades the submissions of the given student.
+     *
+     * @param student the student
+     * @return the worker of the student
+     */
+    private ExecutorService workerOf(Student student) {
+        int hash = student.hashCode();
+        return workers[Math.floorMod(hash ^ (hash >>> 16), workers.length)];
+    }
+}
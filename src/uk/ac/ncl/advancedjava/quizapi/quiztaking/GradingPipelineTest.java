@@ -0,0 +1,107 @@
+package uk.ac.ncl.advancedjava.quizapi.quiztaking;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import uk.ac.ncl.advancedjava.quizapi.questions.Question;
+import uk.ac.ncl.advancedjava.quizapi.questions.QuestionFactory;
+import uk.ac.ncl.advancedjava.quizapi.questions.QuestionType;
+
+import java.lang.reflect.Field;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GradingPipelineTest {
+
+    GradingPipeline pipeline;
+    Question frq1, frq2;
+    StudentStatistics gregStats;
+
+    @BeforeEach
+    void setUp() {
+        pipeline = new GradingPipeline(4, 16);
+        frq1 = QuestionFactory.getInstance(
+                QuestionType.FREE_RESPONSE,
+                "What is the capital of France?",
+                "Paris"
+        );
+        frq2 = QuestionFactory.getInstance(
+                QuestionType.FREE_RESPONSE,
+                "What is the capital of Czechia?",
+                "Prague"
+        );
+        gregStats = StudentStatistics.getInstance(Student.getInstance("Greg", "Pipeline", LocalDate.of(2002, 5, 5)));
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        pipeline.close();
+        Field field = StudentStatistics.class.getDeclaredField("ALLSTUDENTSTATISTICS");
+        field.setAccessible(true);
+        ((Map<?, ?>) field.get(null)).clear();
+        pipeline = null;
+        frq1 = null;
+        frq2 = null;
+        gregStats = null;
+    }
+
+    @Test
+    void submitQuiz() throws Exception {
+        List<CompletableFuture<Float>> scores = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            StudentStatistics statistics = StudentStatistics.getInstance(
+                    Student.getInstance("Student" + i, "Pipeline", LocalDate.of(2000, 1, 1)));
+            scores.add(pipeline.submitQuiz(statistics, new AnswerSheet(new Quiz(List.of(frq1, frq2)), "Paris", "")));
+        }
+        for (CompletableFuture<Float> score : scores) {
+            assertEquals(0.5f, score.get(10, TimeUnit.SECONDS));
+        }
+        assertEquals(0, pipeline.getPendingCount());
+    }
+
+    @Test
+    void submitQuiz_PerStudentOrder() throws Exception {
+        // Two failed regular quizzes give a final verdict, so the third quiz is only rejected if they are graded first
+        CompletableFuture<Float> first = pipeline.submitQuiz(gregStats,
+                new AnswerSheet(new Quiz(List.of(frq1)), "Lyon"));
+        CompletableFuture<Float> second = pipeline.submitQuiz(gregStats,
+                new AnswerSheet(new Quiz(List.of(frq2)), "Brno"));
+        CompletableFuture<Float> third = pipeline.submitRevisionQuiz(gregStats,
+                new AnswerSheet(new Quiz(List.of(frq1, frq2)), "Paris", "Prague"));
+
+        assertEquals(0f, first.get(10, TimeUnit.SECONDS));
+        assertEquals(0f, second.get(10, TimeUnit.SECONDS));
+        ExecutionException e = assertThrows(ExecutionException.class, () -> third.get(10, TimeUnit.SECONDS));
+        assertInstanceOf(IllegalStateException.class, e.getCause());
+        assertEquals(Verdict.FAIL, gregStats.getFinalVerdict());
+    }
+
+    @Test
+    void submitQuiz_Backpressure() throws Exception {
+        pipeline.close();
+        pipeline = new GradingPipeline(1, 1);
+        CompletableFuture<Float> score;
+        // Holding the student's lock keeps the first submission in the pipeline
+        synchronized (gregStats) {
+            score = pipeline.submitQuiz(gregStats, new AnswerSheet(new Quiz(List.of(frq1)), "Paris"));
+            assertEquals(1, pipeline.getPendingCount());
+            assertThrows(RejectedExecutionException.class, () ->
+                    pipeline.submitQuiz(gregStats, new AnswerSheet(new Quiz(List.of(frq2)), "Prague")));
+        }
+        assertEquals(1f, score.get(10, TimeUnit.SECONDS));
+
+        pipeline.close();
+        assertThrows(IllegalStateException.class, () ->
+                pipeline.submitQuiz(gregStats, new AnswerSheet(new Quiz(List.of(frq2)), "Prague")));
+        assertThrows(IllegalArgumentException.class, () -> new GradingPipeline(0, 1));
+        assertThrows(IllegalArgumentException.class, () -> new GradingPipeline(1, 0));
+    }
+}
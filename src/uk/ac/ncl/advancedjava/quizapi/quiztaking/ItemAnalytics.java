@@ -0,0 +1,254 @@
+package uk.ac.ncl.advancedjava.quizapi.quiztaking;
+
+import uk.ac.ncl.advancedjava.quizapi.questions.OptionableQuestion;
+import uk.ac.ncl.advancedjava.quizapi.questions.Question;
+import uk.ac.ncl.advancedjava.quizapi.questions.QuestionFactory;
+
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * ItemAnalytics - collects cohort-wide statistics for individual questions (items) as answers are graded -
+ * how many times each question was attempted, how many of those attempts were correct, and for multiple-choice
+ * questions how many times each option was selected.
+ * Counters are keyed by question ID and backed by {@link LongAdder}s, so concurrent graders do not contend and
+ * the statistics can be read at any time without locking.
+ *
+ * @author Filip Kovarik - S24039999
+ */
+public final class ItemAnalytics {
+
+    private static final int OPTION_COUNT = 26;
+    private static final ConcurrentHashMap<Integer, Item> ITEMS = new ConcurrentHashMap<>();
+
+    /**
+     * Private constructor to prevent instantiation of this utility class.
+     */
+    private ItemAnalytics() {}
+
+    /**
+     * Records a graded answer to the question with the given ID.
+     *
+     * @param questionId the ID of the answered question
+     * @param isCorrect  {@code true} if the answer was correct, {@code false} otherwise
+     */
+    static void recordAnswer(int questionId, boolean isCorrect) {
+        Item item = item(questionId);
+        item.attempts.increment();
+        if (isCorrect) {
+            item.correct.increment();
+        }
+    }
+
+    /**
+     * Records the options selected in a graded answer to the question with the given ID.
+     *
+     * @param questionId      the ID of the answered question
+     * @param selectedOptions the bitmask of the selected options, as returned by
+     *                        {@link OptionableQuestion#getSelectedOptions(String)}
+     */
+    static void recordSelection(int questionId, int selectedOptions) {
+        if (selectedOptions == 0) {
+            return;
+        }
+        Item item = item(questionId);
+        for (int options = selectedOptions; options != 0; options &= options - 1) {
+            item.selections(Integer.numberOfTrailingZeros(options)).increment();
+        }
+    }
+
+    /**
+     * Returns the counters of the question with the given ID, creating them if they do not exist.
+     *
+     * @param questionId the ID of the question
+     * @return the counters of the question
+     */
+    private static Item item(int questionId) {
+        Item item = ITEMS.get(questionId);
+        if (item == null) {
+            item = ITEMS.computeIfAbsent(questionId, id -> new Item());
+        }
+        return item;
+    }
+
+    /**
+     * Returns the number of times the question was attempted across the cohort.
+     *
+     * @param question the question
+     * @return the number of attempts
+     */
+    public static long getAttemptCount(Question question) {
+        Item item = ITEMS.get(QuestionFactory.findQuestionId(question));
+        return item == null ? 0 : item.attempts.sum();
+    }
+
+    /**
+     * Returns the number of times the question was answered correctly across the cohort.
+     *
+     * @param question the question
+     * @return the number of correct answers
+     */
+    public static long getCorrectCount(Question question) {
+        Item item = ITEMS.get(QuestionFactory.findQuestionId(question));
+        return item == null ? 0 : item.correct.sum();
+    }
+
+    /**
+     * Returns the difficulty (p-value) of the question - the proportion of attempts that were correct.
+     *
+     * @param question the question
+     * @return the p-value between 0 and 1, or {@code Double.NaN} if the question has not been attempted
+     */
+    public static double getDifficulty(Question question) {
+        Item item = ITEMS.get(QuestionFactory.findQuestionId(question));
+        if (item == null) {
+            return Double.NaN;
+        }
+        long attempts = item.attempts.sum();
+        return attempts == 0 ? Double.NaN : (double) item.correct.sum() / attempts;
+    }
+
+    /**
+     * Returns the number of times the given option of the question was selected across the cohort.
+     *
+     * @param question the question
+     * @param option   the option, ignoring case
+     * @return the number of times the option was selected, {@code 0} if it is not a letter
+     */
+    public static long getSelectionCount(Question question, char option) {
+        int index = Character.toLowerCase(option) - 'a';
+        Item item = ITEMS.get(QuestionFactory.findQuestionId(question));
+        if (item == null || index < 0 || index >= OPTION_COUNT) {
+            return 0;
+        }
+        LongAdder selections = item.findSelections(index);
+        return selections == null ? 0 : selections.sum();
+    }
+
+    /**
+     * Returns the number of times each option of the question was selected across the cohort.
+     *
+     * @param question the question
+     * @return the selection count of each option, ordered by option, or an empty map if the question has no options
+     */
+    public static Map<Character, Long> getSelectionCounts(Question question) {
+        Map<Character, Long> counts = new TreeMap<>();
+        if (question instanceof OptionableQuestion optionable) {
+            for (Character option : optionable.getOptions().keySet()) {
+                counts.put(option, getSelectionCount(question, option));
+            }
+        }
+        return counts;
+    }
+
+    /**
+     * Writes the counters of all questions in a compact binary form for a snapshot. Answers recorded concurrently
+     * may or may not be included.
+     *
+     * @param out the output to write to
+     * @throws IOException if the output cannot be written
+     */
+    static void writeTo(DataOutput out) throws IOException {
+        List<Map.Entry<Integer, Item>> items = new ArrayList<>(ITEMS.entrySet());
+        out.writeInt(items.size());
+        for (Map.Entry<Integer, Item> item : items) {
+            out.writeInt(item.getKey());
+            out.writeLong(item.getValue().attempts.sum());
+            out.writeLong(item.getValue().correct.sum());
+            int selected = 0;
+            for (int i = 0; i < OPTION_COUNT; i++) {
+                if (item.getValue().findSelections(i) != null) {
+                    selected |= 1 << i;
+                }
+            }
+            out.writeInt(selected);
+            for (int options = selected; options != 0; options &= options - 1) {
+                out.writeLong(item.getValue().findSelections(Integer.numberOfTrailingZeros(options)).sum());
+            }
+        }
+    }
+
+    /**
+     * Adds counters written by {@link #writeTo(DataOutput)} to the current ones.
+     *
+     * @param in    the buffer to read from
+     * @param idMap maps the written question IDs to the current ones, or -1 for questions that no longer exist, or
+     *              {@code null} if they are the same
+     */
+    static void readFrom(ByteBuffer in, int[] idMap) {
+        int count = in.getInt();
+        for (int i = 0; i < count; i++) {
+            int id = in.getInt();
+            // Counters of questions that no longer exist are read into a throwaway item
+            Item item = idMap != null && idMap[id] < 0 ? new Item()
+                    : ITEMS.computeIfAbsent(idMap == null ? id : idMap[id], k -> new Item());
+            item.attempts.add(in.getLong());
+            item.correct.add(in.getLong());
+            for (int options = in.getInt(); options != 0; options &= options - 1) {
+                item.selections(Integer.numberOfTrailingZeros(options)).add(in.getLong());
+            }
+        }
+    }
+
+    /**
+     * Clears all recorded statistics. This method is intended for use in unit tests.
+     */
+    static void reset() {
+        ITEMS.clear();
+    }
+
+    /**
+     * Item - the attempt, correct answer and option selection counters of a single question. The selection counters
+     * and the array holding them are only created once an option is first selected, so free-response questions carry
+     * no selection counters at all.
+     */
+    private static final class Item {
+        final LongAdder attempts = new LongAdder();
+        final LongAdder correct = new LongAdder();
+        private volatile AtomicReferenceArray<LongAdder> selections;
+
+        /**
+         * Returns the selection counter of an option, creating it if the option has not been selected yet.
+         *
+         * @param option the index of the option
+         * @return the selection counter
+         */
+        LongAdder selections(int option) {
+            AtomicReferenceArray<LongAdder> counters = selections;
+            if (counters == null) {
+                synchronized (this) {
+                    counters = selections;
+                    if (counters == null) {
+                        counters = new AtomicReferenceArray<>(OPTION_COUNT);
+                        selections = counters;
+                    }
+                }
+            }
+            LongAdder counter = counters.get(option);
+            if (counter == null) {
+                counters.compareAndSet(option, null, new LongAdder());
+                counter = counters.get(option);
+            }
+            return counter;
+        }
+
+        /**
+         * Returns the selection counter of an option without creating it.
+         *
+         * @param option the index of the option
+         * @return the selection counter, or {@code null} if the option has not been selected yet
+         */
+        LongAdder findSelections(int option) {
+            AtomicReferenceArray<LongAdder> counters = selections;
+            return counters == null ? null : counters.get(option);
+        }
+    }
+}
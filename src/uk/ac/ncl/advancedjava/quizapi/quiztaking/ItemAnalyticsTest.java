@@ -0,0 +1,78 @@
+package uk.ac.ncl.advancedjava.quizapi.quiztaking;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import uk.ac.ncl.advancedjava.quizapi.questions.Question;
+import uk.ac.ncl.advancedjava.quizapi.questions.QuestionFactory;
+import uk.ac.ncl.advancedjava.quizapi.questions.QuestionType;
+
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ItemAnalyticsTest {
+
+    Question frq1, frq2, mcq1;
+
+    @BeforeEach
+    void setUp() {
+        ItemAnalytics.reset();
+        frq1 = QuestionFactory.getInstance(
+                QuestionType.FREE_RESPONSE,
+                "What is the capital of France?",
+                "Paris"
+        );
+        frq2 = QuestionFactory.getInstance(
+                QuestionType.FREE_RESPONSE,
+                "What is the capital of Czechia?",
+                "Prague"
+        );
+        mcq1 = QuestionFactory.getInstance(
+                QuestionType.MULTIPLE_CHOICE,
+                "Which of these cities are capitals?",
+                Map.of('A', "Paris", 'B', "Lyon", 'C', "Prague", 'D', "Brno"),
+                Set.of('A', 'C')
+        );
+    }
+
+    @AfterEach
+    void tearDown() {
+        frq1 = null;
+        frq2 = null;
+        mcq1 = null;
+        ItemAnalytics.reset();
+    }
+
+    @Test
+    void recordAnswer() {
+        ItemAnalytics.recordAnswer(frq1.getId(), true);
+        ItemAnalytics.recordAnswer(frq1.getId(), false);
+        ItemAnalytics.recordAnswer(frq1.getId(), true);
+        ItemAnalytics.recordAnswer(frq1.getId(), true);
+
+        assertEquals(4, ItemAnalytics.getAttemptCount(frq1));
+        assertEquals(3, ItemAnalytics.getCorrectCount(frq1));
+        assertEquals(0.75, ItemAnalytics.getDifficulty(frq1));
+
+        assertEquals(0, ItemAnalytics.getAttemptCount(frq2));
+        assertEquals(0, ItemAnalytics.getCorrectCount(frq2));
+        assertTrue(Double.isNaN(ItemAnalytics.getDifficulty(frq2)));
+    }
+
+    @Test
+    void recordSelection() {
+        ItemAnalytics.recordSelection(mcq1.getId(), 0b0101);
+        ItemAnalytics.recordSelection(mcq1.getId(), 0b0001);
+        ItemAnalytics.recordSelection(mcq1.getId(), 0);
+
+        assertEquals(2, ItemAnalytics.getSelectionCount(mcq1, 'A'));
+        assertEquals(2, ItemAnalytics.getSelectionCount(mcq1, 'a'));
+        assertEquals(0, ItemAnalytics.getSelectionCount(mcq1, '?'));
+        assertEquals(Map.of('A', 2L, 'B', 0L, 'C', 1L, 'D', 0L), ItemAnalytics.getSelectionCounts(mcq1));
+        assertEquals(Map.of(), ItemAnalytics.getSelectionCounts(frq1));
+        // Selections are counted apart from attempts
+        assertEquals(0, ItemAnalytics.getAttemptCount(mcq1));
+    }
+}
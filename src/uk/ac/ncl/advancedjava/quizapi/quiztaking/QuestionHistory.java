@@ -0,0 +1,353 @@
+package uk.ac.ncl.advancedjava.quizapi.quiztaking;
+
+import uk.ac.ncl.advancedjava.quizapi.questions.Question;
+import uk.ac.ncl.advancedjava.quizapi.questions.QuestionFactory;
+
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * QuestionHistory - records which questions a student has answered and whether the latest answer was correct.
+ * The history is kept as two compressed bitsets indexed by question ID - one of seen questions and one of questions
+ * answered incorrectly. Only 64-bit blocks that contain at least one answered question are stored, in a sorted array
+ * of block indexes with parallel arrays of seen and incorrect words, so sparse histories stay small while set
+ * operations against a question pool work a whole block at a time.
+ * Each stored block costs 20 bytes for up to 64 questions, compared to a map entry with a boxed value per question.
+ * The arrays are only allocated on the first answer and grow by half, and copies are trimmed to the blocks in use,
+ * so students who have answered little hold next to nothing.
+ *
+ * @author Filip Kovarik - S24039999
+ */
+final class QuestionHistory {
+
+    private static final int[] NO_BLOCKS = new int[0];
+    private static final long[] NO_WORDS = new long[0];
+
+    private int[] blocks;
+    private long[] seen;
+    private long[] incorrect;
+    private int blockCount;
+    private int size;
+
+    /**
+     * Constructs an empty {@code QuestionHistory}.
+     */
+    QuestionHistory() {
+        blocks = NO_BLOCKS;
+        seen = NO_WORDS;
+        incorrect = NO_WORDS;
+    }
+
+    /**
+     * Constructs a copy of the given {@code QuestionHistory}.
+     *
+     * @param other the history to copy
+     */
+    QuestionHistory(QuestionHistory other) {
+        blocks = other.blockCount == 0 ? NO_BLOCKS : Arrays.copyOf(other.blocks, other.blockCount);
+        seen = other.blockCount == 0 ? NO_WORDS : Arrays.copyOf(other.seen, other.blockCount);
+        incorrect = other.blockCount == 0 ? NO_WORDS : Arrays.copyOf(other.incorrect, other.blockCount);
+        blockCount = other.blockCount;
+        size = other.size;
+    }
+
+    /**
+     * Records the latest answer to the question with the given ID.
+     *
+     * @param id        the ID of the answered question
+     * @param isCorrect {@code true} if the answer was correct, {@code false} otherwise
+     */
+    void put(int id, boolean isCorrect) {
+        int position = findBlock(id >>> 6);
+        if (position < 0) {
+            position = insertBlock(-position - 1, id >>> 6);
+        }
+        long bit = 1L << id;
+        if ((seen[position] & bit) == 0) {
+            seen[position] |= bit;
+            size++;
+        }
+        if (isCorrect) {
+            incorrect[position] &= ~bit;
+        } else {
+            incorrect[position] |= bit;
+        }
+    }
+
+    /**
+     * Checks whether the question with the given ID has been answered.
+     *
+     * @param id the ID of the question
+     * @return {@code true} if the question has been answered, {@code false} otherwise
+     */
+    boolean isSeen(int id) {
+        int position = findBlock(id >>> 6);
+        return position >= 0 && (seen[position] & (1L << id)) != 0;
+    }
+
+    /**
+     * Checks whether the latest answer to the question with the given ID was correct.
+     *
+     * @param id the ID of the question
+     * @return {@code true} if the question has been answered correctly, {@code false} if it was answered incorrectly
+     *         or not at all
+     */
+    boolean isCorrect(int id) {
+        int position = findBlock(id >>> 6);
+        return position >= 0 && ((seen[position] & ~incorrect[position]) & (1L << id)) != 0;
+    }
+
+    /**
+     * Clears the bits of all correctly answered questions from a compressed bitset of question IDs, leaving only
+     * questions that are unseen or were answered incorrectly. The bitset is laid out as the history itself, as sorted
+     * block indexes with parallel words, and the two are merged in time proportional to their numbers of blocks.
+     *
+     * @param questionBlocks the sorted indexes of the blocks of the bitset
+     * @param questionWords  the words of the blocks, updated in place
+     */
+    void removeCorrect(int[] questionBlocks, long[] questionWords) {
+        int i = 0;
+        int j = 0;
+        while (i < blockCount && j < questionBlocks.length) {
+            if (blocks[i] < questionBlocks[j]) {
+                i++;
+            } else if (blocks[i] > questionBlocks[j]) {
+                j++;
+            } else {
+                questionWords[j++] &= ~(seen[i] & ~incorrect[i++]);
+            }
+        }
+    }
+
+    /**
+     * Writes the history in a compact binary form: the number of stored blocks followed by the arrays of block
+     * indexes, seen words and incorrect words.
+     *
+     * @param out the output to write to
+     * @throws IOException if the output cannot be written
+     */
+    void writeTo(DataOutput out) throws IOException {
+        out.writeInt(blockCount);
+        for (int i = 0; i < blockCount; i++) {
+            out.writeInt(blocks[i]);
+        }
+        for (int i = 0; i < blockCount; i++) {
+            out.writeLong(seen[i]);
+        }
+        for (int i = 0; i < blockCount; i++) {
+            out.writeLong(incorrect[i]);
+        }
+    }
+
+    /**
+     * Replaces the contents of the history with one written by {@link #writeTo(DataOutput)}. If the question IDs
+     * have not changed since the history was written, the arrays are copied in bulk; otherwise every answer is
+     * moved to the question's new ID.
+     *
+     * @param in    the buffer to read from
+     * @param idMap maps the written question IDs to the current ones, or -1 for questions that no longer exist, or
+     *              {@code null} if they are the same
+     */
+    void readFrom(ByteBuffer in, int[] idMap) {
+        int count = in.getInt();
+        int[] readBlocks = new int[count];
+        long[] readSeen = new long[count];
+        long[] readIncorrect = new long[count];
+        in.asIntBuffer().get(readBlocks);
+        in.position(in.position() + count * Integer.BYTES);
+        in.asLongBuffer().get(readSeen);
+        in.position(in.position() + count * Long.BYTES);
+        in.asLongBuffer().get(readIncorrect);
+        in.position(in.position() + count * Long.BYTES);
+
+        if (idMap == null) {
+            blocks = readBlocks;
+            seen = readSeen;
+            incorrect = readIncorrect;
+            blockCount = count;
+            size = 0;
+            for (long word : readSeen) {
+                size += Long.bitCount(word);
+            }
+            return;
+        }
+        blocks = NO_BLOCKS;
+        seen = NO_WORDS;
+        incorrect = NO_WORDS;
+        blockCount = 0;
+        size = 0;
+        for (int i = 0; i < count; i++) {
+            long word = readSeen[i];
+            while (word != 0) {
+                int bit = Long.numberOfTrailingZeros(word);
+                int id = idMap[(readBlocks[i] << 6) | bit];
+                if (id >= 0) {
+                    put(id, (readIncorrect[i] & (1L << bit)) == 0);
+                }
+                word &= word - 1;
+            }
+        }
+    }
+
+    /**
+     * Returns the number of answered questions.
+     *
+     * @return the number of questions in the history
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * Returns a read-only {@code Map} view of the history, keyed by the questions themselves.
+     *
+     * @return a map view of the questions and the correctness of the answers
+     */
+    Map<Question, Boolean> asMap() {
+        return new MapView();
+    }
+
+    /**
+     * Finds the position of the given block with a binary search.
+     *
+     * @param block the block index, that is the question ID divided by 64
+     * @return the position of the block, or {@code -(insertion point) - 1} if it is not stored
+     */
+    private int findBlock(int block) {
+        return Arrays.binarySearch(blocks, 0, blockCount, block);
+    }
+
+    /**
+     * Inserts an empty block at the given position, growing the arrays if needed.
+     *
+     * @param position the position at which to insert the block
+     * @param block    the block index
+     * @return the position of the inserted block
+     */
+    private int insertBlock(int position, int block) {
+        if (blockCount == blocks.length) {
+            int capacity = Math.max(4, blocks.length + (blocks.length >> 1));
+            blocks = Arrays.copyOf(blocks, capacity);
+            seen = Arrays.copyOf(seen, capacity);
+            incorrect = Arrays.copyOf(incorrect, capacity);
+        }
+        int moved = blockCount - position;
+        System.arraycopy(blocks, position, blocks, position + 1, moved);
+        System.arraycopy(seen, position, seen, position + 1, moved);
+        System.arraycopy(incorrect, position, incorrect, position + 1, moved);
+        blocks[position] = block;
+        seen[position] = 0;
+        incorrect[position] = 0;
+        blockCount++;
+        return position;
+    }
+
+    /**
+     * Counts the answered questions that are still in use, that is whose IDs resolve through
+     * {@link QuestionFactory#getQuestion(int)}.
+     *
+     * @return the number of answered questions in use
+     */
+    private int sizeInUse() {
+        int count = 0;
+        for (int i = 0; i < blockCount; i++) {
+            for (long word = seen[i]; word != 0; word &= word - 1) {
+                if (QuestionFactory.getQuestion((blocks[i] << 6) | Long.numberOfTrailingZeros(word)) != null) {
+                    count++;
+                }
+            }
+        }
+        return count;
+    }
+
+    /**
+     * MapView - a read-only {@code Map<Question, Boolean>} over the history. Lookups go straight to the bitsets and
+     * never assign IDs to the questions they are given, while iteration resolves IDs back to questions through
+     * {@link QuestionFactory#getQuestion(int)}. Answers to questions that have since been garbage collected are
+     * neither iterated nor counted by {@link #size()}.
+     */
+    private final class MapView extends AbstractMap<Question, Boolean> {
+
+        @Override
+        public int size() {
+            return sizeInUse();
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return key instanceof Question question && isSeen(QuestionFactory.findQuestionId(question));
+        }
+
+        @Override
+        public Boolean get(Object key) {
+            if (!(key instanceof Question question)) {
+                return null;
+            }
+            int id = QuestionFactory.findQuestionId(question);
+            return isSeen(id) ? isCorrect(id) : null;
+        }
+
+        @Override
+        public Set<Entry<Question, Boolean>> entrySet() {
+            return new AbstractSet<>() {
+                @Override
+                public int size() {
+                    return sizeInUse();
+                }
+
+                @Override
+                public Iterator<Entry<Question, Boolean>> iterator() {
+                    return new Iterator<>() {
+                        private int position = 0;
+                        private long remaining = blockCount > 0 ? seen[0] : 0;
+                        private int id;
+                        private Question next = advance();
+
+                        /**
+                         * Moves to the next answered question that is still in use.
+                         */
+                        private Question advance() {
+                            while (position < blockCount) {
+                                while (remaining != 0) {
+                                    int bit = Long.numberOfTrailingZeros(remaining);
+                                    remaining &= remaining - 1;
+                                    id = (blocks[position] << 6) | bit;
+                                    Question question = QuestionFactory.getQuestion(id);
+                                    if (question != null) {
+                                        return question;
+                                    }
+                                }
+                                position++;
+                                remaining = position < blockCount ? seen[position] : 0;
+                            }
+                            return null;
+                        }
+
+                        @Override
+                        public boolean hasNext() {
+                            return next != null;
+                        }
+
+                        @Override
+                        public Entry<Question, Boolean> next() {
+                            if (next == null) {
+                                throw new NoSuchElementException();
+                            }
+                            Entry<Question, Boolean> entry = new SimpleImmutableEntry<>(next, isCorrect(id));
+                            next = advance();
+                            return entry;
+                        }
+                    };
+                }
+            };
+        }
+    }
+}
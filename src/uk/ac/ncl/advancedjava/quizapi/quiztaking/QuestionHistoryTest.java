@@ -0,0 +1,162 @@
+package uk.ac.ncl.advancedjava.quizapi.quiztaking;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import uk.ac.ncl.advancedjava.quizapi.questions.Question;
+import uk.ac.ncl.advancedjava.quizapi.questions.QuestionFactory;
+import uk.ac.ncl.advancedjava.quizapi.questions.QuestionType;
+
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class QuestionHistoryTest {
+
+    QuestionHistory history;
+    Question frq1, frq2;
+
+    @BeforeEach
+    void setUp() {
+        history = new QuestionHistory();
+        frq1 = QuestionFactory.getInstance(
+                QuestionType.FREE_RESPONSE,
+                "What is the capital of France?",
+                "Paris"
+        );
+        frq2 = QuestionFactory.getInstance(
+                QuestionType.FREE_RESPONSE,
+                "What is the capital of Czechia?",
+                "Prague"
+        );
+    }
+
+    @AfterEach
+    void tearDown() {
+        history = null;
+        frq1 = null;
+        frq2 = null;
+    }
+
+    @Test
+    void put() {
+        history.put(frq1.getId(), false);
+        assertTrue(history.isSeen(frq1.getId()));
+        assertFalse(history.isCorrect(frq1.getId()));
+        assertFalse(history.isSeen(frq2.getId()));
+
+        history.put(frq1.getId(), true);
+        assertTrue(history.isCorrect(frq1.getId()));
+        assertEquals(1, history.size());
+
+        // Growing past the initial capacity keeps all entries
+        for (int id = 1000; id < 1100; id++) {
+            history.put(id, id % 2 == 0);
+        }
+        assertEquals(101, history.size());
+        for (int id = 1000; id < 1100; id++) {
+            assertTrue(history.isSeen(id));
+            assertEquals(id % 2 == 0, history.isCorrect(id));
+        }
+        assertTrue(history.isCorrect(frq1.getId()));
+    }
+
+    @Test
+    void asMap() {
+        history.put(frq1.getId(), true);
+        history.put(frq2.getId(), false);
+
+        Map<Question, Boolean> map = history.asMap();
+        assertEquals(Map.of(frq1, true, frq2, false), map);
+        assertEquals(map, Map.of(frq1, true, frq2, false));
+        assertTrue(map.containsKey(frq2));
+        assertNull(map.get("not a question"));
+        assertThrows(UnsupportedOperationException.class, () -> map.put(frq1, false));
+
+        // Answers to questions that are not in use are neither iterated nor counted
+        history.put(QuestionFactory.getQuestionIdCount() + 100, true);
+        assertEquals(2, map.size());
+        assertEquals(2, map.entrySet().size());
+        assertEquals(Map.of(frq1, true, frq2, false), map);
+    }
+
+    @Test
+    void asMap_LookupsAssignNoIds() {
+        history.put(frq1.getId(), true);
+        Question unused = new Question() {
+            @Override
+            public String getQuestionText() {
+                return "What is the capital of Slovakia?";
+            }
+
+            @Override
+            public int getId() {
+                throw new AssertionError("Lookups must not assign IDs");
+            }
+
+            @Override
+            public Set<String> getTopics() {
+                return Set.of();
+            }
+
+            @Override
+            public boolean isCorrectAnswer(String answer) {
+                return "Bratislava".equals(answer);
+            }
+
+            @Override
+            public QuestionType getType() {
+                return QuestionType.FREE_RESPONSE;
+            }
+        };
+
+        int count = QuestionFactory.getQuestionIdCount();
+        Map<Question, Boolean> map = history.asMap();
+        assertFalse(map.containsKey(unused));
+        assertNull(map.get(unused));
+        assertEquals(0, ItemAnalytics.getAttemptCount(unused));
+        assertEquals(count, QuestionFactory.getQuestionIdCount());
+    }
+
+    @Test
+    void removeCorrect() {
+        history.put(3, true);
+        history.put(70, false);
+        history.put(130, true);
+        history.put(5000, true);
+
+        int[] questionBlocks = {0, 1, 2, 40}; // IDs 0 to 191 and 2560 to 2623
+        long[] questionIds = new long[4];
+        questionIds[0] = (1L << 3) | (1L << 4);
+        questionIds[1] = 1L << (70 - 64);
+        questionIds[2] = 1L << (130 - 128);
+        questionIds[3] = 1L << (2600 - 2560);
+        history.removeCorrect(questionBlocks, questionIds);
+
+        assertArrayEquals(new long[]{1L << 4, 1L << (70 - 64), 0, 1L << (2600 - 2560)}, questionIds);
+    }
+
+    @Test
+    void copy() {
+        QuestionHistory empty = new QuestionHistory(history);
+        assertEquals(0, empty.size());
+        empty.put(5, true);
+        assertTrue(empty.isSeen(5));
+        assertFalse(history.isSeen(5));
+
+        for (int id = 0; id < 1000; id += 7) {
+            history.put(id, id % 2 == 0);
+        }
+        QuestionHistory copy = new QuestionHistory(history);
+        history.put(1, false);
+        assertEquals(history.size() - 1, copy.size());
+        assertFalse(copy.isSeen(1));
+        for (int id = 0; id < 1000; id += 7) {
+            assertTrue(copy.isSeen(id));
+            assertEquals(id % 2 == 0, copy.isCorrect(id));
+        }
+        copy.put(2000, false);
+        assertFalse(copy.isCorrect(2000));
+    }
+}
@@ -0,0 +1,223 @@
+package uk.ac.ncl.advancedjava.quizapi.quiztaking;
+
+import uk.ac.ncl.advancedjava.quizapi.questions.Question;
+import uk.ac.ncl.advancedjava.quizapi.questions.QuestionType;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * QuestionPool - an immutable, versioned snapshot of the questions a {@link QuizGenerator} draws from, together
+ * with the structures derived from them: a {@link Partition} of the questions of each type and the topic index.
+ * A snapshot is never modified once built. Changes are applied with {@link #withChanges(Collection, Collection)},
+ * which copies the pool into a new snapshot with the next version number, so readers holding the old snapshot are
+ * not affected.
+ *
+ * @author Filip Kovarik - S24039999
+ */
+final class QuestionPool {
+
+    private final long version;
+    private final Set<Question> questions;
+    private final Partition freeResponse;
+    private final Partition multipleChoice;
+    private final TopicIndex topicIndex;
+
+    /**
+     * Builds a snapshot of the given questions.
+     *
+     * @param version   the version number of the snapshot
+     * @param questions the questions in the pool
+     */
+    QuestionPool(long version, Set<Question> questions) {
+        this.version = version;
+        this.questions = Collections.unmodifiableSet(questions);
+        this.freeResponse = new Partition(filterQuestionsByType(questions, QuestionType.FREE_RESPONSE));
+        this.multipleChoice = new Partition(filterQuestionsByType(questions, QuestionType.MULTIPLE_CHOICE));
+        this.topicIndex = new TopicIndex(questions);
+    }
+
+    /**
+     * Returns a new snapshot with the given questions added and removed, and the version number incremented.
+     * Questions that are both added and removed end up removed.
+     *
+     * @param added   the questions to add
+     * @param removed the questions to remove
+     * @return the new snapshot
+     */
+    QuestionPool withChanges(Collection<Question> added, Collection<Question> removed) {
+        Set<Question> changed = new HashSet<>(questions);
+        changed.addAll(added);
+        changed.removeAll(removed);
+        return new QuestionPool(version + 1, changed);
+    }
+
+    /**
+     * Returns the version number of the snapshot, which is incremented by every change.
+     *
+     * @return the version number
+     */
+    long getVersion() {
+        return version;
+    }
+
+    /**
+     * Returns the questions in the pool.
+     *
+     * @return an unmodifiable set of the questions
+     */
+    Set<Question> getQuestions() {
+        return questions;
+    }
+
+    /**
+     * Returns the free-response questions in the pool, ordered by ID. The array must not be modified.
+     *
+     * @return the free-response questions
+     */
+    Question[] getFreeResponseQuestions() {
+        return freeResponse.questions;
+    }
+
+    /**
+     * Returns the multiple-choice questions in the pool, ordered by ID. The array must not be modified.
+     *
+     * @return the multiple-choice questions
+     */
+    Question[] getMultipleChoiceQuestions() {
+        return multipleChoice.questions;
+    }
+
+    /**
+     * Returns the free-response partition of the pool.
+     *
+     * @return the free-response questions and their IDs
+     */
+    Partition getFreeResponse() {
+        return freeResponse;
+    }
+
+    /**
+     * Returns the multiple-choice partition of the pool.
+     *
+     * @return the multiple-choice questions and their IDs
+     */
+    Partition getMultipleChoice() {
+        return multipleChoice;
+    }
+
+    /**
+     * Returns the question in the pool with the given ID.
+     *
+     * @param id the question ID
+     * @return the question, or {@code null} if it is not in the pool
+     */
+    Question getQuestion(int id) {
+        Question question = freeResponse.get(id);
+        return question != null ? question : multipleChoice.get(id);
+    }
+
+    /**
+     * Returns the topic index of the pool.
+     *
+     * @return the topic index
+     */
+    TopicIndex getTopicIndex() {
+        return topicIndex;
+    }
+
+    /**
+     * Returns the total number of questions in the pool.
+     *
+     * @return the size of the pool
+     */
+    int size() {
+        return freeResponse.questions.length + multipleChoice.questions.length;
+    }
+
+    /**
+     * Filters questions from the provided pool based on their type (free-response or multiple-choice).
+     *
+     * @param questions the questions to filter from
+     * @param type      the type of questions to filter by
+     * @return an array of questions of the specified type, ordered by ID
+     */
+    private static Question[] filterQuestionsByType(Set<Question> questions, QuestionType type) {
+        List<Question> filteredQuestions = new ArrayList<>();
+        for (Question question : questions) {
+            if (question.getType() == type) {
+                filteredQuestions.add(question);
+            }
+        }
+        filteredQuestions.sort(Comparator.comparingInt(Question::getId));
+
+        return filteredQuestions.toArray(new Question[0]);
+    }
+
+    /**
+     * Partition - the questions of one type, ordered by ID, and their IDs as a compressed bitset laid out as in
+     * {@link QuestionHistory}: a sorted array of the 64-bit blocks that hold at least one ID, with a parallel array of
+     * words. A parallel array of ranks, the number of questions in the earlier blocks, maps a bit back to its
+     * question without a table indexed by ID, so a partition takes space proportional to its own size however large
+     * the IDs of its questions are.
+     */
+    static final class Partition {
+        final Question[] questions;
+        final int[] blocks;
+        final long[] words;
+        final int[] ranks;
+
+        /**
+         * Builds a partition of the given questions.
+         *
+         * @param questions the questions, ordered by ID
+         */
+        Partition(Question[] questions) {
+            this.questions = questions;
+            int[] blocks = new int[questions.length];
+            long[] words = new long[questions.length];
+            int[] ranks = new int[questions.length];
+            int count = 0;
+            for (int i = 0; i < questions.length; i++) {
+                int id = questions[i].getId();
+                if (count == 0 || blocks[count - 1] != id >>> 6) {
+                    blocks[count] = id >>> 6;
+                    ranks[count] = i;
+                    count++;
+                }
+                words[count - 1] |= 1L << id;
+            }
+            this.blocks = Arrays.copyOf(blocks, count);
+            this.words = Arrays.copyOf(words, count);
+            this.ranks = Arrays.copyOf(ranks, count);
+        }
+
+        /**
+         * Returns the question of a set bit of the partition's bitset, or of a subset of it.
+         *
+         * @param position the position of the block
+         * @param bit      the bit within the block, which must be set in {@link #words}
+         * @return the question
+         */
+        Question get(int position, int bit) {
+            return questions[ranks[position] + Long.bitCount(words[position] & ((1L << bit) - 1))];
+        }
+
+        /**
+         * Returns the question in the partition with the given ID.
+         *
+         * @param id the question ID
+         * @return the question, or {@code null} if it is not in the partition
+         */
+        Question get(int id) {
+            int position = Arrays.binarySearch(blocks, id >>> 6);
+            return position >= 0 && (words[position] & (1L << id)) != 0 ? get(position, id & 63) : null;
+        }
+    }
+}
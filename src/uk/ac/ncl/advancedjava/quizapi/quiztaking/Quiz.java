@@ -2,33 +2,54 @@ package uk.ac.ncl.advancedjava.quizapi.quiztaking;
 
 import uk.ac.ncl.advancedjava.quizapi.questions.Question;
 
+import java.util.AbstractList;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Objects;
+import java.util.RandomAccess;
 
 /**
  * Quiz - represents a collection of questions that form a quiz.
  * This class allows adding, removing, and retrieving questions in the quiz.
  * A quiz is created through the QuizGenerator class.
+ * The questions are stored in a plain array that is replaced rather than modified, so the quiz can hand out a
+ * read-only view of it and indexed access without copying.
  *
  * @author Filip Kovarik
  */
 public final class Quiz {
 
-    private final List<Question> questions = new ArrayList<>();
+    private static final Question[] EMPTY = new Question[0];
+
+    private Question[] questions;
+    private final List<Question> questionView = new QuestionView();
 
     /**
      * Default constructor for creating an empty Quiz instance.
      */
-    Quiz() {}
+    Quiz() {
+        this.questions = EMPTY;
+    }
 
     /**
      * Constructor for creating a Quiz with a predefined list of questions. This copies the provided list into
-     * the quiz's internal question list
+     * the quiz's internal question array
      *
      * @param questions the list of questions to be added to the quiz
      */
     Quiz(List<Question> questions) {
-        this.questions.addAll(questions);
+        this.questions = questions.toArray(EMPTY);
+    }
+
+    /**
+     * Constructor for creating a Quiz that takes ownership of the given array of questions without copying it.
+     * The caller must not modify the array afterwards.
+     *
+     * @param questions the questions of the quiz
+     */
+    Quiz(Question[] questions) {
+        this.questions = questions;
     }
 
     /**
@@ -37,7 +58,9 @@ public final class Quiz {
      * @param question the question to be added
      */
     void addQuestion(Question question) {
-        questions.add(question);
+        Question[] added = Arrays.copyOf(questions, questions.length + 1);
+        added[questions.length] = question;
+        questions = added;
     }
 
     /**
@@ -46,18 +69,58 @@ public final class Quiz {
      * @param question the question to be removed
      */
     void removeQuestion(Question question) {
-        questions.remove(question);
+        for (int i = 0; i < questions.length; i++) {
+            if (questions[i].equals(question)) {
+                Question[] removed = new Question[questions.length - 1];
+                System.arraycopy(questions, 0, removed, 0, i);
+                System.arraycopy(questions, i + 1, removed, i, removed.length - i);
+                questions = removed;
+                return;
+            }
+        }
     }
 
     /**
      * Returns the list of questions in the quiz.
      * The returned list is a defensive copy, meaning modifications to it will not affect
-     * the internal list of questions.
+     * the internal list of questions. Callers that only read the questions should use {@link #getQuestionView()},
+     * {@link #getQuestion(int)} and {@link #size()} instead, which do not copy.
      *
      * @return a defensive copy of the list of questions in the quiz
      */
     public List<Question> getQuestions() {
-        return new ArrayList<>(questions);
+        return new ArrayList<>(Arrays.asList(questions));
+    }
+
+    /**
+     * Returns a read-only view of the questions in the quiz. The view is not a copy and reflects the current
+     * questions of the quiz; any attempt to modify it throws an {@code UnsupportedOperationException}.
+     *
+     * @return an unmodifiable view of the questions in the quiz
+     */
+    public List<Question> getQuestionView() {
+        return questionView;
+    }
+
+    /**
+     * Returns the question at the given position in the quiz.
+     *
+     * @param index the position of the question, starting at 0
+     * @return the question at the position
+     * @throws IndexOutOfBoundsException if the index is negative or not less than {@link #size()}
+     */
+    public Question getQuestion(int index) {
+        Objects.checkIndex(index, questions.length);
+        return questions[index];
+    }
+
+    /**
+     * Returns the number of questions in the quiz.
+     *
+     * @return the number of questions
+     */
+    public int size() {
+        return questions.length;
     }
 
     /**
@@ -68,7 +131,24 @@ public final class Quiz {
     @Override
     public String toString() {
         return "Quiz{" +
-                "questions=" + questions +
+                "questions=" + Arrays.toString(questions) +
                 '}';
     }
+
+    /**
+     * QuestionView - the read-only list view returned by {@link #getQuestionView()}, backed directly by the
+     * question array of the quiz.
+     */
+    private final class QuestionView extends AbstractList<Question> implements RandomAccess {
+
+        @Override
+        public Question get(int index) {
+            return getQuestion(index);
+        }
+
+        @Override
+        public int size() {
+            return questions.length;
+        }
+    }
 }
@@ -0,0 +1,241 @@
+package uk.ac.ncl.advancedjava.quizapi.quiztaking;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * QuizBuffer - keeps a bounded buffer of ready-made regular quizzes for each quiz size, so that taking a quiz on the
+ * request path is a queue poll instead of a generation. Each buffer is refilled up to its high watermark by a
+ * background worker once it falls to the low watermark. If a buffer is empty, the quiz is generated inline and
+ * counted as a miss.
+ * Every buffered quiz is tagged with the version of the question pool it was drawn from. Quizzes prepared before
+ * the pool was last changed may contain retired questions, so they are dropped when they reach the front of the
+ * buffer, and the buffer is refilled from the current pool.
+ * Revision quizzes depend on the individual student's history and cannot be prepared in advance, so they are
+ * generated with {@link QuizGenerator#revise(StudentStatistics, int)} directly.
+ *
+ * @author Filip Kovarik - S24039999
+ */
+public final class QuizBuffer implements AutoCloseable {
+
+    private final QuizGenerator quizGenerator;
+    private final int lowWatermark;
+    private final int highWatermark;
+    private final ConcurrentHashMap<Integer, Buffer> buffers = new ConcurrentHashMap<>();
+    private final ExecutorService refillWorker;
+
+    private final LongAdder hitCount = new LongAdder();
+    private final LongAdder missCount = new LongAdder();
+    private final LongAdder staleCount = new LongAdder();
+
+    /**
+     * Constructs a {@code QuizBuffer} in front of the given generator.
+     *
+     * @param quizGenerator the generator used to create quizzes
+     * @param lowWatermark  the buffer depth at or below which a refill is started
+     * @param highWatermark the buffer depth a refill fills up to, which is also the capacity of each buffer
+     * @throws IllegalArgumentException if the watermarks are negative or the low watermark is not below the high one
+     */
+    public QuizBuffer(QuizGenerator quizGenerator, int lowWatermark, int highWatermark) {
+        if (lowWatermark < 0 || highWatermark < 1 || lowWatermark >= highWatermark) {
+            throw new IllegalArgumentException("Watermarks must satisfy 0 <= low < high");
+        }
+        this.quizGenerator = quizGenerator;
+        this.lowWatermark = lowWatermark;
+        this.highWatermark = highWatermark;
+        this.refillWorker = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "quiz-buffer-refill");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Prepares a buffer for quizzes with the given number of questions and starts filling it in the background.
+     *
+     * @param numberOfQuestions the number of questions in each quiz
+     * @throws IllegalStateException if there are no free-response or multiple-choice question in the pool.
+     * @throws IllegalArgumentException if the number of questions is less than 2 or larger than the pool
+     */
+    public void register(int numberOfQuestions) {
+        quizGenerator.generateQuiz(numberOfQuestions); // Fails fast on configurations that cannot be generated
+        scheduleRefill(buffer(numberOfQuestions));
+    }
+
+    /**
+     * Takes a regular quiz with the given number of questions. The quiz comes from the buffer if one is ready,
+     * otherwise it is generated on the calling thread. Either way, a background refill is started when the buffer
+     * is at or below its low watermark.
+     *
+     * @param numberOfQuestions the number of questions in the quiz
+     * @return a freshly generated regular quiz, never handed out twice
+     * @throws IllegalStateException if there are no free-response or multiple-choice question in the pool.
+     * @throws IllegalArgumentException if the number of questions is less than 2 or larger than the pool
+     */
+    public Quiz take(int numberOfQuestions) {
+        Buffer buffer = buffers.get(numberOfQuestions);
+        Quiz quiz = buffer == null ? null : poll(buffer);
+        if (quiz != null) {
+            hitCount.increment();
+        } else {
+            quiz = quizGenerator.generateQuiz(numberOfQuestions);
+            // Only counted once generated, so rejected sizes do not show up as misses
+            missCount.increment();
+            buffer = buffer(numberOfQuestions);
+        }
+        if (buffer.quizzes.size() <= lowWatermark) {
+            scheduleRefill(buffer);
+        }
+        return quiz;
+    }
+
+    /**
+     * Takes the first quiz of a buffer that was drawn from the current version of the pool, dropping any older
+     * ones in front of it.
+     *
+     * @param buffer the buffer to take from
+     * @return the quiz, or {@code null} if the buffer holds no current quiz
+     */
+    private Quiz poll(Buffer buffer) {
+        long version = quizGenerator.getPoolVersion();
+        PreparedQuiz prepared;
+        while ((prepared = buffer.quizzes.poll()) != null) {
+            if (prepared.poolVersion == version) {
+                return prepared.quiz;
+            }
+            staleCount.increment();
+        }
+        return null;
+    }
+
+    /**
+     * Returns the number of ready quizzes buffered for the given quiz size, including any drawn from an older
+     * version of the pool that have not been dropped yet.
+     *
+     * @param numberOfQuestions the number of questions in each quiz
+     * @return the current buffer depth
+     */
+    public int getDepth(int numberOfQuestions) {
+        Buffer buffer = buffers.get(numberOfQuestions);
+        return buffer == null ? 0 : buffer.quizzes.size();
+    }
+
+    /**
+     * Returns the number of quizzes taken straight from a buffer.
+     *
+     * @return the hit count
+     */
+    public long getHitCount() {
+        return hitCount.sum();
+    }
+
+    /**
+     * Returns the number of quizzes that had to be generated on the calling thread because the buffer was empty.
+     *
+     * @return the miss count
+     */
+    public long getMissCount() {
+        return missCount.sum();
+    }
+
+    /**
+     * Returns the number of buffered quizzes dropped because the pool changed after they were prepared.
+     *
+     * @return the stale count
+     */
+    public long getStaleCount() {
+        return staleCount.sum();
+    }
+
+    /**
+     * Stops the background refill worker. Quizzes can still be taken afterwards, but are generated inline once the
+     * buffers run out.
+     */
+    @Override
+    public void close() {
+        refillWorker.shutdownNow();
+    }
+
+    /**
+     * Returns the buffer for the given quiz size, creating it if needed.
+     *
+     * @param numberOfQuestions the number of questions in each quiz
+     * @return the buffer for the quiz size
+     */
+    private Buffer buffer(int numberOfQuestions) {
+        return buffers.computeIfAbsent(numberOfQuestions, n -> new Buffer(n, highWatermark));
+    }
+
+    /**
+     * Submits a refill of the given buffer to the background worker, unless one is already pending.
+     *
+     * @param buffer the buffer to refill
+     */
+    private void scheduleRefill(Buffer buffer) {
+        if (refillWorker.isShutdown() || !buffer.refilling.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            refillWorker.execute(() -> refill(buffer));
+        } catch (RuntimeException e) {
+            buffer.refilling.set(false);
+        }
+    }
+
+    /**
+     * Fills the given buffer up to the high watermark, generating the missing quizzes in one parallel batch.
+     *
+     * @param buffer the buffer to refill
+     */
+    private void refill(Buffer buffer) {
+        try {
+            int missing = highWatermark - buffer.quizzes.size();
+            if (missing > 0) {
+                // Read before generating, so a batch that races with a pool change is tagged as the older version
+                long version = quizGenerator.getPoolVersion();
+                for (Quiz quiz : quizGenerator.generateQuizzes(buffer.numberOfQuestions, missing)) {
+                    if (!buffer.quizzes.offer(new PreparedQuiz(quiz, version))) {
+                        break;
+                    }
+                }
+            }
+        } finally {
+            buffer.refilling.set(false);
+        }
+        // Quizzes taken while this refill was running may have drained the buffer again
+        if (buffer.quizzes.size() <= lowWatermark) {
+            scheduleRefill(buffer);
+        }
+    }
+
+    /**
+     * PreparedQuiz - a buffered quiz and the version of the pool it was drawn from.
+     */
+    private static final class PreparedQuiz {
+        final Quiz quiz;
+        final long poolVersion;
+
+        PreparedQuiz(Quiz quiz, long poolVersion) {
+            this.quiz = quiz;
+            this.poolVersion = poolVersion;
+        }
+    }
+
+    /**
+     * Buffer - the ready quizzes of a single size and a flag marking whether a refill is pending.
+     */
+    private static final class Buffer {
+        final int numberOfQuestions;
+        final ArrayBlockingQueue<PreparedQuiz> quizzes;
+        final AtomicBoolean refilling = new AtomicBoolean();
+
+        Buffer(int numberOfQuestions, int capacity) {
+            this.numberOfQuestions = numberOfQuestions;
+            this.quizzes = new ArrayBlockingQueue<>(capacity);
+        }
+    }
+}
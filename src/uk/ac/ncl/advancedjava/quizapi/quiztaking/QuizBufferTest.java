@@ -0,0 +1,120 @@
+package uk.ac.ncl.advancedjava.quizapi.quiztaking;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import uk.ac.ncl.advancedjava.quizapi.questions.Question;
+import uk.ac.ncl.advancedjava.quizapi.questions.QuestionFactory;
+import uk.ac.ncl.advancedjava.quizapi.questions.QuestionType;
+
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class QuizBufferTest {
+
+    Set<Question> questionPool;
+    QuizBuffer quizBuffer;
+
+    @BeforeEach
+    void setUp() {
+        Question frq1 = QuestionFactory.getInstance(
+                QuestionType.FREE_RESPONSE,
+                "What is the capital of Italy?",
+                "Rome"
+        );
+        Question frq2 = QuestionFactory.getInstance(
+                QuestionType.FREE_RESPONSE,
+                "What is 5+5?",
+                "10"
+        );
+        Question mcq1 = QuestionFactory.getInstance(
+                QuestionType.MULTIPLE_CHOICE,
+                "Which planet is closest to the Sun?",
+                Map.of('A', "Venus", 'B', "Mercury"),
+                Set.of('B')
+        );
+        questionPool = Set.of(frq1, frq2, mcq1);
+        quizBuffer = new QuizBuffer(new QuizGenerator(questionPool), 2, 8);
+    }
+
+    @AfterEach
+    void tearDown() {
+        quizBuffer.close();
+        quizBuffer = null;
+        questionPool = null;
+    }
+
+    @Test
+    void take() throws InterruptedException {
+        quizBuffer.register(3);
+        waitForDepth(3, 8);
+
+        Quiz quiz = quizBuffer.take(3);
+        assertEquals(3, quiz.getQuestions().size());
+        assertTrue(questionPool.containsAll(quiz.getQuestions()));
+        assertEquals(1, quizBuffer.getHitCount());
+        assertEquals(0, quizBuffer.getMissCount());
+        assertEquals(7, quizBuffer.getDepth(3));
+
+        // Draining the buffer never hands out the same quiz twice and triggers a refill
+        Quiz next = quizBuffer.take(3);
+        assertNotSame(quiz, next);
+        for (int i = 0; i < 20; i++) {
+            assertNotNull(quizBuffer.take(3));
+        }
+        waitForDepth(3, 3);
+        assertEquals(22, quizBuffer.getHitCount() + quizBuffer.getMissCount());
+    }
+
+    @Test
+    void take_Miss() {
+        Quiz quiz = quizBuffer.take(2);
+        assertEquals(2, quiz.getQuestions().size());
+        assertEquals(1, quizBuffer.getMissCount());
+
+        assertThrowsExactly(IllegalArgumentException.class, () -> quizBuffer.take(4));
+        assertThrowsExactly(IllegalArgumentException.class, () -> quizBuffer.register(1));
+        assertEquals(0, quizBuffer.getDepth(4));
+        assertEquals(1, quizBuffer.getMissCount());
+    }
+
+    @Test
+    void take_DropsQuizzesFromRetiredPool() throws InterruptedException {
+        QuizGenerator quizGenerator = new QuizGenerator(questionPool);
+        quizBuffer.close();
+        quizBuffer = new QuizBuffer(quizGenerator, 2, 8);
+        quizBuffer.register(2);
+        waitForDepth(2, 8);
+
+        Question retired = QuestionFactory.getInstance(QuestionType.FREE_RESPONSE, "What is 5+5?", "10");
+        quizGenerator.updateQuestionPool(Set.of(), Set.of(retired));
+        Quiz quiz = quizBuffer.take(2);
+        assertFalse(quiz.getQuestions().contains(retired));
+        assertEquals(8, quizBuffer.getStaleCount());
+        assertEquals(1, quizBuffer.getMissCount());
+
+        // The refill draws from the current pool
+        waitForDepth(2, 8);
+        for (int i = 0; i < 8; i++) {
+            assertFalse(quizBuffer.take(2).getQuestions().contains(retired));
+        }
+        assertEquals(8, quizBuffer.getStaleCount());
+    }
+
+    @Test
+    void constructor() {
+        QuizGenerator quizGenerator = new QuizGenerator(questionPool);
+        assertThrowsExactly(IllegalArgumentException.class, () -> new QuizBuffer(quizGenerator, 4, 4));
+        assertThrowsExactly(IllegalArgumentException.class, () -> new QuizBuffer(quizGenerator, -1, 4));
+    }
+
+    private void waitForDepth(int numberOfQuestions, int depth) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (quizBuffer.getDepth(numberOfQuestions) < depth && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+        assertTrue(quizBuffer.getDepth(numberOfQuestions) >= depth);
+    }
+}
@@ -1,27 +1,59 @@
 package uk.ac.ncl.advancedjava.quizapi.quiztaking;
 
+import uk.ac.ncl.advancedjava.quizapi.metrics.MetricsRegistry;
+import uk.ac.ncl.advancedjava.quizapi.metrics.OperationMetrics;
 import uk.ac.ncl.advancedjava.quizapi.questions.Question;
 import uk.ac.ncl.advancedjava.quizapi.questions.QuestionType;
 
+import java.time.Duration;
 import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.random.RandomGenerator;
 
 /**
  * QuizGenerator - responsible for generating quizzes from a pool of questions.
  * It supports both regular and revision quizzes, ensuring that quizzes contain a mix of free-response
  * and multiple-choice questions. For revision quizzes, it only selects questions that were not seen yet
  * or were answered incorrectly in the past by the student.
+ * The pool is partitioned by question type once per version, and questions are drawn with Floyd's sampling
+ * algorithm, so generating a quiz of {@code k} questions costs O(k) regardless of the size of the pool.
+ * Each partition is also kept as a bitset of question IDs, so revision candidates are found by subtracting the
+ * student's correctly answered questions from the pool a 64-bit word at a time.
+ * Quizzes can also be generated with weighted selection, which favours questions of a useful difficulty according to
+ * {@link ItemAnalytics}. Weighted draws use alias tables that are built by the first weighted draw from each snapshot,
+ * so generators that never draw weighted quizzes and changes to the pool do not pay for them, and rebuilt
+ * periodically in the background as the statistics change.
+ * Quizzes restricted to certain topics are answered from an inverted index of the pool's topic tags.
+ * The pool can be changed while quizzes are being generated. All the structures above live in an immutable
+ * {@link QuestionPool} snapshot; every quiz is drawn from a single snapshot, and changes are published as a new
+ * snapshot with a compare-and-set, so neither readers nor writers ever block.
+ * The duration and failures of generating regular, weighted and revision quizzes are recorded in the
+ * {@link MetricsRegistry}.
  *
  * @author Filip Kovarik
  */
 public final class QuizGenerator {
 
-    private final Set<Question> questionPool;
+    private static final OperationMetrics GENERATE_QUIZ_METRICS = MetricsRegistry.operation("generateQuiz");
+    private static final OperationMetrics GENERATE_WEIGHTED_QUIZ_METRICS =
+            MetricsRegistry.operation("generateWeightedQuiz");
+    private static final OperationMetrics REVISE_METRICS = MetricsRegistry.operation("revise");
+
+    private final AtomicReference<QuestionPool> pool;
+
+    private final AtomicReference<WeightTables> weightTables;
+    private volatile long weightRefreshInterval = Duration.ofMinutes(1).toNanos();
+    private final AtomicBoolean refreshingWeights = new AtomicBoolean();
 
     /**
      * Constructs a new {@code QuizGenerator} with an empty question pool.
      */
     public QuizGenerator() {
-        questionPool = new HashSet<>();
+        this(Set.of());
     }
 
     /**
@@ -30,7 +62,50 @@ public final class QuizGenerator {
      * @param questionPool the pool of questions from which quizzes will be generated.
      */
     public QuizGenerator(Set<Question> questionPool) {
-        this.questionPool = new HashSet<>(questionPool);
+        QuestionPool initial = new QuestionPool(0, new HashSet<>(questionPool));
+        this.pool = new AtomicReference<>(initial);
+        this.weightTables = new AtomicReference<>();
+    }
+
+    /**
+     * Atomically adds and removes questions from the pool. The change is built as a new snapshot of the pool and
+     * published in one step, so every quiz is drawn either entirely before or entirely after it, and quizzes being
+     * generated concurrently are not blocked. Concurrent changes are all applied, each on top of the other.
+     * Questions that are both added and removed end up removed.
+     *
+     * @param added   the questions to add to the pool
+     * @param removed the questions to remove from the pool
+     * @return the version number of the pool after the change
+     */
+    public long updateQuestionPool(Collection<Question> added, Collection<Question> removed) {
+        List<Question> addedCopy = List.copyOf(added);
+        List<Question> removedCopy = List.copyOf(removed);
+        while (true) {
+            QuestionPool current = pool.get();
+            QuestionPool updated = current.withChanges(addedCopy, removedCopy);
+            if (pool.compareAndSet(current, updated)) {
+                return updated.getVersion();
+            }
+        }
+    }
+
+    /**
+     * Returns the questions currently in the pool.
+     *
+     * @return an unmodifiable snapshot of the question pool
+     */
+    public Set<Question> getQuestionPool() {
+        return pool.get().getQuestions();
+    }
+
+    /**
+     * Returns the version number of the question pool, which starts at 0 and is incremented by every
+     * {@link #updateQuestionPool(Collection, Collection)}.
+     *
+     * @return the current version of the pool
+     */
+    public long getPoolVersion() {
+        return pool.get().getVersion();
     }
 
     /**
@@ -43,155 +118,579 @@ public final class QuizGenerator {
      * @throws IllegalArgumentException if the number of questions selected is less than 2
      */
     public Quiz generateQuiz(int numberOfQuestions) {
-        List<Question> freeResponseQuestions = filterQuestionsByType(QuestionType.FREE_RESPONSE);
-        List<Question> multipleChoiceQuestions = filterQuestionsByType(QuestionType.MULTIPLE_CHOICE);
+        long start = System.nanoTime();
+        try {
+            QuestionPool questionPool = pool.get();
+            checkRegularQuiz(questionPool, numberOfQuestions);
+            Quiz quiz = generateQuiz(questionPool, numberOfQuestions, ThreadLocalRandom.current());
+            GENERATE_QUIZ_METRICS.recordSuccess(start);
+            return quiz;
+        } catch (RuntimeException e) {
+            GENERATE_QUIZ_METRICS.recordFailure();
+            throw e;
+        }
+    }
 
-        if (freeResponseQuestions.isEmpty() || multipleChoiceQuestions.isEmpty()) {
-            throw new IllegalStateException("The question pool must contain questions of both types");
+    /**
+     * Generates a regular quiz with the specified number of questions, drawn only from the questions matching the
+     * given topic filter, for example {@code TopicFilter.anyOf("CSC8014-week1", "CSC8014-week2").excluding("hard")}.
+     * The matching questions are found through the topic index without scanning the pool.
+     * The quiz will contain a mix of free-response and multiple-choice questions.
+     *
+     * @param numberOfQuestions the number of questions to include in the quiz
+     * @param topicFilter       the topics to draw the questions from
+     * @return a {@code Quiz} containing the randomly-picked questions
+     * @throws IllegalStateException if there are no free-response or multiple-choice questions matching the filter
+     * @throws IllegalArgumentException if the number of questions selected is less than 2 or if there are not enough
+     *                                  questions matching the filter
+     */
+    public Quiz generateQuiz(int numberOfQuestions, TopicFilter topicFilter) {
+        long start = System.nanoTime();
+        try {
+            Quiz quiz = generateTopicQuiz(pool.get(), numberOfQuestions, topicFilter);
+            GENERATE_QUIZ_METRICS.recordSuccess(start);
+            return quiz;
+        } catch (RuntimeException e) {
+            GENERATE_QUIZ_METRICS.recordFailure();
+            throw e;
         }
+    }
 
-        List<Question> selectedQuestions = getRandomQuestions(freeResponseQuestions, multipleChoiceQuestions,
-                numberOfQuestions, false);
+    /**
+     * Generates a regular quiz from the questions of a pool snapshot matching the given topic filter.
+     *
+     * @param questionPool      the pool snapshot to draw from
+     * @param numberOfQuestions the number of questions to include in the quiz
+     * @param topicFilter       the topics to draw the questions from
+     * @return a {@code Quiz} containing the randomly-picked questions
+     * @throws IllegalStateException if there are no free-response or multiple-choice questions matching the filter
+     * @throws IllegalArgumentException if the number of questions selected is less than 2 or if there are not enough
+     *                                  questions matching the filter
+     */
+    private static Quiz generateTopicQuiz(QuestionPool questionPool, int numberOfQuestions,
+                                          TopicFilter topicFilter) {
+        int[] ids = questionPool.getTopicIndex().resolve(topicFilter);
+
+        Question[] freeResponseCandidates = new Question[ids.length];
+        Question[] multipleChoiceCandidates = new Question[ids.length];
+        int freeResponseCount = 0;
+        int multipleChoiceCount = 0;
+        for (int id : ids) {
+            Question question = questionPool.getQuestion(id);
+            if (question.getType() == QuestionType.FREE_RESPONSE) {
+                freeResponseCandidates[freeResponseCount++] = question;
+            } else {
+                multipleChoiceCandidates[multipleChoiceCount++] = question;
+            }
+        }
+
+        if (freeResponseCount == 0 || multipleChoiceCount == 0) {
+            throw new IllegalStateException("The selected topics must contain questions of both types");
+        }
+
+        Question[] selectedQuestions = getRandomQuestions(freeResponseCandidates, freeResponseCount,
+                multipleChoiceCandidates, multipleChoiceCount, numberOfQuestions, false, ThreadLocalRandom.current());
 
         return new Quiz(selectedQuestions);
     }
 
     /**
-     * Generates a revision quiz for the provided student statistics. The quiz will only include questions
-     * that the student has not seen before or answered incorrectly in the past, ensuring it is targeted for revision.
+     * Generates the given number of regular quizzes in parallel, for example for every student at the start of
+     * an exam sitting. The work is split across the common {@link ForkJoinPool}, and each task draws from its own
+     * {@link SplittableRandom} split off from the parent, so workers do not contend on a shared random source.
+     * Every quiz has the same guarantees as one returned by {@link #generateQuiz(int)}, and all of them are drawn
+     * from the same version of the pool.
      *
-     * @param studentStats      the student's statistics to base the revision quiz on
-     * @param numberOfQuestions the number of questions to include in the revision quiz
+     * @param questionsPerQuiz the number of questions to include in each quiz
+     * @param count            the number of quizzes to generate
+     * @return an unmodifiable list of {@code count} independently generated quizzes
+     * @throws IllegalStateException if there are no free-response or multiple-choice question in the pool.
+     * @throws IllegalArgumentException if the number of questions selected is less than 2, if there are not enough
+     *                                  questions in the pool, or if the number of quizzes is negative
+     */
+    public List<Quiz> generateQuizzes(int questionsPerQuiz, int count) {
+        if (count < 0) {
+            throw new IllegalArgumentException("The number of quizzes cannot be negative");
+        }
+        QuestionPool questionPool = pool.get();
+        checkRegularQuiz(questionPool, questionsPerQuiz);
+
+        Quiz[] quizzes = new Quiz[count];
+        ForkJoinPool.commonPool().invoke(new QuizGenerationTask(questionPool, quizzes, 0, count, questionsPerQuiz,
+                new SplittableRandom()));
+
+        return Collections.unmodifiableList(Arrays.asList(quizzes));
+    }
+
+    /**
+     * Generates a regular quiz with the specified number of questions, drawing questions in proportion to how useful
+     * their difficulty is. A question's weight is {@code p(1 - p)}, where {@code p} is the smoothed proportion of
+     * correct answers recorded by {@link ItemAnalytics}, so questions that about half of the cohort gets right are
+     * preferred and questions nobody has attempted yet are treated as such. Each draw takes O(1) time.
+     * The quiz contains at least one free-response and one multiple-choice question.
+     *
+     * @param numberOfQuestions the number of questions to include in the quiz
      * @return a {@code Quiz} containing the randomly-picked questions
-     * @throws IllegalArgumentException if the number of questions is less than 1
+     * @throws IllegalStateException if there are no free-response or multiple-choice question in the pool.
+     * @throws IllegalArgumentException if the number of questions selected is less than 2 or if there are not enough
+     *                                  questions in the pool
      */
-    public Quiz revise(StudentStatistics studentStats, int numberOfQuestions) {
-        List<Question> unseenOrIncorrectQuestions = getUnseenOrIncorrectQuestions(studentStats);
+    public Quiz generateWeightedQuiz(int numberOfQuestions) {
+        long start = System.nanoTime();
+        try {
+            Quiz quiz = generateWeightedQuiz(getWeightTables(), numberOfQuestions);
+            GENERATE_WEIGHTED_QUIZ_METRICS.recordSuccess(start);
+            return quiz;
+        } catch (RuntimeException e) {
+            GENERATE_WEIGHTED_QUIZ_METRICS.recordFailure();
+            throw e;
+        }
+    }
 
-        List<Question> freeResponseQuestions = filterQuestionsByType(unseenOrIncorrectQuestions,
-                QuestionType.FREE_RESPONSE);
-        List<Question> multipleChoiceQuestions = filterQuestionsByType(unseenOrIncorrectQuestions,
-                QuestionType.MULTIPLE_CHOICE);
+    /**
+     * Generates a weighted regular quiz from the pool snapshot the given alias tables were built for.
+     *
+     * @param tables            the alias tables to draw with
+     * @param numberOfQuestions the number of questions to include in the quiz
+     * @return a {@code Quiz} containing the randomly-picked questions
+     */
+    private Quiz generateWeightedQuiz(WeightTables tables, int numberOfQuestions) {
+        QuestionPool questionPool = tables.pool;
+        checkRegularQuiz(questionPool, numberOfQuestions);
+        RandomGenerator random = ThreadLocalRandom.current();
 
-        List<Question> selectedQuestions = getRandomQuestions(freeResponseQuestions, multipleChoiceQuestions,
-                numberOfQuestions, true);
+        Question[] freeResponseQuestions = questionPool.getFreeResponseQuestions();
+        Question[] multipleChoiceQuestions = questionPool.getMultipleChoiceQuestions();
+        int freeResponseCount = freeResponseQuestions.length;
+        int poolSize = questionPool.size();
+        int[] drawn = new int[Integer.highestOneBit(numberOfQuestions * 2 - 1) << 1];
+        int mask = drawn.length - 1;
+        int[] selected = new int[numberOfQuestions];
+        int selectedCount = 0;
+
+        selected[selectedCount] = tables.freeResponse.sample(random);
+        addIndex(drawn, mask, selected[selectedCount++]);
+        selected[selectedCount] = freeResponseCount + tables.multipleChoice.sample(random);
+        addIndex(drawn, mask, selected[selectedCount++]);
+
+        // Draws that hit an already selected question are rejected; the attempt limit only matters when the quiz
+        // takes up most of the pool, in which case the rest is filled in pool order from a random starting point
+        int attempts = 16 * numberOfQuestions + 64;
+        while (selectedCount < numberOfQuestions && attempts-- > 0) {
+            int index = tables.combined.sample(random);
+            if (addIndex(drawn, mask, index)) {
+                selected[selectedCount++] = index;
+            }
+        }
+        int start = random.nextInt(poolSize);
+        for (int i = 0; selectedCount < numberOfQuestions; i++) {
+            int index = (start + i) % poolSize;
+            if (addIndex(drawn, mask, index)) {
+                selected[selectedCount++] = index;
+            }
+        }
+
+        Question[] selectedQuestions = new Question[numberOfQuestions];
+        for (int i = 0; i < numberOfQuestions; i++) {
+            int index = selected[i];
+            selectedQuestions[i] = index < freeResponseCount
+                    ? freeResponseQuestions[index]
+                    : multipleChoiceQuestions[index - freeResponseCount];
+        }
 
         return new Quiz(selectedQuestions);
     }
 
     /**
-     * Filters questions from the pool based on their type (free-response or multiple-choice).
+     * Rebuilds the alias tables used by {@link #generateWeightedQuiz(int)} from the current {@link ItemAnalytics}.
+     * The new tables are published atomically, so concurrent generation keeps using the previous ones until then.
+     */
+    public void refreshWeights() {
+        publishWeightTables(new WeightTables(pool.get()));
+    }
+
+    /**
+     * Sets how old the alias tables may get before {@link #generateWeightedQuiz(int)} rebuilds them in the
+     * background. The default is one minute.
      *
-     * @param type the type of questions to filter by
-     * @return a list of questions of the specified type
+     * @param interval the maximum age of the weights
+     * @throws IllegalArgumentException if the interval is negative
      */
-    private List<Question> filterQuestionsByType(QuestionType type) {
-        List<Question> filteredQuestions = new ArrayList<>();
-        for (Question question : questionPool) {
-            if (question.getType() == type) {
-                filteredQuestions.add(question);
-            }
+    public void setWeightRefreshInterval(Duration interval) {
+        if (interval.isNegative()) {
+            throw new IllegalArgumentException("The refresh interval cannot be negative");
         }
+        weightRefreshInterval = interval.toNanos();
+    }
 
-        return filteredQuestions;
+    /**
+     * Returns the alias tables for the current snapshot of the pool, building them on the calling thread if they have
+     * not been built for it yet. Once they are older than the refresh interval, a single rebuild is started on the
+     * common {@link ForkJoinPool} and the old tables are returned in the meantime.
+     *
+     * @return the current weight tables
+     */
+    private WeightTables getWeightTables() {
+        QuestionPool current = pool.get();
+        WeightTables tables = weightTables.get();
+        if (tables == null || tables.pool.getVersion() < current.getVersion()) {
+            return publishWeightTables(new WeightTables(current));
+        }
+        if (System.nanoTime() - tables.builtAt > weightRefreshInterval
+                && refreshingWeights.compareAndSet(false, true)) {
+            ForkJoinPool.commonPool().execute(() -> {
+                try {
+                    refreshWeights();
+                } finally {
+                    refreshingWeights.set(false);
+                }
+            });
+        }
+        return tables;
     }
 
     /**
-     * Filters questions from the provided list based on their type (free-response or multiple-choice).
+     * Publishes newly built alias tables, unless tables for a newer version of the pool have been published in the
+     * meantime by a concurrent draw or refresh.
      *
-     * @param questions the list of questions to filter from
-     * @param type      the type of questions to filter by
-     * @return a list of questions of the specified type
+     * @param built the newly built tables
+     * @return the published tables
      */
-    private List<Question> filterQuestionsByType(List<Question> questions, QuestionType type) {
-        List<Question> filteredQuestions = new ArrayList<>();
-        for (Question question : questions) {
-            if (question.getType() == type) {
-                filteredQuestions.add(question);
-            }
+    private WeightTables publishWeightTables(WeightTables built) {
+        return weightTables.accumulateAndGet(built, (current, candidate) ->
+                current == null || candidate.pool.getVersion() >= current.pool.getVersion() ? candidate : current);
+    }
+
+    /**
+     * Calculates the selection weight of a question from its cohort statistics. The proportion of correct answers
+     * is smoothed with one correct and one incorrect pseudo-answer, so the weight is always positive.
+     *
+     * @param question the question to weigh
+     * @return the weight of the question, between 0 and 0.25
+     */
+    static double weight(Question question) {
+        double p = (ItemAnalytics.getCorrectCount(question) + 1.0) / (ItemAnalytics.getAttemptCount(question) + 2.0);
+        return p * (1 - p);
+    }
+
+    /**
+     * Generates a regular quiz from the given snapshot of the pool using the given source of randomness.
+     * The arguments must already be checked with {@link #checkRegularQuiz(QuestionPool, int)}.
+     *
+     * @param questionPool      the snapshot of the pool to draw from
+     * @param numberOfQuestions the number of questions to include in the quiz
+     * @param random            the source of randomness
+     * @return a {@code Quiz} containing the randomly-picked questions
+     */
+    private static Quiz generateQuiz(QuestionPool questionPool, int numberOfQuestions, RandomGenerator random) {
+        Question[] freeResponseQuestions = questionPool.getFreeResponseQuestions();
+        Question[] multipleChoiceQuestions = questionPool.getMultipleChoiceQuestions();
+        Question[] selectedQuestions = getRandomQuestions(freeResponseQuestions, freeResponseQuestions.length,
+                multipleChoiceQuestions, multipleChoiceQuestions.length, numberOfQuestions, false, random);
+
+        return new Quiz(selectedQuestions);
+    }
+
+    /**
+     * Checks that a regular quiz with the given number of questions can be generated from the pool.
+     *
+     * @param questionPool      the snapshot of the pool to check
+     * @param numberOfQuestions the number of questions to include in the quiz
+     * @throws IllegalStateException if there are no free-response or multiple-choice question in the pool.
+     * @throws IllegalArgumentException if the number of questions selected is less than 2 or if there are not enough
+     *                                  questions in the pool
+     */
+    private static void checkRegularQuiz(QuestionPool questionPool, int numberOfQuestions) {
+        if (questionPool.getFreeResponseQuestions().length == 0
+                || questionPool.getMultipleChoiceQuestions().length == 0) {
+            throw new IllegalStateException("The question pool must contain questions of both types");
+        } else if (numberOfQuestions < 2) {
+            throw new IllegalArgumentException("You must select at least 2 questions to generate a quiz");
+        } else if (numberOfQuestions > questionPool.size()) {
+            throw new IllegalArgumentException("Not enough questions in the pool for the chosen amount");
         }
+    }
+
+    /**
+     * Generates a revision quiz for the provided student statistics. The quiz will only include questions
+     * that the student has not seen before or answered incorrectly in the past, ensuring it is targeted for revision.
+     *
+     * @param studentStats      the student's statistics to base the revision quiz on
+     * @param numberOfQuestions the number of questions to include in the revision quiz
+     * @return a {@code Quiz} containing the randomly-picked questions
+     * @throws IllegalArgumentException if the number of questions is less than 1
+     */
+    public Quiz revise(StudentStatistics studentStats, int numberOfQuestions) {
+        long start = System.nanoTime();
+        try {
+            Quiz quiz = generateRevisionQuiz(studentStats, numberOfQuestions);
+            REVISE_METRICS.recordSuccess(start);
+            return quiz;
+        } catch (RuntimeException e) {
+            REVISE_METRICS.recordFailure();
+            throw e;
+        }
+    }
+
+    /**
+     * Generates a revision quiz of questions the student has not seen before or answered incorrectly.
+     *
+     * @param studentStats      the student's statistics to base the revision quiz on
+     * @param numberOfQuestions the number of questions to include in the revision quiz
+     * @return a {@code Quiz} containing the randomly-picked questions
+     * @throws IllegalArgumentException if the number of questions is less than 1
+     */
+    private Quiz generateRevisionQuiz(StudentStatistics studentStats, int numberOfQuestions) {
+        QuestionPool questionPool = pool.get();
 
-        return filteredQuestions;
+        Question[] freeResponseCandidates = getUnseenOrIncorrectQuestions(questionPool.getFreeResponse(),
+                studentStats);
+        Question[] multipleChoiceCandidates = getUnseenOrIncorrectQuestions(questionPool.getMultipleChoice(),
+                studentStats);
+
+        Question[] selectedQuestions = getRandomQuestions(freeResponseCandidates, freeResponseCandidates.length,
+                multipleChoiceCandidates, multipleChoiceCandidates.length, numberOfQuestions, true,
+                ThreadLocalRandom.current());
+
+        return new Quiz(selectedQuestions);
     }
 
     /**
-     * Randomly selects a specified number of questions from the given lists of free-response and multiple-choice
+     * Randomly selects a specified number of questions from the given arrays of free-response and multiple-choice
      * questions. Ensures at least one question of each type is selected if the quiz is not a revision.
+     * Only the first {@code freeResponseCount} and {@code multipleChoiceCount} elements of the arrays are used,
+     * and the arrays are not modified.
      *
-     * @param freeResponseQuestions     the list of free-response questions
-     * @param multipleChoiceQuestions   the list of multiple-choice questions
+     * @param freeResponseQuestions     the free-response questions
+     * @param freeResponseCount         the number of free-response questions to choose from
+     * @param multipleChoiceQuestions   the multiple-choice questions
+     * @param multipleChoiceCount       the number of multiple-choice questions to choose from
      * @param numberOfQuestions         the total number of questions to select
      * @param isRevision                whether the quiz is a revision quiz
-     * @return a list of randomly selected questions
+     * @param random                    the source of randomness
+     * @return an array of randomly selected questions
      * @throws IllegalArgumentException if there are not enough questions available in the pool
      */
-    private List<Question> getRandomQuestions(List<Question> freeResponseQuestions,
-                                              List<Question> multipleChoiceQuestions, int numberOfQuestions,
-                                              boolean isRevision) {
+    static Question[] getRandomQuestions(Question[] freeResponseQuestions, int freeResponseCount,
+                                         Question[] multipleChoiceQuestions, int multipleChoiceCount,
+                                         int numberOfQuestions, boolean isRevision, RandomGenerator random) {
         if (!isRevision && numberOfQuestions < 2) {
             throw new IllegalArgumentException("You must select at least 2 questions to generate a quiz");
         } else if (isRevision && numberOfQuestions < 1) {
             throw new IllegalArgumentException("You must select at least 1 question to generate a revision quiz");
+        } else if (numberOfQuestions > freeResponseCount + multipleChoiceCount) {
+            throw new IllegalArgumentException("Not enough questions in the pool for the chosen amount");
         }
 
-        List<Question> selectedQuestions = new ArrayList<>();
+        Question[] selectedQuestions = new Question[numberOfQuestions];
+        int selectedCount = 0;
+        // Positions of the already selected questions in the combined index space, in ascending order
+        int firstExcluded = -1;
+        int secondExcluded = -1;
 
         // Only add one from each type if the requested number is 2 or more for regular quizzes
         if (!isRevision || numberOfQuestions >= 2) {
-            if (!freeResponseQuestions.isEmpty()) {
-                selectedQuestions.add(freeResponseQuestions.remove(0));
+            if (freeResponseCount > 0) {
+                firstExcluded = random.nextInt(freeResponseCount);
+                selectedQuestions[selectedCount++] = freeResponseQuestions[firstExcluded];
             }
-            if (!multipleChoiceQuestions.isEmpty()) {
-                selectedQuestions.add(multipleChoiceQuestions.remove(0));
+            if (multipleChoiceCount > 0) {
+                int index = random.nextInt(multipleChoiceCount);
+                selectedQuestions[selectedCount++] = multipleChoiceQuestions[index];
+                secondExcluded = freeResponseCount + index;
             }
         }
 
-        List<Question> combinedPool = new ArrayList<>();
-        combinedPool.addAll(freeResponseQuestions);
-        combinedPool.addAll(multipleChoiceQuestions);
-
-        int remainingQuestions = numberOfQuestions - selectedQuestions.size();
-        if (remainingQuestions > 0) {
-            selectedQuestions.addAll(getQuestions(combinedPool, remainingQuestions));
+        int remainingQuestions = numberOfQuestions - selectedCount;
+        int[] indexes = sampleIndexes(freeResponseCount + multipleChoiceCount - selectedCount, remainingQuestions,
+                random);
+        for (int index : indexes) {
+            // Skip over the positions of the questions that were already selected
+            if (firstExcluded >= 0 && index >= firstExcluded) {
+                index++;
+            }
+            if (secondExcluded >= 0 && index >= secondExcluded) {
+                index++;
+            }
+            selectedQuestions[selectedCount++] = index < freeResponseCount
+                    ? freeResponseQuestions[index]
+                    : multipleChoiceQuestions[index - freeResponseCount];
         }
 
         return selectedQuestions;
     }
 
     /**
-     * Randomly selects the specified number of questions from the provided list.
+     * Draws {@code count} distinct indexes from {@code [0, bound)} in random order using Floyd's sampling algorithm
+     * followed by a Fisher-Yates shuffle of the sample. Both steps are O(count), independent of {@code bound}.
      *
-     * @param questions         the list of questions to select from
-     * @param numberOfQuestions the number of questions to select
-     * @return a list of randomly selected questions
-     * @throws IllegalArgumentException if there are not enough questions available
+     * @param bound  the exclusive upper bound of the indexes
+     * @param count  the number of indexes to draw, at most {@code bound}
+     * @param random the source of randomness
+     * @return an array of {@code count} distinct indexes
      */
-    private List<Question> getQuestions(List<Question> questions, int numberOfQuestions) {
-        if (numberOfQuestions > questions.size()) {
-            throw new IllegalArgumentException("Not enough questions in the pool for the chosen amount");
+    static int[] sampleIndexes(int bound, int count, RandomGenerator random) {
+        int[] sample = new int[count];
+        if (count == 0) {
+            return sample;
+        }
+        // Open-addressing set of the indexes drawn so far, storing index + 1 so that 0 marks an empty slot
+        int[] drawn = new int[Integer.highestOneBit(count * 2 - 1) << 1];
+        int mask = drawn.length - 1;
+
+        int size = 0;
+        for (int j = bound - count; j < bound; j++) {
+            int candidate = random.nextInt(j + 1);
+            if (!addIndex(drawn, mask, candidate)) {
+                candidate = j;
+                addIndex(drawn, mask, candidate);
+            }
+            sample[size++] = candidate;
         }
 
-        Collections.shuffle(questions);
+        for (int i = count - 1; i > 0; i--) {
+            int swap = random.nextInt(i + 1);
+            int temp = sample[i];
+            sample[i] = sample[swap];
+            sample[swap] = temp;
+        }
+        return sample;
+    }
 
-        return questions.subList(0, numberOfQuestions);
+    /**
+     * Adds an index to the open-addressing set used when sampling distinct indexes.
+     *
+     * @param drawn the set table
+     * @param mask  the table length minus one
+     * @param index the index to add
+     * @return {@code true} if the index was added, {@code false} if it was already present
+     */
+    static boolean addIndex(int[] drawn, int mask, int index) {
+        int slot = (index * 0x9E3779B9) & mask;
+        while (drawn[slot] != 0) {
+            if (drawn[slot] == index + 1) {
+                return false;
+            }
+            slot = (slot + 1) & mask;
+        }
+        drawn[slot] = index + 1;
+        return true;
     }
 
     /**
-     * Retrieves a list of questions that the student has not yet seen or has answered incorrectly.
+     * Retrieves the questions from a pool partition that the student has not yet seen or has answered incorrectly,
+     * by clearing the student's correctly answered questions from a copy of the partition's ID bitset.
      *
-     * @param studentStats the student's statistics to determine which questions are unseen or incorrect
-     * @return a list of unseen or incorrect questions
+     * @param partition         the partition of the pool
+     * @param studentStats      the student's statistics
+     * @return an array of unseen or incorrect questions
      */
-    private List<Question> getUnseenOrIncorrectQuestions(StudentStatistics studentStats) {
-        List<Question> unseenOrIncorrect = new ArrayList<>();
-        Map<Question, Boolean> questionHistory = studentStats.getQuestionHistory();
+    private static Question[] getUnseenOrIncorrectQuestions(QuestionPool.Partition partition,
+                                                            StudentStatistics studentStats) {
+        long[] candidateIds = partition.words.clone();
+        studentStats.removeCorrect(partition.blocks, candidateIds);
+
+        int count = 0;
+        for (long word : candidateIds) {
+            count += Long.bitCount(word);
+        }
 
-        for (Question question : questionPool) {
-            if (!questionHistory.containsKey(question) || questionHistory.get(question) == false) {
-                unseenOrIncorrect.add(question);
+        Question[] unseenOrIncorrect = new Question[count];
+        int index = 0;
+        for (int i = 0; i < candidateIds.length; i++) {
+            long word = candidateIds[i];
+            while (word != 0) {
+                unseenOrIncorrect[index++] = partition.get(i, Long.numberOfTrailingZeros(word));
+                word &= word - 1;
             }
         }
 
         return unseenOrIncorrect;
     }
+
+    /**
+     * QuizGenerationTask - fills a range of a pre-sized array with regular quizzes, splitting the range in half
+     * (together with its random source) until it is small enough to generate sequentially.
+     */
+    @SuppressWarnings("serial") // Tasks are never serialized, and RecursiveAction is only nominally Serializable
+    private static final class QuizGenerationTask extends RecursiveAction {
+
+        private static final int THRESHOLD = 256;
+
+        private final QuestionPool questionPool;
+        private final Quiz[] quizzes;
+        private final int from;
+        private final int to;
+        private final int questionsPerQuiz;
+        private final SplittableRandom random;
+
+        QuizGenerationTask(QuestionPool questionPool, Quiz[] quizzes, int from, int to, int questionsPerQuiz,
+                           SplittableRandom random) {
+            this.questionPool = questionPool;
+            this.quizzes = quizzes;
+            this.from = from;
+            this.to = to;
+            this.questionsPerQuiz = questionsPerQuiz;
+            this.random = random;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= THRESHOLD) {
+                for (int i = from; i < to; i++) {
+                    quizzes[i] = generateQuiz(questionPool, questionsPerQuiz, random);
+                }
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            invokeAll(
+                    new QuizGenerationTask(questionPool, quizzes, from, middle, questionsPerQuiz, random.split()),
+                    new QuizGenerationTask(questionPool, quizzes, middle, to, questionsPerQuiz, random.split())
+            );
+        }
+    }
+
+    /**
+     * WeightTables - the alias tables for weighted selection, one per question type and one over the combined
+     * index space (free-response questions first, then multiple-choice questions), built for one snapshot of the pool.
+     * The table of a type the pool has no questions of is {@code null}.
+     */
+    private static final class WeightTables {
+        final QuestionPool pool;
+        final AliasTable freeResponse;
+        final AliasTable multipleChoice;
+        final AliasTable combined;
+        final long builtAt;
+
+        WeightTables(QuestionPool pool) {
+            double[] freeResponseWeights = weights(pool.getFreeResponseQuestions());
+            double[] multipleChoiceWeights = weights(pool.getMultipleChoiceQuestions());
+            double[] combinedWeights = Arrays.copyOf(freeResponseWeights,
+                    freeResponseWeights.length + multipleChoiceWeights.length);
+            System.arraycopy(multipleChoiceWeights, 0, combinedWeights, freeResponseWeights.length,
+                    multipleChoiceWeights.length);
+
+            this.pool = pool;
+            this.freeResponse = aliasTable(freeResponseWeights);
+            this.multipleChoice = aliasTable(multipleChoiceWeights);
+            this.combined = aliasTable(combinedWeights);
+            this.builtAt = System.nanoTime();
+        }
+
+        /**
+         * Builds an alias table, unless there is nothing to draw from. Quizzes are only drawn from pools that pass
+         * {@link #checkRegularQuiz(QuestionPool, int)}, so the missing tables of an empty partition are never used.
+         */
+        private static AliasTable aliasTable(double[] weights) {
+            return weights.length == 0 ? null : new AliasTable(weights);
+        }
+
+        private static double[] weights(Question[] questions) {
+            double[] weights = new double[questions.length];
+            for (int i = 0; i < questions.length; i++) {
+                weights[i] = weight(questions[i]);
+            }
+            return weights;
+        }
+    }
 }
@@ -8,9 +8,13 @@ import uk.ac.ncl.advancedjava.quizapi.questions.QuestionFactory;
 import uk.ac.ncl.advancedjava.quizapi.questions.QuestionType;
 
 import java.lang.reflect.Field;
+import java.time.Duration;
 import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.SplittableRandom;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -217,4 +221,150 @@ class QuizGeneratorTest {
         quiz = quizGenerator.revise(bobStats, 1);
         assertEquals(1, quiz.getQuestions().size());
     }
-}
\ No newline at end of file
+
+    @Test
+    void testSampleIndexes() {
+        SplittableRandom random = new SplittableRandom(42);
+        for (int count = 0; count <= 20; count++) {
+            int[] sample = QuizGenerator.sampleIndexes(20, count, random);
+            assertEquals(count, sample.length);
+            assertEquals(count, Arrays.stream(sample).distinct().count());
+            assertTrue(Arrays.stream(sample).allMatch(i -> i >= 0 && i < 20));
+        }
+
+        int[] sample = QuizGenerator.sampleIndexes(200_000, 10, random);
+        assertEquals(10, Arrays.stream(sample).distinct().count());
+    }
+
+    @Test
+    void testGenerateQuiz_AllQuestionsDistinct() {
+        for (int i = 0; i < 100; i++) {
+            Quiz quiz = quizGenerator.generateQuiz(5);
+            assertEquals(5, Set.copyOf(quiz.getQuestions()).size());
+        }
+        Quiz quiz = quizGenerator.generateQuiz(8);
+        assertEquals(questionPool, Set.copyOf(quiz.getQuestions()));
+    }
+
+    @Test
+    void testGenerateQuizzes() {
+        List<Quiz> quizzes = quizGenerator.generateQuizzes(4, 1000);
+
+        assertEquals(1000, quizzes.size());
+        for (Quiz quiz : quizzes) {
+            assertEquals(4, Set.copyOf(quiz.getQuestions()).size());
+            assertTrue(questionPool.containsAll(quiz.getQuestions()));
+            assertTrue(quiz.getQuestions().stream().anyMatch(q -> q.getType() == QuestionType.FREE_RESPONSE));
+            assertTrue(quiz.getQuestions().stream().anyMatch(q -> q.getType() == QuestionType.MULTIPLE_CHOICE));
+        }
+        assertThrows(UnsupportedOperationException.class, () -> quizzes.add(quizzes.get(0)));
+
+        assertTrue(quizGenerator.generateQuizzes(4, 0).isEmpty());
+        assertThrowsExactly(IllegalArgumentException.class, () -> quizGenerator.generateQuizzes(4, -1));
+        assertThrowsExactly(IllegalArgumentException.class, () -> quizGenerator.generateQuizzes(1, 10));
+        assertThrowsExactly(IllegalArgumentException.class, () -> quizGenerator.generateQuizzes(9, 10));
+        assertThrowsExactly(IllegalStateException.class, () ->
+                new QuizGenerator(Set.of(frq1, frq2)).generateQuizzes(2, 10));
+    }
+
+    @Test
+    void testGenerateWeightedQuiz() {
+        ItemAnalytics.reset();
+        for (int i = 0; i < 10; i++) {
+            // frq1 is always answered correctly, so it is the least useful question
+            ItemAnalytics.recordAnswer(frq1.getId(), true);
+            ItemAnalytics.recordAnswer(frq2.getId(), i % 2 == 0);
+        }
+        quizGenerator.refreshWeights();
+        assertTrue(QuizGenerator.weight(frq1) < QuizGenerator.weight(frq2));
+        assertEquals(0.25, QuizGenerator.weight(frq3));
+
+        int frq1Count = 0;
+        int frq2Count = 0;
+        for (int i = 0; i < 2000; i++) {
+            Quiz quiz = quizGenerator.generateWeightedQuiz(3);
+            assertEquals(3, Set.copyOf(quiz.getQuestions()).size());
+            assertTrue(quiz.getQuestions().stream().anyMatch(q -> q.getType() == QuestionType.FREE_RESPONSE));
+            assertTrue(quiz.getQuestions().stream().anyMatch(q -> q.getType() == QuestionType.MULTIPLE_CHOICE));
+            frq1Count += quiz.getQuestions().contains(frq1) ? 1 : 0;
+            frq2Count += quiz.getQuestions().contains(frq2) ? 1 : 0;
+        }
+        assertTrue(frq1Count < frq2Count);
+
+        // Asking for the whole pool still works through the fallback
+        assertEquals(questionPool, Set.copyOf(quizGenerator.generateWeightedQuiz(8).getQuestions()));
+        assertThrowsExactly(IllegalArgumentException.class, () -> quizGenerator.generateWeightedQuiz(9));
+        assertThrowsExactly(IllegalArgumentException.class, () -> quizGenerator.generateWeightedQuiz(1));
+        assertThrowsExactly(IllegalArgumentException.class, () ->
+                quizGenerator.setWeightRefreshInterval(Duration.ofSeconds(-1)));
+        ItemAnalytics.reset();
+    }
+
+    @Test
+    void testGenerateQuiz_WithTopics() {
+        Question javaFrq = QuestionFactory.getInstance(QuestionType.FREE_RESPONSE,
+                "Which keyword declares a constant in Java?", "final", Set.of("java"));
+        Question javaMcq = QuestionFactory.getInstance(QuestionType.MULTIPLE_CHOICE,
+                "Which of these are Java collections?", Map.of('A', "ArrayList", 'B', "int"), Set.of('A'),
+                Set.of("java"));
+        Question hardJavaMcq = QuestionFactory.getInstance(QuestionType.MULTIPLE_CHOICE,
+                "Which of these are Java memory areas?", Map.of('A', "Heap", 'B', "Cellar"), Set.of('A'),
+                Set.of("java", "hard"));
+        QuizGenerator topicGenerator = new QuizGenerator(Set.of(frq1, frq2, mcq1, javaFrq, javaMcq, hardJavaMcq));
+
+        Quiz quiz = topicGenerator.generateQuiz(2, TopicFilter.anyOf("java").excluding("hard"));
+        assertEquals(Set.of(javaFrq, javaMcq), Set.copyOf(quiz.getQuestions()));
+
+        quiz = topicGenerator.generateQuiz(3, TopicFilter.anyOf("java"));
+        assertEquals(Set.of(javaFrq, javaMcq, hardJavaMcq), Set.copyOf(quiz.getQuestions()));
+
+        assertThrowsExactly(IllegalArgumentException.class, () ->
+                topicGenerator.generateQuiz(4, TopicFilter.anyOf("java")));
+        assertThrowsExactly(IllegalStateException.class, () ->
+                topicGenerator.generateQuiz(2, TopicFilter.allOf("java", "hard")));
+    }
+
+    @Test
+    void testUpdateQuestionPool() {
+        assertEquals(0, quizGenerator.getPoolVersion());
+        assertEquals(questionPool, quizGenerator.getQuestionPool());
+
+        assertEquals(1, quizGenerator.updateQuestionPool(List.of(), List.of(frq1, frq2, frq3, mcq1, mcq2, mcq3)));
+        assertEquals(Set.of(frq4, mcq4), quizGenerator.getQuestionPool());
+        assertEquals(Set.of(frq4, mcq4), Set.copyOf(quizGenerator.generateQuiz(2).getQuestions()));
+        assertEquals(Set.of(frq4, mcq4), Set.copyOf(quizGenerator.generateWeightedQuiz(2).getQuestions()));
+        assertThrowsExactly(IllegalArgumentException.class, () -> quizGenerator.generateQuiz(3));
+
+        assertEquals(2, quizGenerator.updateQuestionPool(List.of(frq1), List.of(mcq4)));
+        assertThrowsExactly(IllegalStateException.class, () -> quizGenerator.generateQuiz(2));
+        assertEquals(Set.of(frq1, frq4), Set.copyOf(quizGenerator.revise(bobStats, 2).getQuestions()));
+
+        quizGenerator.updateQuestionPool(questionPool, List.of());
+        assertEquals(3, quizGenerator.getPoolVersion());
+        assertEquals(questionPool, Set.copyOf(quizGenerator.generateQuiz(8).getQuestions()));
+        assertThrows(UnsupportedOperationException.class, () -> quizGenerator.getQuestionPool().add(frq1));
+    }
+
+    @Test
+    void testUpdateQuestionPool_Concurrent() throws Exception {
+        Set<Question> retired = Set.of(frq3, mcq3);
+        Thread writer = new Thread(() -> {
+            for (int i = 0; i < 200; i++) {
+                quizGenerator.updateQuestionPool(List.of(), retired);
+                quizGenerator.updateQuestionPool(retired, List.of());
+            }
+        });
+        writer.start();
+        while (writer.isAlive()) {
+            for (Quiz quiz : quizGenerator.generateQuizzes(4, 50)) {
+                assertEquals(4, Set.copyOf(quiz.getQuestions()).size());
+                assertTrue(questionPool.containsAll(quiz.getQuestions()));
+            }
+            // Every version holds at least 6 questions, so a consistent snapshot can always fill this quiz
+            assertEquals(6, Set.copyOf(quizGenerator.generateQuiz(6).getQuestions()).size());
+        }
+        writer.join();
+        assertEquals(400, quizGenerator.getPoolVersion());
+        assertEquals(questionPool, quizGenerator.getQuestionPool());
+    }
+}
@@ -12,7 +12,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
-import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.*;
 
 class QuizTest {
 
@@ -105,4 +105,27 @@ class QuizTest {
     void testToString() {
         assertEquals(quiz.toString(), "Quiz{questions=" + quiz.getQuestions() + "}");
     }
-}
\ No newline at end of file
+
+    @Test
+    void getQuestionView() {
+        List<Question> view = quiz.getQuestionView();
+        assertEquals(questionList, view);
+        assertThrows(UnsupportedOperationException.class, () -> view.add(frq1));
+        assertThrows(UnsupportedOperationException.class, () -> view.remove(0));
+
+        quiz.removeQuestion(frq1);
+        assertEquals(List.of(frq2, mcq1, mcq2), view);
+        assertSame(view, quiz.getQuestionView());
+    }
+
+    @Test
+    void getQuestionAndSize() {
+        assertEquals(4, quiz.size());
+        for (int i = 0; i < quiz.size(); i++) {
+            assertEquals(questionList.get(i), quiz.getQuestion(i));
+        }
+        assertThrows(IndexOutOfBoundsException.class, () -> quiz.getQuestion(4));
+        assertThrows(IndexOutOfBoundsException.class, () -> quiz.getQuestion(-1));
+        assertEquals(0, new Quiz().size());
+    }
+}
@@ -0,0 +1,34 @@
+package uk.ac.ncl.advancedjava.quizapi.quiztaking;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * RecordBuffer - a reusable in-memory buffer for encoding binary records, whose contents can be written to a
+ * channel or a {@link StatisticsStore} without copying.
+ *
+ * @author Filip Kovarik - S24039999
+ */
+final class RecordBuffer extends ByteArrayOutputStream {
+
+    final DataOutputStream data = new DataOutputStream(this);
+
+    /**
+     * Returns the backing array of the buffer, valid up to {@link #size()}.
+     *
+     * @return the backing array
+     */
+    byte[] array() {
+        return buf;
+    }
+
+    /**
+     * Returns a buffer wrapping the contents, which is valid until the buffer is next written or reset.
+     *
+     * @return the contents as a byte buffer
+     */
+    ByteBuffer asByteBuffer() {
+        return ByteBuffer.wrap(buf, 0, count);
+    }
+}
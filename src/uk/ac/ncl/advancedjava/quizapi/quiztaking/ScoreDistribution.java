@@ -0,0 +1,231 @@
+package uk.ac.ncl.advancedjava.quizapi.quiztaking;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * ScoreDistribution - the cohort-wide distribution of quiz scores for one quiz configuration, that is regular or
+ * revision quizzes with a given number of questions, answering rank, percentile and top-N queries in O(log n).
+ * A quiz with {@code n} questions can only score {@code k / n} for {@code k} from 0 to {@code n}, so the scores are
+ * counted exactly in a histogram with one bucket per possible score, kept in a {@link FenwickTree}.
+ * Distributions are updated as attempts are added to {@link StudentStatistics} and can be queried at any time
+ * without locking the graders.
+ *
+ * @author Filip Kovarik - S24039999
+ */
+public final class ScoreDistribution {
+
+    private static final ConcurrentHashMap<Integer, ScoreDistribution> DISTRIBUTIONS = new ConcurrentHashMap<>();
+    // Tolerates the rounding error of scores computed as floats
+    private static final double TOLERANCE = 1e-4;
+
+    private final boolean isRevision;
+    private final int questionCount;
+    private final FenwickTree histogram;
+
+    /**
+     * Private constructor, distributions are obtained with {@link #getRegular(int)} and {@link #getRevision(int)}.
+     *
+     * @param isRevision    whether the distribution is of revision quizzes
+     * @param questionCount the number of questions in the quizzes
+     */
+    private ScoreDistribution(boolean isRevision, int questionCount) {
+        this.isRevision = isRevision;
+        this.questionCount = questionCount;
+        this.histogram = new FenwickTree(questionCount + 1);
+    }
+
+    /**
+     * Returns the distribution of the scores of regular quizzes with the given number of questions.
+     *
+     * @param questionCount the number of questions in the quizzes
+     * @return the score distribution
+     * @throws IllegalArgumentException if the number of questions is not positive
+     */
+    public static ScoreDistribution getRegular(int questionCount) {
+        return get(false, questionCount);
+    }
+
+    /**
+     * Returns the distribution of the scores of revision quizzes with the given number of questions.
+     *
+     * @param questionCount the number of questions in the quizzes
+     * @return the score distribution
+     * @throws IllegalArgumentException if the number of questions is not positive
+     */
+    public static ScoreDistribution getRevision(int questionCount) {
+        return get(true, questionCount);
+    }
+
+    /**
+     * Returns the distribution of the given configuration, creating it if it does not exist.
+     *
+     * @param isRevision    whether the distribution is of revision quizzes
+     * @param questionCount the number of questions in the quizzes
+     * @return the score distribution
+     * @throws IllegalArgumentException if the number of questions is not positive
+     */
+    private static ScoreDistribution get(boolean isRevision, int questionCount) {
+        if (questionCount < 1) {
+            throw new IllegalArgumentException("The number of questions must be positive");
+        }
+        int key = questionCount << 1 | (isRevision ? 1 : 0);
+        ScoreDistribution distribution = DISTRIBUTIONS.get(key);
+        if (distribution == null) {
+            distribution = DISTRIBUTIONS.computeIfAbsent(key, k -> new ScoreDistribution(isRevision, questionCount));
+        }
+        return distribution;
+    }
+
+    /**
+     * Adds a score to the distribution of its configuration, or removes it. Quizzes without questions have no
+     * meaningful score and are ignored.
+     *
+     * @param isRevision    whether the quiz is a revision quiz
+     * @param questionCount the number of questions in the quiz
+     * @param score         the score for the quiz
+     * @param delta         {@code 1} to add the score, {@code -1} to remove it
+     */
+    static void record(boolean isRevision, int questionCount, float score, int delta) {
+        if (questionCount < 1) {
+            return;
+        }
+        ScoreDistribution distribution = get(isRevision, questionCount);
+        int bucket = (int) Math.round(score * (double) questionCount);
+        distribution.histogram.add(Math.max(0, Math.min(questionCount, bucket)), delta);
+    }
+
+    /**
+     * Returns whether the distribution is of revision quizzes.
+     *
+     * @return {@code true} for revision quizzes, {@code false} for regular quizzes
+     */
+    public boolean isRevision() {
+        return isRevision;
+    }
+
+    /**
+     * Returns the number of questions in the quizzes of the distribution.
+     *
+     * @return the number of questions
+     */
+    public int getQuestionCount() {
+        return questionCount;
+    }
+
+    /**
+     * Returns the number of scores in the distribution.
+     *
+     * @return the number of scores
+     */
+    public long getCount() {
+        return histogram.total();
+    }
+
+    /**
+     * Returns the number of scores lower than the given score.
+     *
+     * @param score the score
+     * @return the number of lower scores
+     */
+    public long getCountBelow(float score) {
+        return histogram.prefixSum(firstBucketFrom(score));
+    }
+
+    /**
+     * Returns the number of scores higher than the given score.
+     *
+     * @param score the score
+     * @return the number of higher scores
+     */
+    public long getCountAbove(float score) {
+        return histogram.total() - histogram.prefixSum(firstBucketAbove(score));
+    }
+
+    /**
+     * Returns the rank of the given score, 1 being the best. Equal scores share a rank, so the rank is one more
+     * than the number of higher scores.
+     *
+     * @param score the score
+     * @return the rank of the score
+     */
+    public long getRank(float score) {
+        return getCountAbove(score) + 1;
+    }
+
+    /**
+     * Returns the percentile rank of the given score, the percentage of scores below it with equal scores counted
+     * as half below.
+     *
+     * @param score the score
+     * @return the percentile between 0 and 100, or {@code Double.NaN} if the distribution is empty
+     */
+    public double getPercentile(float score) {
+        long total = histogram.total();
+        if (total == 0) {
+            return Double.NaN;
+        }
+        long below = histogram.prefixSum(firstBucketFrom(score));
+        long equal = histogram.prefixSum(firstBucketAbove(score)) - below;
+        return 100.0 * (below + equal / 2.0) / total;
+    }
+
+    /**
+     * Returns the score at the given rank, 1 being the best. The score at rank {@code n} is the lowest score in the
+     * top {@code n}.
+     *
+     * @param rank the rank
+     * @return the score at the rank
+     * @throws IllegalArgumentException if the rank is not between 1 and the number of scores
+     */
+    public float getScoreAtRank(long rank) {
+        long total = histogram.total();
+        if (rank < 1 || rank > total) {
+            throw new IllegalArgumentException("Rank must be between 1 and " + total + ": " + rank);
+        }
+        int bucket = histogram.search(total - rank + 1);
+        return (float) Math.min(bucket, questionCount) / questionCount;
+    }
+
+    /**
+     * Returns the first bucket whose score is at least the given score.
+     *
+     * @param score the score
+     * @return the bucket, from 0 to the number of buckets
+     */
+    private int firstBucketFrom(float score) {
+        double bucket = Math.ceil(score * (double) questionCount - TOLERANCE);
+        return (int) Math.max(0, Math.min(questionCount + 1, bucket));
+    }
+
+    /**
+     * Returns the first bucket whose score is higher than the given score.
+     *
+     * @param score the score
+     * @return the bucket, from 0 to the number of buckets
+     */
+    private int firstBucketAbove(float score) {
+        double bucket = Math.floor(score * (double) questionCount + TOLERANCE) + 1;
+        return (int) Math.max(0, Math.min(questionCount + 1, bucket));
+    }
+
+    /**
+     * Clears all distributions. This method is intended for use in unit tests.
+     */
+    static void reset() {
+        DISTRIBUTIONS.clear();
+    }
+
+    /**
+     * Returns a string representation of the distribution.
+     *
+     * @return a string representation of the configuration and the number of scores
+     */
+    @Override
+    public String toString() {
+        return "ScoreDistribution{" +
+                "isRevision=" + isRevision +
+                ", questionCount=" + questionCount +
+                ", count=" + getCount() +
+                '}';
+    }
+}
@@ -0,0 +1,88 @@
+package uk.ac.ncl.advancedjava.quizapi.quiztaking;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import uk.ac.ncl.advancedjava.quizapi.questions.Question;
+import uk.ac.ncl.advancedjava.quizapi.questions.QuestionFactory;
+import uk.ac.ncl.advancedjava.quizapi.questions.QuestionType;
+
+import java.lang.reflect.Field;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ScoreDistributionTest {
+
+    ScoreDistribution distribution;
+
+    @BeforeEach
+    void setUp() {
+        ScoreDistribution.reset();
+        distribution = ScoreDistribution.getRegular(4);
+        // Scores of 0.0, 0.25, 0.5, 0.5, 0.75 and 1.0
+        for (float score : new float[]{0.5f, 0f, 1f, 0.25f, 0.5f, 0.75f}) {
+            ScoreDistribution.record(false, 4, score, 1);
+        }
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        Field field = StudentStatistics.class.getDeclaredField("ALLSTUDENTSTATISTICS");
+        field.setAccessible(true);
+        ((Map<?, ?>) field.get(null)).clear();
+        ScoreDistribution.reset();
+        distribution = null;
+    }
+
+    @Test
+    void getRank() {
+        assertEquals(6, distribution.getCount());
+        assertEquals(1, distribution.getRank(1f));
+        assertEquals(3, distribution.getRank(0.5f));
+        assertEquals(6, distribution.getRank(0f));
+        // A score between the possible scores ranks below the higher ones
+        assertEquals(3, distribution.getRank(0.6f));
+        assertEquals(2, distribution.getCountBelow(0.5f));
+        assertEquals(2, distribution.getCountAbove(0.5f));
+    }
+
+    @Test
+    void getPercentile() {
+        assertEquals(50.0, distribution.getPercentile(0.5f), 1e-9);
+        assertEquals(100.0 * 5.5 / 6, distribution.getPercentile(1f), 1e-9);
+        assertEquals(100.0 * 0.5 / 6, distribution.getPercentile(0f), 1e-9);
+        assertTrue(Double.isNaN(ScoreDistribution.getRevision(4).getPercentile(0.5f)));
+    }
+
+    @Test
+    void getScoreAtRank() {
+        assertEquals(1f, distribution.getScoreAtRank(1));
+        assertEquals(0.75f, distribution.getScoreAtRank(2));
+        assertEquals(0.5f, distribution.getScoreAtRank(3));
+        assertEquals(0.5f, distribution.getScoreAtRank(4));
+        assertEquals(0f, distribution.getScoreAtRank(6));
+        assertThrows(IllegalArgumentException.class, () -> distribution.getScoreAtRank(0));
+        assertThrows(IllegalArgumentException.class, () -> distribution.getScoreAtRank(7));
+        assertThrows(IllegalArgumentException.class, () -> ScoreDistribution.getRegular(0));
+    }
+
+    @Test
+    void takeQuiz() {
+        Question frq1 = QuestionFactory.getInstance(QuestionType.FREE_RESPONSE, "What is the capital of France?",
+                "Paris");
+        Question frq2 = QuestionFactory.getInstance(QuestionType.FREE_RESPONSE, "What is the capital of Czechia?",
+                "Prague");
+        StudentStatistics hannahStats = StudentStatistics.getInstance(
+                Student.getInstance("Hannah", "Distribution", LocalDate.of(2001, 4, 4)));
+        hannahStats.takeRevisionQuiz(new AnswerSheet(new Quiz(List.of(frq1, frq2)), "Paris", "Brno"));
+        hannahStats.takeQuiz(new AnswerSheet(new Quiz(List.of(frq1, frq2)), "Paris", "Prague"));
+
+        assertEquals(1, ScoreDistribution.getRevision(2).getCount());
+        assertEquals(1, ScoreDistribution.getRevision(2).getRank(0.5f));
+        assertEquals(1, ScoreDistribution.getRegular(2).getCount());
+        assertEquals(1f, ScoreDistribution.getRegular(2).getScoreAtRank(1));
+    }
+}
@@ -0,0 +1,286 @@
+package uk.ac.ncl.advancedjava.quizapi.quiztaking;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * StatisticsPager - keeps the number of question histories resident in {@link StudentStatistics} within a bound,
+ * paging them out to a {@link StatisticsStore} and reading them back on demand.
+ * Changed histories are written to the store behind the graders' backs by a single background thread. A changed
+ * student is queued once, and the write waits a short while, so a burst of changes to one student is written once
+ * with the latest state. The same thread evicts histories with the CLOCK (second-chance) approximation of LRU once
+ * there are too many resident, so histories read since the last sweep get another chance. The thread only ever
+ * holds one student's lock at a time, so it cannot deadlock with the graders.
+ *
+ * @author Filip Kovarik - S24039999
+ */
+final class StatisticsPager {
+
+    private static final long WRITE_BEHIND_DELAY_MILLIS = 20;
+    private static final Object EVICT = new Object();
+    private static final Object STOP = new Object();
+
+    private final StatisticsStore store;
+    private final long maximumResidentCount;
+    private final Queue<StudentStatistics> clock = new ConcurrentLinkedQueue<>();
+    private final LinkedBlockingQueue<Object> work = new LinkedBlockingQueue<>();
+    private final AtomicInteger residentCount = new AtomicInteger();
+    private final Thread thread;
+    private final RecordBuffer recordBuffer = new RecordBuffer();
+    private final Object evictionLock = new Object();
+    private boolean evicting = true;
+
+    private final LongAdder pageInCount = new LongAdder();
+    private final LongAdder pageOutCount = new LongAdder();
+    private final LongAdder writeCount = new LongAdder();
+
+    /**
+     * Constructs a pager and starts its background thread.
+     *
+     * @param store                the store to page histories out to
+     * @param maximumResidentCount the maximum number of resident histories
+     * @throws IllegalArgumentException if the maximum number of resident histories is not positive
+     */
+    StatisticsPager(StatisticsStore store, long maximumResidentCount) {
+        if (maximumResidentCount < 1) {
+            throw new IllegalArgumentException("The maximum number of resident statistics must be positive");
+        }
+        this.store = store;
+        this.maximumResidentCount = maximumResidentCount;
+        this.thread = new Thread(this::run, "statistics-pager");
+        this.thread.setDaemon(true);
+        this.thread.start();
+    }
+
+    /**
+     * Reads the stored record of a student to page its history back in.
+     *
+     * @param student the student
+     * @return the record, or {@code null} if none is stored
+     * @throws UncheckedIOException if the record cannot be read
+     */
+    ByteBuffer pageIn(Student student) {
+        ByteBuffer record = read(student);
+        pageInCount.increment();
+        return record;
+    }
+
+    /**
+     * Reads the stored record of a student without paging its history in.
+     *
+     * @param student the student
+     * @return the record, or {@code null} if none is stored
+     * @throws UncheckedIOException if the record cannot be read
+     */
+    ByteBuffer read(Student student) {
+        try {
+            return store.read(student);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Registers a statistics instance whose history has become resident, and wakes the background thread if there
+     * are now too many.
+     *
+     * @param statistics the statistics
+     */
+    void resident(StudentStatistics statistics) {
+        clock.offer(statistics);
+        if (residentCount.incrementAndGet() > maximumResidentCount) {
+            work.offer(EVICT);
+        }
+    }
+
+    /**
+     * Queues a changed statistics instance to be written to the store.
+     *
+     * @param statistics the statistics
+     */
+    void schedule(StudentStatistics statistics) {
+        work.offer(statistics);
+    }
+
+    /**
+     * Writes a history record to the store.
+     *
+     * @param student the student
+     * @param history the history to write
+     * @throws IOException if the record cannot be written
+     */
+    void write(Student student, QuestionHistory history) throws IOException {
+        recordBuffer.reset();
+        history.writeTo(recordBuffer.data);
+        store.write(student, recordBuffer.asByteBuffer());
+        writeCount.increment();
+    }
+
+    /**
+     * Returns the number of resident histories.
+     *
+     * @return the resident count
+     */
+    int getResidentCount() {
+        return residentCount.get();
+    }
+
+    /**
+     * Returns the maximum number of resident histories.
+     *
+     * @return the maximum resident count
+     */
+    long getMaximumResidentCount() {
+        return maximumResidentCount;
+    }
+
+    /**
+     * Returns the number of histories read back from the store.
+     *
+     * @return the page-in count
+     */
+    long getPageInCount() {
+        return pageInCount.sum();
+    }
+
+    /**
+     * Returns the number of histories evicted from memory.
+     *
+     * @return the page-out count
+     */
+    long getPageOutCount() {
+        return pageOutCount.sum();
+    }
+
+    /**
+     * Returns the number of records written to the store.
+     *
+     * @return the write count
+     */
+    long getWriteCount() {
+        return writeCount.sum();
+    }
+
+    /**
+     * Returns the store histories are paged out to.
+     *
+     * @return the store
+     */
+    StatisticsStore getStore() {
+        return store;
+    }
+
+    /**
+     * Stops paging histories out, waiting for a sweep in progress to finish, so that histories read back from the
+     * store stay on the heap. Changed histories are still written to the store.
+     */
+    void suspendEviction() {
+        synchronized (evictionLock) {
+            evicting = false;
+        }
+    }
+
+    /**
+     * Resumes paging histories out after {@link #suspendEviction()}, evicting any excess.
+     */
+    void resumeEviction() {
+        synchronized (evictionLock) {
+            evicting = true;
+        }
+        work.offer(EVICT);
+    }
+
+    /**
+     * Stops the background thread once it has written the changes queued so far. The thread is not interrupted,
+     * since interrupting a write to a {@link java.nio.channels.FileChannel} would close the channel, and with it
+     * the store. Histories that are paged out stay in the store.
+     */
+    void stop() {
+        work.offer(STOP);
+        boolean interrupted = false;
+        while (true) {
+            try {
+                thread.join();
+                break;
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * The loop of the background thread. Waits for work, gives further changes a moment to coalesce, then writes
+     * every queued student once and evicts histories if there are too many, until it is stopped.
+     */
+    private void run() {
+        List<Object> batch = new ArrayList<>();
+        boolean running = true;
+        while (running) {
+            try {
+                batch.add(work.take());
+                TimeUnit.MILLISECONDS.sleep(WRITE_BEHIND_DELAY_MILLIS);
+            } catch (InterruptedException e) {
+                continue;
+            }
+            work.drainTo(batch);
+            running = !batch.remove(STOP);
+            for (Object item : batch) {
+                if (item instanceof StudentStatistics statistics) {
+                    statistics.flush(this);
+                }
+            }
+            batch.clear();
+            if (running) {
+                evictIfNeeded();
+            }
+        }
+    }
+
+    /**
+     * Pages out histories until the resident count is back within its bound. Each history met by the clock hand
+     * that was read since the previous sweep has its reference bit cleared and is moved to the back of the queue.
+     * Histories that cannot be written to the store stay resident. Nothing is evicted while eviction is suspended.
+     */
+    private void evictIfNeeded() {
+        synchronized (evictionLock) {
+            if (evicting) {
+                sweep();
+            }
+        }
+    }
+
+    /**
+     * Moves the clock hand until the resident count is back within its bound. Must be called while holding the
+     * eviction lock.
+     */
+    private void sweep() {
+        // Bounds the sweep, so it ends even if the store keeps failing
+        int budget = 2 * clock.size() + 1;
+        while (residentCount.get() > maximumResidentCount && budget-- > 0) {
+            StudentStatistics candidate = clock.poll();
+            if (candidate == null) {
+                return;
+            }
+            if (candidate.clearReferenced()) {
+                clock.offer(candidate);
+            } else if (candidate.pageOut(this)) {
+                residentCount.decrementAndGet();
+                pageOutCount.increment();
+            } else {
+                clock.offer(candidate);
+            }
+        }
+    }
+}
@@ -0,0 +1,275 @@
+package uk.ac.ncl.advancedjava.quizapi.quiztaking;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import uk.ac.ncl.advancedjava.quizapi.questions.Question;
+import uk.ac.ncl.advancedjava.quizapi.questions.QuestionFactory;
+import uk.ac.ncl.advancedjava.quizapi.questions.QuestionType;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.reflect.Field;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StatisticsPagerTest {
+
+    MemoryStore store;
+    Question frq1, frq2;
+
+    @BeforeEach
+    void setUp() {
+        store = new MemoryStore();
+        frq1 = QuestionFactory.getInstance(QuestionType.FREE_RESPONSE, "What is the longest river?", "Nile");
+        frq2 = QuestionFactory.getInstance(QuestionType.FREE_RESPONSE, "What is the highest mountain?", "Everest");
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        store.failing = false;
+        store.failingWrites = false;
+        StudentStatistics.setStatisticsStore(null, 0);
+        clearStatistics();
+        store = null;
+        frq1 = null;
+        frq2 = null;
+    }
+
+    @Test
+    void takeQuiz_FailedPageInIsNotLogged() throws Exception {
+        Path path = Files.createTempFile("submissions", ".log");
+        SubmissionLog log = SubmissionLog.open(path);
+        try {
+            StudentStatistics.setStatisticsStore(store, 1);
+            Student erin = Student.getInstance("Erin", "Pager", LocalDate.of(2001, 4, 4));
+            StudentStatistics erinStats = StudentStatistics.getInstance(erin);
+            erinStats.takeQuiz(new AnswerSheet(new Quiz(List.of(frq1, frq2)), "?", "?"));
+            StudentStatistics.getInstance(Student.getInstance("Finn", "Pager", LocalDate.of(2001, 5, 5)))
+                    .takeQuiz(new AnswerSheet(new Quiz(List.of(frq1, frq2)), "?", "?"));
+            // Erin is first on the clock, so the sweep pages her history out once both have had a second chance
+            awaitPagedOut(erinStats);
+
+            // The history cannot be read back, so the submission fails before it reaches the log
+            store.failing = true;
+            Quiz second = new Quiz(List.of(frq1, frq2));
+            assertThrows(UncheckedIOException.class, () ->
+                    erinStats.takeQuiz(new AnswerSheet(second, "Nile", "Everest")));
+            assertEquals(2, log.getSubmissionCount());
+            store.failing = false;
+            erinStats.takeQuiz(new AnswerSheet(second, "Nile", "Everest"));
+            assertEquals(3, log.getSubmissionCount());
+
+            // Both of Erin's logged submissions are replayed, with distinct sequence numbers
+            StudentStatistics.setStatisticsStore(null, 0);
+            log.close();
+            clearStatistics();
+            log = SubmissionLog.open(path);
+            assertEquals(2, StudentStatistics.getInstance(erin).getAttemptedRegularQuizzes().size());
+            assertEquals(Map.of(frq1, true, frq2, true), StudentStatistics.getInstance(erin).getQuestionHistory());
+        } finally {
+            log.close();
+            Files.deleteIfExists(path);
+        }
+    }
+
+    @Test
+    void evict_GivesReferencedHistoriesASecondChance() throws Exception {
+        StudentStatistics.setStatisticsStore(store, 2);
+        StudentStatistics gina = takeQuiz("Gina");
+        StudentStatistics hugo = takeQuiz("Hugo");
+        awaitWritten(2);
+        // Both start the sweep unreferenced, then Gina's history is read again
+        gina.clearReferenced();
+        hugo.clearReferenced();
+        assertEquals(2, gina.getQuestionHistory().size());
+
+        // Gina is first on the clock, but her reference bit buys her another lap, so Hugo is evicted instead
+        StudentStatistics ivan = takeQuiz("Ivan");
+        awaitPagedOut(hugo);
+        assertTrue(isResident(gina));
+        assertTrue(isResident(ivan));
+        assertEquals(2, StudentStatistics.getResidentCount());
+    }
+
+    @Test
+    void flush_CoalescesBurstOfChanges() throws Exception {
+        StudentStatistics.setStatisticsStore(store, 10);
+        StudentStatistics jack = StudentStatistics.getInstance(
+                Student.getInstance("Jack", "Pager", LocalDate.of(2001, 6, 6)));
+        Quiz quiz = new Quiz(List.of(frq1, frq2));
+        int[] ids = {frq1.getId(), frq2.getId()};
+        for (int sequence = 1; sequence <= 100; sequence++) {
+            boolean correct = sequence % 2 == 0;
+            jack.restoreSubmission(sequence, true, quiz, ids, new boolean[]{correct, correct}, new int[2], 0f);
+        }
+        awaitWritten(1);
+        Thread.sleep(100);
+
+        // The burst lands within one write-behind delay, so it is written far fewer times than it changed
+        assertTrue(store.writes.get() < 10, "Writes: " + store.writes.get());
+        QuestionHistory stored = new QuestionHistory();
+        stored.readFrom(store.read(jack.getStudent()), null);
+        assertEquals(Map.of(frq1, true, frq2, true), stored.asMap());
+    }
+
+    @Test
+    void evict_KeepsHistoryResidentWhileStoreFails() throws Exception {
+        store.failingWrites = true;
+        StudentStatistics.setStatisticsStore(store, 1);
+        StudentStatistics kate = takeQuiz("Kate");
+        StudentStatistics liam = takeQuiz("Liam");
+        Thread.sleep(200);
+
+        // Neither history can be written, so neither can be dropped from the heap
+        assertTrue(isResident(kate));
+        assertTrue(isResident(liam));
+        assertEquals(2, StudentStatistics.getResidentCount());
+        assertTrue(store.records.isEmpty());
+
+        // Once the store recovers, the next sweep pages one of them out
+        store.failingWrites = false;
+        takeQuiz("Mia");
+        long deadline = System.nanoTime() + 5_000_000_000L;
+        while (StudentStatistics.getResidentCount() > 1 && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+        assertEquals(1, StudentStatistics.getResidentCount());
+        assertEquals(2, kate.getQuestionHistory().size());
+        assertEquals(2, liam.getQuestionHistory().size());
+    }
+
+    @Test
+    void writeTo_CopiesPagedOutHistoryWithoutPagingIn() throws Exception {
+        Path path = Files.createTempFile("statistics", ".snapshot");
+        try {
+            StudentStatistics.setStatisticsStore(store, 1);
+            StudentStatistics nora = takeQuiz("Nora");
+            takeQuiz("Owen");
+            awaitPagedOut(nora);
+
+            StatisticsSnapshot.write(path);
+            assertFalse(isResident(nora));
+
+            StudentStatistics.setStatisticsStore(null, 0);
+            clearStatistics();
+            StatisticsSnapshot.restore(path);
+            assertEquals(Map.of(frq1, true, frq2, false),
+                    StudentStatistics.getInstance(nora.getStudent()).getQuestionHistory());
+        } finally {
+            Files.deleteIfExists(path);
+        }
+    }
+
+    @Test
+    void setStatisticsStore_FailedReadKeepsStore() throws Exception {
+        StudentStatistics.setStatisticsStore(store, 1);
+        StudentStatistics pia = takeQuiz("Pia");
+        takeQuiz("Quinn");
+        awaitPagedOut(pia);
+
+        // Pia's history cannot be read back, so the store is not removed
+        store.failing = true;
+        assertThrows(UncheckedIOException.class, () -> StudentStatistics.setStatisticsStore(null, 0));
+        assertSame(store, StudentStatistics.getStatisticsStore());
+
+        store.failing = false;
+        StudentStatistics.setStatisticsStore(null, 0);
+        assertNull(StudentStatistics.getStatisticsStore());
+        assertEquals(Map.of(frq1, true, frq2, false), pia.getQuestionHistory());
+    }
+
+    /**
+     * Has a new student answer the first question correctly and the second incorrectly.
+     */
+    private StudentStatistics takeQuiz(String firstName) {
+        StudentStatistics statistics = StudentStatistics.getInstance(
+                Student.getInstance(firstName, "Pager", LocalDate.of(2001, 1, 1)));
+        statistics.takeQuiz(new AnswerSheet(new Quiz(List.of(frq1, frq2)), "Nile", "?"));
+        return statistics;
+    }
+
+    /**
+     * Waits until the store holds the given number of records.
+     */
+    private void awaitWritten(int count) throws InterruptedException {
+        long deadline = System.nanoTime() + 5_000_000_000L;
+        while (store.records.size() < count && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+        assertEquals(count, store.records.size());
+    }
+
+    /**
+     * Checks whether the history of a student is on the heap.
+     */
+    private static boolean isResident(StudentStatistics statistics) throws Exception {
+        Field field = StudentStatistics.class.getDeclaredField("questionHistory");
+        field.setAccessible(true);
+        synchronized (statistics) {
+            return field.get(statistics) != null;
+        }
+    }
+
+    /**
+     * Waits until the history of a student has been paged out.
+     */
+    static void awaitPagedOut(StudentStatistics statistics) throws Exception {
+        Field field = StudentStatistics.class.getDeclaredField("questionHistory");
+        field.setAccessible(true);
+        long deadline = System.nanoTime() + 5_000_000_000L;
+        while (System.nanoTime() < deadline) {
+            synchronized (statistics) {
+                if (field.get(statistics) == null) {
+                    return;
+                }
+            }
+            Thread.sleep(5);
+        }
+        fail("The history was not paged out");
+    }
+
+    private static void clearStatistics() throws Exception {
+        Field field = StudentStatistics.class.getDeclaredField("ALLSTUDENTSTATISTICS");
+        field.setAccessible(true);
+        ((Map<?, ?>) field.get(null)).clear();
+    }
+
+    /**
+     * MemoryStore - a store kept in a map, which can be made to fail every operation or only writes.
+     */
+    static final class MemoryStore implements StatisticsStore {
+        final Map<Student, byte[]> records = new ConcurrentHashMap<>();
+        final AtomicInteger writes = new AtomicInteger();
+        volatile boolean failing;
+        volatile boolean failingWrites;
+
+        @Override
+        public void write(Student student, ByteBuffer record) throws IOException {
+            if (failing || failingWrites) {
+                throw new IOException("The store is failing");
+            }
+            byte[] bytes = new byte[record.remaining()];
+            record.get(bytes);
+            records.put(student, bytes);
+            writes.incrementAndGet();
+        }
+
+        @Override
+        public ByteBuffer read(Student student) throws IOException {
+            if (failing) {
+                throw new IOException("The store is failing");
+            }
+            byte[] bytes = records.get(student);
+            return bytes == null ? null : ByteBuffer.wrap(bytes);
+        }
+    }
+}
@@ -0,0 +1,254 @@
+package uk.ac.ncl.advancedjava.quizapi.quiztaking;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+/**
+ * StatisticsReport - exports the statistics of all students as a cohort report, either as plain text in the form
+ * of {@link StudentStatistics#generateStatistics()} or as CSV.
+ * The report is streamed: each student's statistics are appended straight to the output while that student is
+ * locked, so the report is never held in memory as a whole and no string is built per student.
+ * <p>
+ * Exports to a channel can run in parallel. The registry is split into partitions that are rendered on the common
+ * {@link ForkJoinPool}, each into its own reusable buffer, and the buffers are written to the channel whenever they
+ * fill up. Records are never split between writes, but students from different partitions are interleaved, so
+ * the order of the students in a parallel report is unspecified.
+ *
+ * @author Filip Kovarik - S24039999
+ */
+public final class StatisticsReport {
+
+    /**
+     * The header line of a CSV report.
+     */
+    public static final String CSV_HEADER =
+            "firstName,lastName,dateOfBirth,regularQuizzes,revisionQuizzes,regularScores,revisionScores,finalVerdict\n";
+
+    private static final int CHUNK_SIZE = 32 * 1024;
+
+    /**
+     * Format - the formats a report can be exported in.
+     */
+    public enum Format {
+        /**
+         * The summaries of {@link StudentStatistics#generateStatistics()}, one after another.
+         */
+        TEXT,
+        /**
+         * Comma-separated values with a header line and one record per student.
+         */
+        CSV
+    }
+
+    /**
+     * Private constructor to prevent instantiation of this utility class.
+     */
+    private StatisticsReport() {}
+
+    /**
+     * Exports the statistics of all students to the given output.
+     *
+     * @param format the format of the report
+     * @param out    the output to append the report to
+     * @throws IOException if the output cannot be written
+     */
+    public static void export(Format format, Appendable out) throws IOException {
+        if (format == Format.CSV) {
+            out.append(CSV_HEADER);
+        }
+        Spliterator<StudentStatistics> students = StudentStatistics.spliterator();
+        try {
+            students.forEachRemaining(statistics -> append(format, statistics, out));
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * Exports the statistics of all students to the given channel as UTF-8. The channel is not closed.
+     *
+     * @param format  the format of the report
+     * @param channel the channel to write the report to
+     * @throws IOException if the channel cannot be written
+     */
+    public static void export(Format format, WritableByteChannel channel) throws IOException {
+        export(format, channel, 1);
+    }
+
+    /**
+     * Exports the statistics of all students to the given channel as UTF-8, rendering up to the given number of
+     * partitions of the students in parallel. The channel is not closed.
+     *
+     * @param format     the format of the report
+     * @param channel    the channel to write the report to
+     * @param partitions the maximum number of partitions rendered in parallel
+     * @throws IOException if the channel cannot be written
+     * @throws IllegalArgumentException if the number of partitions is not positive
+     */
+    public static void export(Format format, WritableByteChannel channel, int partitions) throws IOException {
+        if (partitions < 1) {
+            throw new IllegalArgumentException("The number of partitions must be positive");
+        }
+        if (format == Format.CSV) {
+            new ChunkWriter(channel).write(CSV_HEADER);
+        }
+        List<Spliterator<StudentStatistics>> parts = split(StudentStatistics.spliterator(), partitions);
+        if (parts.size() == 1) {
+            exportPartition(format, parts.get(0), channel);
+            return;
+        }
+
+        List<Future<Void>> tasks = new ArrayList<>(parts.size());
+        for (Spliterator<StudentStatistics> part : parts) {
+            tasks.add(ForkJoinPool.commonPool().submit(() -> {
+                exportPartition(format, part, channel);
+                return null;
+            }));
+        }
+        IOException failure = null;
+        for (Future<Void> task : tasks) {
+            try {
+                task.get();
+            } catch (ExecutionException e) {
+                if (failure == null) {
+                    failure = e.getCause() instanceof IOException cause ? cause : new IOException(e.getCause());
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted while exporting the report", e);
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    /**
+     * Splits a spliterator into at most the given number of partitions.
+     *
+     * @param students   the spliterator to split
+     * @param partitions the maximum number of partitions
+     * @return the partitions
+     */
+    private static List<Spliterator<StudentStatistics>> split(Spliterator<StudentStatistics> students,
+                                                             int partitions) {
+        List<Spliterator<StudentStatistics>> parts = new ArrayList<>(partitions);
+        parts.add(students);
+        // Splits the partitions in turn, so they end up of similar size
+        for (int i = 0; parts.size() < partitions && i < parts.size(); ) {
+            Spliterator<StudentStatistics> prefix = parts.get(i).trySplit();
+            if (prefix == null) {
+                i++;
+            } else {
+                parts.add(prefix);
+            }
+        }
+        return parts;
+    }
+
+    /**
+     * Renders a partition of the students into a reusable buffer, writing the buffer to the channel whenever it
+     * fills up.
+     *
+     * @param format   the format of the report
+     * @param students the partition to render
+     * @param channel  the channel to write the report to
+     * @throws IOException if the channel cannot be written
+     */
+    private static void exportPartition(Format format, Spliterator<StudentStatistics> students,
+                                        WritableByteChannel channel) throws IOException {
+        ChunkWriter writer = new ChunkWriter(channel);
+        StringBuilder chunk = new StringBuilder(CHUNK_SIZE + 1024);
+        try {
+            students.forEachRemaining(statistics -> {
+                append(format, statistics, chunk);
+                if (chunk.length() >= CHUNK_SIZE) {
+                    writer.writeUnchecked(chunk);
+                    chunk.setLength(0);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        writer.write(chunk);
+    }
+
+    /**
+     * Appends the statistics of one student in the given format.
+     *
+     * @param format     the format of the report
+     * @param statistics the statistics to append
+     * @param out        the output to append to
+     * @throws UncheckedIOException if the output cannot be written
+     */
+    private static void append(Format format, StudentStatistics statistics, Appendable out) {
+        try {
+            if (format == Format.CSV) {
+                statistics.appendCsvRecord(out);
+            } else {
+                statistics.appendStatistics(out);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * ChunkWriter - encodes chunks of the report as UTF-8 into a reusable buffer and writes each chunk to the
+     * channel in one piece, holding the lock of the channel, so that chunks written by different partitions are
+     * never interleaved.
+     */
+    private static final class ChunkWriter {
+        private final WritableByteChannel channel;
+        private final CharsetEncoder encoder = StandardCharsets.UTF_8.newEncoder();
+        private ByteBuffer buffer = ByteBuffer.allocate(0);
+
+        ChunkWriter(WritableByteChannel channel) {
+            this.channel = channel;
+        }
+
+        void write(CharSequence chunk) throws IOException {
+            if (chunk.length() == 0) {
+                return;
+            }
+            int capacity = (int) (chunk.length() * encoder.maxBytesPerChar());
+            if (buffer.capacity() < capacity) {
+                buffer = ByteBuffer.allocate(capacity);
+            }
+            buffer.clear();
+            encoder.reset();
+            // The buffer holds the longest possible encoding, so the only possible error is a malformed string
+            CoderResult result = encoder.encode(CharBuffer.wrap(chunk), buffer, true);
+            if (result.isError()) {
+                result.throwException();
+            }
+            encoder.flush(buffer);
+            buffer.flip();
+            synchronized (channel) {
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+            }
+        }
+
+        void writeUnchecked(CharSequence chunk) {
+            try {
+                write(chunk);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+}
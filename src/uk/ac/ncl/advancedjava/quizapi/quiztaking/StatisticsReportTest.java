@@ -0,0 +1,102 @@
+package uk.ac.ncl.advancedjava.quizapi.quiztaking;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import uk.ac.ncl.advancedjava.quizapi.questions.Question;
+import uk.ac.ncl.advancedjava.quizapi.questions.QuestionFactory;
+import uk.ac.ncl.advancedjava.quizapi.questions.QuestionType;
+
+import java.io.ByteArrayOutputStream;
+import java.lang.reflect.Field;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StatisticsReportTest {
+
+    Question frq1;
+    StudentStatistics erinStats, frankStats;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        clearStatistics();
+        frq1 = QuestionFactory.getInstance(
+                QuestionType.FREE_RESPONSE,
+                "What is the capital of France?",
+                "Paris"
+        );
+        erinStats = StudentStatistics.getInstance(Student.getInstance("Erin", "Report", LocalDate.of(2001, 9, 1)));
+        frankStats = StudentStatistics.getInstance(
+                Student.getInstance("Frank", "O\"Neil, Jr", LocalDate.of(2000, 12, 31)));
+        erinStats.takeQuiz(new AnswerSheet(new Quiz(List.of(frq1)), "Paris"));
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        clearStatistics();
+        frq1 = null;
+        erinStats = null;
+        frankStats = null;
+    }
+
+    @Test
+    void export_Text() throws Exception {
+        StringBuilder report = new StringBuilder();
+        StatisticsReport.export(StatisticsReport.Format.TEXT, report);
+
+        String erin = erinStats.generateStatistics();
+        String frank = frankStats.generateStatistics();
+        assertTrue(report.toString().equals(erin + frank) || report.toString().equals(frank + erin));
+    }
+
+    @Test
+    void export_Csv() throws Exception {
+        StringBuilder report = new StringBuilder();
+        StatisticsReport.export(StatisticsReport.Format.CSV, report);
+
+        assertTrue(report.toString().startsWith(StatisticsReport.CSV_HEADER));
+        assertEquals(Set.of(
+                        "Erin,Report,2001-09-01,1,0,1.0,,PASS",
+                        "Frank,\"O\"\"Neil, Jr\",2000-12-31,0,0,,,TBD"),
+                Set.copyOf(Arrays.asList(report.substring(StatisticsReport.CSV_HEADER.length()).split("\n"))));
+    }
+
+    @Test
+    void export_ParallelChannel() throws Exception {
+        for (int i = 0; i < 500; i++) {
+            StudentStatistics.getInstance(Student.getInstance("Student" + i, "Report", LocalDate.of(2000, 1, 1)));
+        }
+        StringBuilder expected = new StringBuilder();
+        StatisticsReport.export(StatisticsReport.Format.CSV, expected);
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (WritableByteChannel channel = Channels.newChannel(bytes)) {
+            StatisticsReport.export(StatisticsReport.Format.CSV, channel, 4);
+        }
+        String report = bytes.toString(StandardCharsets.UTF_8);
+        assertTrue(report.startsWith(StatisticsReport.CSV_HEADER));
+        // The partitions are interleaved, but every record is written whole
+        List<String> records = Arrays.asList(report.split("\n"));
+        assertEquals(503, records.size());
+        assertEquals(new HashSet<>(Arrays.asList(expected.toString().split("\n"))), new HashSet<>(records));
+
+        assertThrows(IllegalArgumentException.class, () ->
+                StatisticsReport.export(StatisticsReport.Format.TEXT, Channels.newChannel(bytes), 0));
+    }
+
+    private static void clearStatistics() throws Exception {
+        Field field = StudentStatistics.class.getDeclaredField("ALLSTUDENTSTATISTICS");
+        field.setAccessible(true);
+        Map<?, ?> map = (Map<?, ?>) field.get(null);
+        map.clear();
+    }
+}
@@ -0,0 +1,202 @@
+package uk.ac.ncl.advancedjava.quizapi.quiztaking;
+
+import uk.ac.ncl.advancedjava.quizapi.questions.QuestionFactory;
+import uk.ac.ncl.advancedjava.quizapi.questions.QuestionType;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * StatisticsSnapshot - writes the state of the quiz API to a single binary file and restores it, so a restart does
+ * not have to replay every submission ever made. A snapshot holds the cached question definitions, the students,
+ * the statistics of every student and the item analytics.
+ * <p>
+ * A snapshot is written while submissions carry on. Each student's statistics are locked only while they are written,
+ * so the snapshot is consistent per student, and a submission made meanwhile is either in it or, through its
+ * sequence number, recognised when a {@link SubmissionLog} is replayed on top of it. The cohort-wide item analytics
+ * are not tied to a student, so they may be off by the submissions that raced with the snapshot.
+ * <p>
+ * The file is written next to the snapshot and moved over it once complete, so a crash never leaves a partial
+ * snapshot. The questions, each student, the item analytics and the ID table are written as sections preceded by
+ * their length, so the snapshot is restored through memory-mapped windows that a section never straddles, whatever
+ * the size of the file, and arrays such as the question histories are copied from them in bulk. Question IDs are
+ * only stable within one run, so the snapshot ends with a table of the type and text of every ID it refers to, or a
+ * marker for IDs whose questions have been garbage collected, which is written last so that it covers the questions
+ * created while the snapshot was taken.
+ *
+ * @author Filip Kovarik - S24039999
+ */
+public final class StatisticsSnapshot {
+
+    private static final int MAGIC = 0x515A534E;
+    private static final int VERSION = 2;
+    private static final byte RETIRED_ID = -1;
+
+    /**
+     * Private constructor to prevent instantiation.
+     */
+    private StatisticsSnapshot() {
+    }
+
+    /**
+     * Writes a snapshot of the current state to the given path, replacing any snapshot already there.
+     *
+     * @param path the path of the snapshot file
+     * @throws IOException if the snapshot cannot be written
+     */
+    public static void write(Path path) throws IOException {
+        Path temporary = path.resolveSibling(path.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel),
+                    1 << 16));
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            RecordBuffer section = new RecordBuffer();
+            QuestionFactory.writeQuestions(section.data);
+            writeSection(out, section);
+
+            List<Student> students = new ArrayList<>(Student.getAllStudents());
+            out.writeInt(students.size());
+            for (Student student : students) {
+                section.reset();
+                SubmissionLog.writeString(section.data, student.getFirstName());
+                SubmissionLog.writeString(section.data, student.getLastName());
+                section.data.writeLong(student.getDateOfBirth().toEpochDay());
+                StudentStatistics statistics = StudentStatistics.find(student);
+                section.data.writeBoolean(statistics != null);
+                if (statistics != null) {
+                    statistics.writeTo(section.data);
+                }
+                writeSection(out, section);
+            }
+            section.reset();
+            ItemAnalytics.writeTo(section.data);
+            writeSection(out, section);
+
+            section.reset();
+            int idCount = QuestionFactory.getQuestionIdCount();
+            section.data.writeInt(idCount);
+            for (int id = 0; id < idCount; id++) {
+                QuestionType type = QuestionFactory.getQuestionType(id);
+                String text = QuestionFactory.getQuestionText(id);
+                if (type == null || text == null) {
+                    section.data.writeByte(RETIRED_ID);
+                } else {
+                    section.data.writeByte(type.ordinal());
+                    SubmissionLog.writeString(section.data, text);
+                }
+            }
+            out.flush();
+            long idTableOffset = channel.position();
+            writeSection(out, section);
+            out.writeLong(idTableOffset);
+            out.flush();
+            channel.force(true);
+        }
+        Files.move(temporary, path, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    /**
+     * Restores a snapshot written by {@link #write(Path)}. The statistics of the students in the snapshot are
+     * replaced, and its item analytics are added to the current ones, so a snapshot should be restored on startup,
+     * before any quizzes are taken.
+     *
+     * @param path the path of the snapshot file
+     * @throws IOException if the snapshot cannot be read or is not a valid snapshot
+     */
+    public static void restore(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            FileWindow file = new FileWindow(channel);
+            long size = file.size();
+            if (size < 16) {
+                throw new IOException("Not a statistics snapshot: " + path);
+            }
+            ByteBuffer header = file.slice(0, 8);
+            if (header.getInt() != MAGIC) {
+                throw new IOException("Not a statistics snapshot: " + path);
+            }
+            int version = header.getInt();
+            if (version != VERSION) {
+                throw new IOException("Unsupported statistics snapshot version " + version + ": " + path);
+            }
+            int[] idMap = readIdTable(section(file, file.slice(size - 8, 8).getLong()));
+
+            long position = 8;
+            ByteBuffer in = section(file, position);
+            position += 4 + in.remaining();
+            QuestionFactory.readQuestions(in);
+            int studentCount = file.slice(position, 4).getInt();
+            position += 4;
+            for (int i = 0; i < studentCount; i++) {
+                in = section(file, position);
+                position += 4 + in.remaining();
+                String firstName = SubmissionLog.readString(in);
+                String lastName = SubmissionLog.readString(in);
+                LocalDate dateOfBirth = LocalDate.ofEpochDay(in.getLong());
+                Student student = Student.getInstance(firstName, lastName, dateOfBirth);
+                if (in.get() != 0) {
+                    StudentStatistics.getInstance(student).readFrom(in, idMap);
+                }
+            }
+            ItemAnalytics.readFrom(section(file, position), idMap);
+        } catch (BufferUnderflowException | IndexOutOfBoundsException | IllegalArgumentException e) {
+            throw new IOException("Corrupt statistics snapshot: " + path, e);
+        }
+    }
+
+    /**
+     * Writes a section of the snapshot, preceded by its length.
+     *
+     * @param out     the output to write to
+     * @param section the encoded section
+     * @throws IOException if the output cannot be written
+     */
+    private static void writeSection(DataOutputStream out, RecordBuffer section) throws IOException {
+        out.writeInt(section.size());
+        section.writeTo(out);
+    }
+
+    /**
+     * Returns a section of the snapshot.
+     *
+     * @param file     the snapshot file
+     * @param position the position of the length of the section
+     * @return the section, without its length
+     * @throws IOException if the file cannot be mapped
+     */
+    private static ByteBuffer section(FileWindow file, long position) throws IOException {
+        return file.slice(position + 4, file.slice(position, 4).getInt());
+    }
+
+    /**
+     * Reads the table of question IDs at the end of a snapshot and resolves each question to its ID in this run.
+     *
+     * @param in the buffer to read from, positioned at the start of the table
+     * @return the mapping from the IDs in the snapshot to the current IDs, with -1 for IDs whose questions had been
+     *         garbage collected, or {@code null} if they are the same
+     */
+    private static int[] readIdTable(ByteBuffer in) {
+        int[] idMap = new int[in.getInt()];
+        boolean identity = true;
+        for (int id = 0; id < idMap.length; id++) {
+            byte type = in.get();
+            idMap[id] = type == RETIRED_ID ? -1
+                    : QuestionFactory.getQuestionId(QuestionType.values()[type], SubmissionLog.readString(in));
+            identity &= idMap[id] == id;
+        }
+        return identity ? null : idMap;
+    }
+}
@@ -0,0 +1,102 @@
+package uk.ac.ncl.advancedjava.quizapi.quiztaking;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import uk.ac.ncl.advancedjava.quizapi.questions.Question;
+import uk.ac.ncl.advancedjava.quizapi.questions.QuestionFactory;
+import uk.ac.ncl.advancedjava.quizapi.questions.QuestionType;
+
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StatisticsSnapshotTest {
+
+    Path path;
+    Question frq1, mcq1;
+    Student carol;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        path = Files.createTempFile("statistics", ".snapshot");
+        ItemAnalytics.reset();
+        frq1 = QuestionFactory.getInstance(
+                QuestionType.FREE_RESPONSE,
+                "What is the chemical symbol for gold?",
+                "Au",
+                Set.of("chemistry")
+        );
+        mcq1 = QuestionFactory.getInstance(
+                QuestionType.MULTIPLE_CHOICE,
+                "Which of these are noble gases?",
+                Map.of('A', "Neon", 'B', "Oxygen", 'C', "Argon"),
+                Set.of('A', 'C')
+        );
+        carol = Student.getInstance("Carol", "Snapshot", LocalDate.of(2001, 6, 30));
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        clearStatistics();
+        ItemAnalytics.reset();
+        Files.deleteIfExists(path);
+        path = null;
+        frq1 = null;
+        mcq1 = null;
+        carol = null;
+    }
+
+    @Test
+    void writeAndRestore() throws Exception {
+        StudentStatistics carolStats = StudentStatistics.getInstance(carol);
+        assertEquals(0.5f, carolStats.takeQuiz(new AnswerSheet(new Quiz(List.of(frq1, mcq1)), "Ag", "A,C")));
+        Student dave = Student.getInstance("Dave", "Snapshot", LocalDate.of(2002, 3, 4));
+        StatisticsSnapshot.write(path);
+
+        clearStatistics();
+        ItemAnalytics.reset();
+        StatisticsSnapshot.restore(path);
+
+        StudentStatistics restored = StudentStatistics.getInstance(carol);
+        assertNotSame(carolStats, restored);
+        assertEquals(Verdict.PASS, restored.getFinalVerdict());
+        assertEquals(List.of(0.5f), List.copyOf(restored.getAttemptedRegularQuizzes().values()));
+        assertEquals(List.of(frq1, mcq1),
+                restored.getAttemptedRegularQuizzes().keySet().iterator().next().getQuestionView());
+        assertEquals(Map.of(frq1, false, mcq1, true), restored.getQuestionHistory());
+        assertEquals(1, ItemAnalytics.getAttemptCount(frq1));
+        assertEquals(1, ItemAnalytics.getCorrectCount(mcq1));
+        assertEquals(Map.of('A', 1L, 'B', 0L, 'C', 1L), ItemAnalytics.getSelectionCounts(mcq1));
+        assertSame(dave, Student.getInstance("Dave", "Snapshot", LocalDate.of(2002, 3, 4)));
+        assertNull(StudentStatistics.find(dave));
+    }
+
+    @Test
+    void restore_NotASnapshot() throws Exception {
+        Files.write(path, new byte[]{1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11, 12, 13, 14, 15, 16});
+        assertThrows(IOException.class, () -> StatisticsSnapshot.restore(path));
+    }
+
+    @Test
+    void restore_OtherVersion() throws Exception {
+        // A snapshot of the first layout, whose records are shorter than the current ones
+        Files.write(path, new byte[]{0x51, 0x5A, 0x53, 0x4E, 0, 0, 0, 1, 0, 0, 0, 0, 0, 0, 0, 0});
+        IOException e = assertThrows(IOException.class, () -> StatisticsSnapshot.restore(path));
+        assertTrue(e.getMessage().startsWith("Unsupported statistics snapshot version 1"));
+    }
+
+    private static void clearStatistics() throws Exception {
+        Field field = StudentStatistics.class.getDeclaredField("ALLSTUDENTSTATISTICS");
+        field.setAccessible(true);
+        Map<?, ?> map = (Map<?, ?>) field.get(null);
+        map.clear();
+    }
+}
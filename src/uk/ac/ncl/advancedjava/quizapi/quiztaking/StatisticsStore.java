@@ -0,0 +1,35 @@
+package uk.ac.ncl.advancedjava.quizapi.quiztaking;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * StatisticsStore - a backing store that {@link StudentStatistics} pages the question histories of inactive students
+ * out to, so that only the students active in the current sitting keep their histories on the heap.
+ * Records are opaque bytes keyed by student, and a record written for a student replaces the previous one.
+ * The records refer to questions by their IDs in the current run, so a store only has to keep them for the lifetime
+ * of the process; statistics are kept across restarts by a {@link SubmissionLog} and {@link StatisticsSnapshot}.
+ * Implementations must be thread-safe.
+ *
+ * @author Filip Kovarik - S24039999
+ */
+public interface StatisticsStore {
+
+    /**
+     * Stores the record of a student, replacing any previous record.
+     *
+     * @param student the student
+     * @param record  the record, from its position to its limit; the buffer must not be kept after the call
+     * @throws IOException if the record cannot be stored
+     */
+    void write(Student student, ByteBuffer record) throws IOException;
+
+    /**
+     * Reads the latest record of a student.
+     *
+     * @param student the student
+     * @return the record, or {@code null} if none has been stored for the student
+     * @throws IOException if the record cannot be read
+     */
+    ByteBuffer read(Student student) throws IOException;
+}
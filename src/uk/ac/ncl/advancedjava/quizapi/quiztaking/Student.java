@@ -1,14 +1,18 @@
 package uk.ac.ncl.advancedjava.quizapi.quiztaking;
 
+import java.io.IOException;
 import java.time.LocalDate;
-import java.util.HashMap;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Student - hold information about a student - first name, last name, and date of birth.
  * It follows a singleton-like approach by maintaining a pool of unique student instances.
  * Use Student.getInstance() to get an instance.
- * The objects are immutable once created.
+ * The objects are immutable once created, and the pool is a concurrent map, so students can be looked up from
+ * any thread.
  *
  * @author Filip Kovarik - S24039999
  */
@@ -18,7 +22,7 @@ public final class Student {
     private final String lastName;
     private final LocalDate dateOfBirth;
 
-    private static final Map<String, Student> STUDENTS = new HashMap<>();
+    private static final Map<String, Student> STUDENTS = new ConcurrentHashMap<>();
 
     /**
      * Private constructor to create a new Student instance.
@@ -49,6 +53,15 @@ public final class Student {
         return STUDENTS.computeIfAbsent(key, k -> new Student(firstName, lastName, dateOfBirth));
     }
 
+    /**
+     * Returns all students in the pool, for use when the pool is persisted.
+     *
+     * @return an unmodifiable view of the students in the pool
+     */
+    static Collection<Student> getAllStudents() {
+        return Collections.unmodifiableCollection(STUDENTS.values());
+    }
+
     /**
      * Returns the student's first name.
      *
@@ -132,4 +145,18 @@ public final class Student {
                 ", dateOfBirth=" + dateOfBirth.toString() +
                 '}';
     }
+
+    /**
+     * Appends the string representation returned by {@link #toString()} to the given output, without building it as
+     * a string first.
+     *
+     * @param out the output to append to
+     * @throws IOException if the output cannot be written
+     */
+    void appendTo(Appendable out) throws IOException {
+        out.append("Student{firstName='").append(firstName)
+                .append("', lastName='").append(lastName)
+                .append("', dateOfBirth=").append(dateOfBirth.toString())
+                .append('}');
+    }
 }
@@ -1,10 +1,26 @@
 package uk.ac.ncl.advancedjava.quizapi.quiztaking;
 
+import uk.ac.ncl.advancedjava.quizapi.metrics.MetricsRegistry;
+import uk.ac.ncl.advancedjava.quizapi.metrics.OperationMetrics;
+import uk.ac.ncl.advancedjava.quizapi.questions.OptionableQuestion;
 import uk.ac.ncl.advancedjava.quizapi.questions.Question;
+import uk.ac.ncl.advancedjava.quizapi.questions.QuestionFactory;
 
+import java.io.DataOutput;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * StudentStatistics - maintains the statistics for a student - attempted regular and revision quizzes,
@@ -12,6 +28,17 @@ import java.util.Map;
  * It handles scoring, tracking quiz attempts, and determining final verdict.
  * This class follows a singleton-like approach to ensure that each student has only one associated
  * StudentStatistics instance.
+ * If a {@link SubmissionLog} is open, every graded submission is written to it before the statistics are updated,
+ * so the statistics can be restored after a restart.
+ * The class is thread-safe. Submissions and reads of a student's statistics are serialized on that student's own
+ * instance, so repeated submissions of the same quiz cannot race past the attempt checks, while different students
+ * never contend with each other. The registry of instances is a concurrent map.
+ * The question history is the only part of the statistics that grows with the number of questions answered. If a
+ * {@link StatisticsStore} is set, only a bounded number of histories are kept on the heap: the histories of students
+ * who have not been active recently are paged out to the store and read back when they are next needed, while the
+ * instances themselves and their few attempted quizzes stay registered so that every student keeps a single instance.
+ * The duration and failures of taking quizzes, including waiting for the student's lock and for the submission log,
+ * are recorded in the {@link MetricsRegistry}, along with the number of students and resident histories.
  *
  * @author Filip Kovarik - S24039999
  */
@@ -20,10 +47,28 @@ public final class StudentStatistics {
     private final Student student;
     private final Map<Quiz, Float> attemptedRegularQuizzes;
     private final Map<Quiz, Float> attemptedRevisionQuizzes;
-    private final Map<Question, Boolean> questionHistory;
-    private Verdict finalVerdict;
+    private final Map<Quiz, Integer> regularQuestionCounts = new HashMap<>();
+    private final Map<Quiz, Integer> revisionQuestionCounts = new HashMap<>();
+    private QuestionHistory questionHistory;
+    private volatile Verdict finalVerdict;
+    private long submissionCount;
+    private StatisticsPager residentIn;
+    private boolean dirty;
+    private boolean queued;
+    private volatile boolean referenced;
 
-    private static final Map<Student, StudentStatistics> ALLSTUDENTSTATISTICS = new HashMap<>();
+    private static final Map<Student, StudentStatistics> ALLSTUDENTSTATISTICS = new ConcurrentHashMap<>();
+    private static volatile SubmissionLog submissionLog;
+    private static volatile StatisticsPager pager;
+
+    private static final OperationMetrics TAKE_QUIZ_METRICS = MetricsRegistry.operation("takeQuiz");
+    private static final OperationMetrics TAKE_REVISION_QUIZ_METRICS = MetricsRegistry.operation("takeRevisionQuiz");
+
+    static {
+        MetricsRegistry.gauge("quizapi_students", "Students with statistics", ALLSTUDENTSTATISTICS::size);
+        MetricsRegistry.gauge("quizapi_resident_question_histories", "Question histories held on the heap",
+                StudentStatistics::getResidentCount);
+    }
 
     /**
      * Private constructor for creating a StudentStatistics instance. This is called when a new statistics object
@@ -35,7 +80,6 @@ public final class StudentStatistics {
         this.student = student;
         this.attemptedRegularQuizzes = new HashMap<>();
         this.attemptedRevisionQuizzes = new HashMap<>();
-        this.questionHistory = new HashMap<>();
         this.finalVerdict = Verdict.TBD;
     }
 
@@ -49,6 +93,26 @@ public final class StudentStatistics {
         return ALLSTUDENTSTATISTICS.computeIfAbsent(student, StudentStatistics::new);
     }
 
+    /**
+     * Returns the StudentStatistics instance for the given student if it exists.
+     *
+     * @param student the student for whom to retrieve statistics
+     * @return the {@code StudentStatistics} instance for the given student, or {@code null} if there is none
+     */
+    static StudentStatistics find(Student student) {
+        return ALLSTUDENTSTATISTICS.get(student);
+    }
+
+    /**
+     * Returns a spliterator over the statistics of all students, which can be split into partitions that are
+     * traversed in parallel. It is weakly consistent, so students added during the traversal may or may not be seen.
+     *
+     * @return a spliterator over all {@code StudentStatistics} instances
+     */
+    static Spliterator<StudentStatistics> spliterator() {
+        return ALLSTUDENTSTATISTICS.values().spliterator();
+    }
+
     /**
      * Processes the student's answers for a regular quiz, calculates the score, and updates the statistics.
      * Throws an exception if the quiz has already been attempted or if a final verdict has been assigned.
@@ -58,15 +122,57 @@ public final class StudentStatistics {
      * @return the score for the regular quiz
      * @throws IllegalStateException    if the student has already received a final verdict
      * @throws IllegalArgumentException if the same quiz has already been attempted
+     * @see #takeQuiz(AnswerSheet)
      */
     public float takeQuiz(Quiz quiz, Map<Question, String> studentAnswers) {
+        return takeQuiz(AnswerSheet.fromMap(quiz, studentAnswers));
+    }
+
+    /**
+     * Processes the student's answer sheet for a regular quiz, calculates the score, and updates the statistics.
+     * Throws an exception if the quiz has already been attempted or if a final verdict has been assigned.
+     *
+     * @param answerSheet the student's answers to the quiz, by question position
+     * @return the score for the regular quiz
+     * @throws IllegalStateException    if the student has already received a final verdict
+     * @throws IllegalArgumentException if the same quiz has already been attempted
+     */
+    public float takeQuiz(AnswerSheet answerSheet) {
+        long start = System.nanoTime();
+        try {
+            float score = gradeRegularQuiz(answerSheet);
+            TAKE_QUIZ_METRICS.recordSuccess(start);
+            return score;
+        } catch (RuntimeException e) {
+            TAKE_QUIZ_METRICS.recordFailure();
+            throw e;
+        }
+    }
+
+    /**
+     * Grades a regular quiz and updates the statistics, once the attempt checks pass.
+     *
+     * @param answerSheet the student's answers to the quiz, by question position
+     * @return the score for the regular quiz
+     * @throws IllegalStateException    if the student has already received a final verdict
+     * @throws IllegalArgumentException if the same quiz has already been attempted
+     */
+    private synchronized float gradeRegularQuiz(AnswerSheet answerSheet) {
+        Quiz quiz = answerSheet.getQuiz();
         if (finalVerdict != Verdict.TBD) {
             throw new IllegalStateException("Final verdict has already been received");
         } else if (attemptedRegularQuizzes.containsKey(quiz)) {
             throw new IllegalArgumentException("You have already taken this quiz. Generate a new one");
         }
-        float score = calculateScore(quiz, studentAnswers);
-        addRegularAttempt(quiz, score);
+        int[] selections = new int[quiz.size()];
+        boolean[] results = gradeAnswers(answerSheet, selections);
+        float score = calculateScore(results);
+        // Paged in before logging, so a failed read leaves nothing in the log that the statistics do not count
+        QuestionHistory history = history();
+        logSubmission(false, quiz, results, selections, score);
+        submissionCount++;
+        recordAnswers(history, quiz, results, selections);
+        addRegularAttempt(quiz, quiz.size(), score);
 
         return score;
     }
@@ -79,15 +185,54 @@ public final class StudentStatistics {
      * @param studentAnswers    a map of the student's answers, keyed by the questions
      * @return the score for the revision quiz
      * @throws IllegalStateException if the student has already received a final verdict or exceeded revision attempts
+     * @see #takeRevisionQuiz(AnswerSheet)
      */
     public float takeRevisionQuiz(Quiz quiz, Map<Question, String> studentAnswers) {
+        return takeRevisionQuiz(AnswerSheet.fromMap(quiz, studentAnswers));
+    }
+
+    /**
+     * Processes the student's answer sheet for a revision quiz, calculates the score, and updates the statistics.
+     * Throws an exception if more than two revision quizzes have been taken or if a final verdict has been assigned.
+     *
+     * @param answerSheet the student's answers to the revision quiz, by question position
+     * @return the score for the revision quiz
+     * @throws IllegalStateException if the student has already received a final verdict or exceeded revision attempts
+     */
+    public float takeRevisionQuiz(AnswerSheet answerSheet) {
+        long start = System.nanoTime();
+        try {
+            float score = gradeRevisionQuiz(answerSheet);
+            TAKE_REVISION_QUIZ_METRICS.recordSuccess(start);
+            return score;
+        } catch (RuntimeException e) {
+            TAKE_REVISION_QUIZ_METRICS.recordFailure();
+            throw e;
+        }
+    }
+
+    /**
+     * Grades a revision quiz and updates the statistics, once the attempt checks pass.
+     *
+     * @param answerSheet the student's answers to the revision quiz, by question position
+     * @return the score for the revision quiz
+     * @throws IllegalStateException if the student has already received a final verdict or exceeded revision attempts
+     */
+    private synchronized float gradeRevisionQuiz(AnswerSheet answerSheet) {
+        Quiz quiz = answerSheet.getQuiz();
         if (finalVerdict != Verdict.TBD) {
             throw new IllegalStateException("Final verdict has already been received");
         } else if (attemptedRevisionQuizzes.size() == 2) {
             throw new IllegalStateException("You cannot take more than two revision quizzes");
         }
-        float score = calculateScore(quiz, studentAnswers);
-        addRevisionAttempt(quiz, score);
+        int[] selections = new int[quiz.size()];
+        boolean[] results = gradeAnswers(answerSheet, selections);
+        float score = calculateScore(results);
+        QuestionHistory history = history();
+        logSubmission(true, quiz, results, selections, score);
+        submissionCount++;
+        recordAnswers(history, quiz, results, selections);
+        addRevisionAttempt(quiz, quiz.size(), score);
 
         return score;
     }
@@ -107,34 +252,183 @@ public final class StudentStatistics {
     }
 
     /**
-     * Adds a regular quiz attempt to the student's statistics and updates the final verdict if necessary.
+     * Adds a regular quiz attempt to the student's statistics and the cohort's {@link ScoreDistribution}, and
+     * updates the final verdict if necessary.
      *
-     * @param quiz  the quiz taken by the student
-     * @param score the score the student has achieved for the quiz
+     * @param quiz          the quiz taken by the student
+     * @param questionCount the number of questions the quiz was taken with
+     * @param score         the score the student has achieved for the quiz
      */
-    private void addRegularAttempt(Quiz quiz, float score) {
-        attemptedRegularQuizzes.put(quiz, score);
+    private void addRegularAttempt(Quiz quiz, int questionCount, float score) {
+        recordScore(false, quiz, questionCount, attemptedRegularQuizzes.put(quiz, score), score);
         updateFinalVerdict(score);
     }
 
     /**
-     * Adds a revision quiz attempt to the student's statistics.
+     * Adds a revision quiz attempt to the student's statistics and the cohort's {@link ScoreDistribution}.
      *
-     * @param quiz  the revision quiz taken by the student
-     * @param score the score the student has achieved for the revision quiz
+     * @param quiz          the revision quiz taken by the student
+     * @param questionCount the number of questions the revision quiz was taken with
+     * @param score         the score the student has achieved for the revision quiz
      */
-    private void addRevisionAttempt(Quiz quiz, float score) {
-        attemptedRevisionQuizzes.put(quiz, score);
+    private void addRevisionAttempt(Quiz quiz, int questionCount, float score) {
+        recordScore(true, quiz, questionCount, attemptedRevisionQuizzes.put(quiz, score), score);
     }
 
     /**
-     * Adds the question and whether it has been answered correctly to the student's question history.
+     * Records a score in the cohort's {@link ScoreDistribution}, so the distribution holds exactly the scores kept in
+     * the attempt maps. A repeated quiz replaces its earlier score in the map, so it does in the distribution too.
+     * Scores are recorded under the number of questions the quiz was taken with, which is more than the size of a
+     * quiz restored without the questions that are no longer in use; that number is kept for such quizzes.
      *
-     * @param question  the question being answered
-     * @param isCorrect {@code true} if the answer was correct, {@code false} otherwise
+     * @param isRevision    whether the quiz is a revision quiz
+     * @param quiz          the attempted quiz
+     * @param questionCount the number of questions the quiz was taken with
+     * @param previousScore the score replaced in the attempt map, or {@code null} if there was none
+     * @param score         the new score
      */
-    private void addQuestionHistory(Question question, boolean isCorrect) {
-        questionHistory.put(question, isCorrect);
+    private void recordScore(boolean isRevision, Quiz quiz, int questionCount, Float previousScore, float score) {
+        Map<Quiz, Integer> questionCounts = isRevision ? revisionQuestionCounts : regularQuestionCounts;
+        if (previousScore != null) {
+            ScoreDistribution.record(isRevision, questionCount(questionCounts, quiz), previousScore, -1);
+        }
+        if (questionCount == quiz.size()) {
+            questionCounts.remove(quiz);
+        } else {
+            questionCounts.put(quiz, questionCount);
+        }
+        ScoreDistribution.record(isRevision, questionCount, score, 1);
+    }
+
+    /**
+     * Returns the number of questions an attempted quiz was taken with.
+     *
+     * @param questionCounts the question counts of the attempted quizzes that differ from their size
+     * @param quiz           the attempted quiz
+     * @return the number of questions
+     */
+    private static int questionCount(Map<Quiz, Integer> questionCounts, Quiz quiz) {
+        Integer count = questionCounts.get(quiz);
+        return count == null ? quiz.size() : count;
+    }
+
+    /**
+     * Returns the question history of the student, reading it back from the {@link StatisticsStore} if it has been
+     * paged out, and marks it as recently used. Must be called while holding the lock of this instance.
+     *
+     * @return the question history
+     * @throws UncheckedIOException if the history cannot be read from the store
+     */
+    private QuestionHistory history() {
+        if (questionHistory == null) {
+            StatisticsPager current = pager;
+            QuestionHistory history = new QuestionHistory();
+            if (current != null) {
+                ByteBuffer record = current.pageIn(student);
+                if (record != null) {
+                    history.readFrom(record, null);
+                }
+                residentIn = current;
+                current.resident(this);
+            }
+            questionHistory = history;
+        }
+        referenced = true;
+        return questionHistory;
+    }
+
+    /**
+     * Marks the question history as changed since it was last written to the {@link StatisticsStore}, and queues it
+     * to be written unless it is queued already. Must be called while holding the lock of this instance.
+     */
+    private void markDirty() {
+        dirty = true;
+        StatisticsPager current = pager;
+        if (current != null && !queued) {
+            queued = true;
+            current.schedule(this);
+        }
+    }
+
+    /**
+     * Writes the question history to the store of the pager if it has changed since it was last written.
+     *
+     * @param current the pager writing the history
+     * @return {@code true} if the store is up to date, {@code false} if the history could not be written
+     */
+    synchronized boolean flush(StatisticsPager current) {
+        queued = false;
+        if (!dirty || questionHistory == null) {
+            return true;
+        }
+        try {
+            current.write(student, questionHistory);
+        } catch (IOException e) {
+            return false;
+        }
+        dirty = false;
+        return true;
+    }
+
+    /**
+     * Writes the question history to the store of the pager if needed and releases it from the heap.
+     *
+     * @param current the pager evicting the history
+     * @return {@code true} if the history was paged out, {@code false} if it could not be written and stays resident
+     */
+    synchronized boolean pageOut(StatisticsPager current) {
+        if (!flush(current)) {
+            return false;
+        }
+        questionHistory = null;
+        residentIn = null;
+        return true;
+    }
+
+    /**
+     * Clears the flag that marks the question history as recently used.
+     *
+     * @return whether the history had been used since the flag was last cleared
+     */
+    boolean clearReferenced() {
+        boolean wasReferenced = referenced;
+        referenced = false;
+        return wasReferenced;
+    }
+
+    /**
+     * Reads the question history back from the store of the current pager if it has been paged out. The pager is
+     * being replaced and does not evict any more, so the history stays resident.
+     *
+     * @throws UncheckedIOException if the history cannot be read from the store
+     */
+    private synchronized void pageIn() {
+        history();
+    }
+
+    /**
+     * Detaches the resident question history from a pager that has been stopped.
+     */
+    private synchronized void detach() {
+        residentIn = null;
+        queued = false;
+    }
+
+    /**
+     * Registers a resident question history with a new pager. The history is marked as changed, since the store of
+     * the new pager does not hold it yet.
+     *
+     * @param next the new pager
+     */
+    private synchronized void register(StatisticsPager next) {
+        queued = false;
+        if (questionHistory != null) {
+            dirty = true;
+            if (residentIn != next) {
+                residentIn = next;
+                next.resident(this);
+            }
+        }
     }
 
     /**
@@ -144,61 +438,421 @@ public final class StudentStatistics {
      */
     public String generateStatistics() {
         StringBuilder statistics = new StringBuilder();
+        try {
+            appendStatistics(statistics);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e); // Cannot happen, a StringBuilder does not throw
+        }
+
+        return statistics.toString();
+    }
+
+    /**
+     * Appends the summary returned by {@link #generateStatistics()} to the given output, without building it as a
+     * string first.
+     *
+     * @param statistics the output to append to
+     * @throws IOException if the output cannot be written
+     */
+    public synchronized void appendStatistics(Appendable statistics) throws IOException {
         statistics.append("Student Statistics:\n");
-        statistics.append(student.toString()).append("\n");
+        student.appendTo(statistics);
+        statistics.append("\n");
 
-        statistics.append("Attempted Regular Quizzes: ").append(attemptedRegularQuizzes.size()).append("\n");
+        statistics.append("Attempted Regular Quizzes: ").append(Integer.toString(attemptedRegularQuizzes.size()))
+                .append("\n");
         printQuizScores(statistics, attemptedRegularQuizzes);
 
-        statistics.append("Attempted Revision Quizzes: ").append(attemptedRevisionQuizzes.size()).append("\n");
+        statistics.append("Attempted Revision Quizzes: ").append(Integer.toString(attemptedRevisionQuizzes.size()))
+                .append("\n");
         printQuizScores(statistics, attemptedRevisionQuizzes);
 
         statistics.append("Final Verdict: ").append(finalVerdict.toString()).append("\n");
+    }
 
-        return statistics.toString();
+    /**
+     * Appends the statistics to the given output as a CSV record with the columns described by
+     * {@link StatisticsReport#CSV_HEADER}, terminated by a line break. The scores of the attempted quizzes are
+     * separated by semicolons.
+     *
+     * @param record the output to append to
+     * @throws IOException if the output cannot be written
+     */
+    synchronized void appendCsvRecord(Appendable record) throws IOException {
+        appendCsvField(record, student.getFirstName());
+        record.append(',');
+        appendCsvField(record, student.getLastName());
+        record.append(',').append(student.getDateOfBirth().toString());
+        record.append(',').append(Integer.toString(attemptedRegularQuizzes.size()));
+        record.append(',').append(Integer.toString(attemptedRevisionQuizzes.size()));
+        record.append(',');
+        appendScores(record, attemptedRegularQuizzes);
+        record.append(',');
+        appendScores(record, attemptedRevisionQuizzes);
+        record.append(',').append(finalVerdict.toString()).append('\n');
     }
 
     /**
-     * Appends quiz scores to the statistics string for both regular and revision quizzes.
+     * Appends quiz scores to the statistics for both regular and revision quizzes.
      *
-     * @param statistics        the StringBuilder to append quiz scores
+     * @param statistics        the output to append quiz scores to
      * @param attemptedQuizzes  the map of quizzes and their scores
+     * @throws IOException if the output cannot be written
      */
-    private void printQuizScores(StringBuilder statistics, Map<Quiz, Float> attemptedQuizzes) {
+    private void printQuizScores(Appendable statistics, Map<Quiz, Float> attemptedQuizzes) throws IOException {
         if (!attemptedQuizzes.isEmpty()) {
             int quizCounter = 1;
             for (Map.Entry<Quiz, Float> entry : attemptedQuizzes.entrySet()) {
                 float score = entry.getValue();
-                statistics.append("Quiz ").append(quizCounter).append(": Score ").append(score).append("\n");
+                statistics.append("Quiz ").append(Integer.toString(quizCounter)).append(": Score ")
+                        .append(Float.toString(score)).append("\n");
                 quizCounter++;
             }
         }
     }
 
     /**
-     * Calculates the score for a quiz based on the student's answers.
-     * Only the relevant questions from the student's answers are used in the calculation.
-     * If the student answers contains question that are not in the quiz, those are discarded.
+     * Appends the scores of the attempted quizzes separated by semicolons.
      *
-     * @param quiz              the quiz taken by the student
-     * @param studentAnswers    a map of the student's answers, keyed by the questions
-     * @return the calculated score as a float
+     * @param record           the output to append to
+     * @param attemptedQuizzes the map of quizzes and their scores
+     * @throws IOException if the output cannot be written
      */
-    private float calculateScore(Quiz quiz, Map<Question, String> studentAnswers) {
-        int correctAnswers = 0;
-        List<Question> questions = quiz.getQuestions();
-        for (Question question : questions) {
-            String answer = studentAnswers.get(question);
-            boolean isCorrect = question.isCorrectAnswer(answer);
+    private static void appendScores(Appendable record, Map<Quiz, Float> attemptedQuizzes) throws IOException {
+        boolean first = true;
+        for (float score : attemptedQuizzes.values()) {
+            if (!first) {
+                record.append(';');
+            }
+            record.append(Float.toString(score));
+            first = false;
+        }
+    }
 
-            addQuestionHistory(question, isCorrect);
+    /**
+     * Appends a CSV field, quoting it if it contains a comma, a quote or a line break.
+     *
+     * @param record the output to append to
+     * @param field  the field value
+     * @throws IOException if the output cannot be written
+     */
+    private static void appendCsvField(Appendable record, String field) throws IOException {
+        boolean quote = false;
+        for (int i = 0; i < field.length() && !quote; i++) {
+            char c = field.charAt(i);
+            quote = c == ',' || c == '"' || c == '\n' || c == '\r';
+        }
+        if (!quote) {
+            record.append(field);
+            return;
+        }
+        record.append('"');
+        for (int i = 0; i < field.length(); i++) {
+            char c = field.charAt(i);
+            if (c == '"') {
+                record.append('"');
+            }
+            record.append(c);
+        }
+        record.append('"');
+    }
 
+    /**
+     * Grades the student's answer sheet. The quiz and the sheet are walked side by side, so the answer at each
+     * position is graded against the question at the same position. The options selected in answers to questions
+     * with options are collected along the way, for the cohort-wide {@link ItemAnalytics}.
+     *
+     * @param answerSheet the student's answers to the quiz
+     * @param selections  filled in with the bitmask of the options selected at each position, {@code 0} for
+     *                    questions without options
+     * @return whether the answer at each position is correct
+     * @throws IllegalArgumentException if the quiz has changed size since the sheet was created
+     */
+    private static boolean[] gradeAnswers(AnswerSheet answerSheet, int[] selections) {
+        Quiz quiz = answerSheet.getQuiz();
+        int numberOfQuestions = quiz.size();
+        if (answerSheet.size() != numberOfQuestions) {
+            throw new IllegalArgumentException("The answer sheet does not match the quiz");
+        }
+        boolean[] results = new boolean[numberOfQuestions];
+        for (int i = 0; i < numberOfQuestions; i++) {
+            Question question = quiz.getQuestion(i);
+            String answer = answerSheet.getAnswer(i);
+            results[i] = question.isCorrectAnswer(answer);
+            if (question instanceof OptionableQuestion optionable) {
+                selections[i] = optionable.getSelectedOptions(answer);
+            }
+        }
+
+        return results;
+    }
+
+    /**
+     * Calculates the score for a quiz as the proportion of correct answers.
+     *
+     * @param results whether the answer to each question is correct
+     * @return the calculated score as a float
+     */
+    private static float calculateScore(boolean[] results) {
+        int correctAnswers = 0;
+        for (boolean isCorrect : results) {
             if (isCorrect) {
                 correctAnswers++;
             }
         }
 
-        return (float) correctAnswers / questions.size();
+        return (float) correctAnswers / results.length;
+    }
+
+    /**
+     * Records each graded answer in the student's question history and in the cohort-wide {@link ItemAnalytics}.
+     *
+     * @param history    the student's question history, already paged in
+     * @param quiz       the quiz taken by the student
+     * @param results    whether the answer to each question of the quiz is correct
+     * @param selections the bitmask of the options selected in the answer to each question of the quiz
+     */
+    private void recordAnswers(QuestionHistory history, Quiz quiz, boolean[] results, int[] selections) {
+        for (int i = 0; i < results.length; i++) {
+            Question question = quiz.getQuestion(i);
+            history.put(question.getId(), results[i]);
+            ItemAnalytics.recordAnswer(question.getId(), results[i]);
+            ItemAnalytics.recordSelection(question.getId(), selections[i]);
+        }
+        markDirty();
+    }
+
+    /**
+     * Writes a graded submission to the open {@link SubmissionLog}, if there is one, and waits until it is durable.
+     *
+     * @param isRevision whether the quiz is a revision quiz
+     * @param quiz       the quiz taken by the student
+     * @param results    whether the answer to each question of the quiz is correct
+     * @param selections the bitmask of the options selected in the answer to each question of the quiz
+     * @param score      the score for the quiz
+     * @throws java.io.UncheckedIOException if the submission could not be written, in which case the statistics
+     *                                      are left unchanged
+     */
+    private void logSubmission(boolean isRevision, Quiz quiz, boolean[] results, int[] selections, float score) {
+        SubmissionLog log = submissionLog;
+        if (log != null) {
+            log.append(student, submissionCount + 1, isRevision, quiz, results, selections, score);
+        }
+    }
+
+    /**
+     * Restores a submission read back from a {@link SubmissionLog}, updating the statistics exactly as the original
+     * submission did, without writing it to the log again. Submissions are numbered per student, and a submission
+     * the statistics already include, for example because they were restored from a snapshot taken after it, is
+     * skipped, so replaying a log more than once has no further effect.
+     *
+     * @param sequence    the number of the submission among the student's submissions, starting at 1
+     * @param isRevision  whether the quiz is a revision quiz
+     * @param quiz        the quiz, made of the logged questions that are currently in use
+     * @param questionIds the IDs of all logged questions, including those no longer in use
+     * @param results     whether the answer to each logged question was correct
+     * @param selections  the bitmask of the options selected in the answer to each logged question
+     * @param score       the score for the quiz
+     */
+    synchronized void restoreSubmission(long sequence, boolean isRevision, Quiz quiz, int[] questionIds,
+                                        boolean[] results, int[] selections, float score) {
+        if (sequence <= submissionCount) {
+            return;
+        }
+        QuestionHistory history = history();
+        submissionCount = sequence;
+        for (int i = 0; i < questionIds.length; i++) {
+            history.put(questionIds[i], results[i]);
+            ItemAnalytics.recordAnswer(questionIds[i], results[i]);
+            ItemAnalytics.recordSelection(questionIds[i], selections[i]);
+        }
+        markDirty();
+        if (isRevision) {
+            addRevisionAttempt(quiz, questionIds.length, score);
+        } else {
+            addRegularAttempt(quiz, questionIds.length, score);
+        }
+    }
+
+    /**
+     * Writes the statistics in a compact binary form for a snapshot. The statistics are locked while they are
+     * written, so the snapshot is consistent for this student without stopping other students' submissions.
+     * A paged-out history is copied from its stored record, which is in the same form, so a snapshot does not page
+     * every history back in.
+     *
+     * @param out the output to write to
+     * @throws IOException if the output cannot be written
+     */
+    synchronized void writeTo(DataOutput out) throws IOException {
+        out.writeByte(finalVerdict.ordinal());
+        out.writeLong(submissionCount);
+        StatisticsPager current = pager;
+        ByteBuffer record = questionHistory == null && current != null ? current.read(student) : null;
+        if (record == null) {
+            history().writeTo(out);
+        } else if (record.hasArray()) {
+            out.write(record.array(), record.arrayOffset() + record.position(), record.remaining());
+        } else {
+            byte[] bytes = new byte[record.remaining()];
+            record.get(bytes);
+            out.write(bytes);
+        }
+        writeAttempts(out, attemptedRegularQuizzes, regularQuestionCounts);
+        writeAttempts(out, attemptedRevisionQuizzes, revisionQuestionCounts);
+    }
+
+    /**
+     * Replaces the statistics with ones written by {@link #writeTo(DataOutput)}.
+     *
+     * @param in    the buffer to read from
+     * @param idMap maps the written question IDs to the current ones, or {@code null} if they are the same
+     */
+    synchronized void readFrom(ByteBuffer in, int[] idMap) {
+        finalVerdict = Verdict.values()[in.get()];
+        submissionCount = in.getLong();
+        history().readFrom(in, idMap);
+        markDirty();
+        readAttempts(in, idMap, false);
+        readAttempts(in, idMap, true);
+    }
+
+    /**
+     * Writes attempted quizzes as their scores, the number of questions they were taken with and the IDs of their
+     * questions.
+     *
+     * @param out            the output to write to
+     * @param attempts       the attempted quizzes and their scores
+     * @param questionCounts the question counts of the attempted quizzes that differ from their size
+     * @throws IOException if the output cannot be written
+     */
+    private static void writeAttempts(DataOutput out, Map<Quiz, Float> attempts, Map<Quiz, Integer> questionCounts)
+            throws IOException {
+        out.writeInt(attempts.size());
+        for (Map.Entry<Quiz, Float> attempt : attempts.entrySet()) {
+            Quiz quiz = attempt.getKey();
+            out.writeFloat(attempt.getValue());
+            out.writeInt(questionCount(questionCounts, quiz));
+            out.writeInt(quiz.size());
+            for (int i = 0; i < quiz.size(); i++) {
+                out.writeInt(quiz.getQuestion(i).getId());
+            }
+        }
+    }
+
+    /**
+     * Reads attempted quizzes written by {@link #writeAttempts(DataOutput, Map, Map)}. The quizzes are rebuilt from
+     * the questions that are currently in use, and their scores keep the number of questions they were taken with.
+     * The replaced and the read scores are moved in and out of the cohort's {@link ScoreDistribution}.
+     *
+     * @param in         the buffer to read from
+     * @param idMap      maps the written question IDs to the current ones, or {@code null} if they are the same
+     * @param isRevision whether to replace the revision quizzes rather than the regular ones
+     */
+    private void readAttempts(ByteBuffer in, int[] idMap, boolean isRevision) {
+        Map<Quiz, Float> attempts = isRevision ? attemptedRevisionQuizzes : attemptedRegularQuizzes;
+        Map<Quiz, Integer> questionCounts = isRevision ? revisionQuestionCounts : regularQuestionCounts;
+        for (Map.Entry<Quiz, Float> attempt : attempts.entrySet()) {
+            ScoreDistribution.record(isRevision, questionCount(questionCounts, attempt.getKey()), attempt.getValue(),
+                    -1);
+        }
+        attempts.clear();
+        questionCounts.clear();
+        int count = in.getInt();
+        for (int i = 0; i < count; i++) {
+            float score = in.getFloat();
+            int questionCount = in.getInt();
+            int size = in.getInt();
+            List<Question> questions = new ArrayList<>(size);
+            for (int j = 0; j < size; j++) {
+                int id = in.getInt();
+                Question question = QuestionFactory.getQuestion(idMap == null ? id : idMap[id]);
+                if (question != null) {
+                    questions.add(question);
+                }
+            }
+            Quiz quiz = new Quiz(questions);
+            recordScore(isRevision, quiz, questionCount, attempts.put(quiz, score), score);
+        }
+    }
+
+    /**
+     * Sets the log that submissions are written to, or {@code null} to stop logging.
+     *
+     * @param log the submission log
+     */
+    static void setSubmissionLog(SubmissionLog log) {
+        submissionLog = log;
+    }
+
+    /**
+     * Returns the log that submissions are currently written to.
+     *
+     * @return the submission log, or {@code null} if submissions are not logged
+     */
+    static SubmissionLog getSubmissionLog() {
+        return submissionLog;
+    }
+
+    /**
+     * Sets the store that question histories are paged out to, keeping at most the given number of histories on the
+     * heap, or {@code null} to keep every history on the heap. Replacing or removing a store first reads back every
+     * history paged out to it; if one cannot be read, the store stays in place and the call can be retried.
+     *
+     * @param store                the store to page histories out to, or {@code null} to stop paging
+     * @param maximumResidentCount the maximum number of histories kept on the heap; ignored if the store is
+     *                             {@code null}
+     * @throws IllegalArgumentException if a store is given and the maximum is not positive
+     * @throws UncheckedIOException     if a history cannot be read back from the replaced store
+     */
+    public static synchronized void setStatisticsStore(StatisticsStore store, long maximumResidentCount) {
+        if (store != null && maximumResidentCount < 1) {
+            throw new IllegalArgumentException("The maximum number of resident statistics must be positive");
+        }
+        StatisticsPager previous = pager;
+        if (previous != null) {
+            // Every history is read back while the previous pager is still in place, so a failed read changes nothing
+            previous.suspendEviction();
+            try {
+                for (StudentStatistics statistics : ALLSTUDENTSTATISTICS.values()) {
+                    statistics.pageIn();
+                }
+            } catch (RuntimeException e) {
+                previous.resumeEviction();
+                throw e;
+            }
+            previous.stop();
+            for (StudentStatistics statistics : ALLSTUDENTSTATISTICS.values()) {
+                statistics.detach();
+            }
+        }
+        StatisticsPager next = store == null ? null : new StatisticsPager(store, maximumResidentCount);
+        pager = next;
+        if (next != null) {
+            for (StudentStatistics statistics : ALLSTUDENTSTATISTICS.values()) {
+                statistics.register(next);
+            }
+        }
+    }
+
+    /**
+     * Returns the store that question histories are paged out to.
+     *
+     * @return the store, or {@code null} if every history is kept on the heap
+     */
+    public static StatisticsStore getStatisticsStore() {
+        StatisticsPager current = pager;
+        return current == null ? null : current.getStore();
+    }
+
+    /**
+     * Returns the number of question histories currently on the heap. Histories above the maximum are paged out
+     * shortly after they are exceeded, so the count may briefly be higher than the maximum.
+     *
+     * @return the number of resident histories
+     */
+    public static int getResidentCount() {
+        StatisticsPager current = pager;
+        return current == null ? ALLSTUDENTSTATISTICS.size() : current.getResidentCount();
     }
 
     /**
@@ -213,28 +867,41 @@ public final class StudentStatistics {
     /**
      * Returns a map of regular quizzes attempted by the student and their corresponding scores.
      *
-     * @return a map of regular quizzes and their scores
+     * @return a read-only snapshot of the regular quizzes and their scores
      */
-    public Map<Quiz, Float> getAttemptedRegularQuizzes() {
-        return attemptedRegularQuizzes;
+    public synchronized Map<Quiz, Float> getAttemptedRegularQuizzes() {
+        return Collections.unmodifiableMap(new HashMap<>(attemptedRegularQuizzes));
     }
 
     /**
      * Returns a map of revision quizzes attempted by the student and their corresponding scores.
      *
-     * @return a map of revision quizzes and their scores
+     * @return a read-only snapshot of the revision quizzes and their scores
      */
-    public Map<Quiz, Float> getAttemptedRevisionQuizzes() {
-        return attemptedRevisionQuizzes;
+    public synchronized Map<Quiz, Float> getAttemptedRevisionQuizzes() {
+        return Collections.unmodifiableMap(new HashMap<>(attemptedRevisionQuizzes));
     }
 
     /**
-     * Returns a map of questions attempted by the student and whether they were answered correctly.
+     * Returns a read-only map of questions attempted by the student and whether they were answered correctly.
+     * The map is a live view of the student's history, keyed internally by question ID: lookups see the latest
+     * answers, and each iteration walks a copy of the history taken when it starts.
      *
      * @return a map of questions and the correctness of the answers
      */
     public Map<Question, Boolean> getQuestionHistory() {
-        return questionHistory;
+        return new HistoryView();
+    }
+
+    /**
+     * Clears the bits of the questions the student has answered correctly from a compressed bitset of question IDs,
+     * for use by the {@link QuizGenerator}. The history is only read, under the student's lock, and never copied.
+     *
+     * @param questionBlocks the sorted indexes of the blocks of the bitset
+     * @param questionWords  the words of the blocks, updated in place
+     */
+    synchronized void removeCorrect(int[] questionBlocks, long[] questionWords) {
+        history().removeCorrect(questionBlocks, questionWords);
     }
 
     /**
@@ -245,4 +912,52 @@ public final class StudentStatistics {
     public Verdict getFinalVerdict() {
         return finalVerdict;
     }
+
+    /**
+     * HistoryView - the live, read-only map view of the student's question history returned by
+     * {@link #getQuestionHistory()}. Every operation takes the student's lock and goes through {@link #history()},
+     * so it sees the latest answers even after the history has been paged out and back in.
+     */
+    private final class HistoryView extends AbstractMap<Question, Boolean> {
+
+        @Override
+        public int size() {
+            synchronized (StudentStatistics.this) {
+                return history().asMap().size();
+            }
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            synchronized (StudentStatistics.this) {
+                return history().asMap().containsKey(key);
+            }
+        }
+
+        @Override
+        public Boolean get(Object key) {
+            synchronized (StudentStatistics.this) {
+                return history().asMap().get(key);
+            }
+        }
+
+        @Override
+        public Set<Entry<Question, Boolean>> entrySet() {
+            return new AbstractSet<>() {
+                @Override
+                public int size() {
+                    return HistoryView.this.size();
+                }
+
+                @Override
+                public Iterator<Entry<Question, Boolean>> iterator() {
+                    QuestionHistory copy;
+                    synchronized (StudentStatistics.this) {
+                        copy = new QuestionHistory(history());
+                    }
+                    return copy.asMap().entrySet().iterator();
+                }
+            };
+        }
+    }
 }
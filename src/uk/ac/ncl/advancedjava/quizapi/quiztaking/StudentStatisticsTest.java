@@ -9,9 +9,15 @@ import uk.ac.ncl.advancedjava.quizapi.questions.QuestionType;
 
 import java.lang.reflect.Field;
 import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -146,8 +152,11 @@ class StudentStatisticsTest {
                 mcq1, "d, a "
         );
 
+        Map<Question, Boolean> liveHistory = bobStats.getQuestionHistory();
+        assertTrue(liveHistory.isEmpty());
         float score = bobStats.takeQuiz(regularQuiz, answers);
         assertThrows(IllegalArgumentException.class, () -> bobStats.takeQuiz(regularQuiz, answers));
+        assertEquals(4, liveHistory.size()); // The view follows later answers
 
         assertEquals(0.25f, score); // 1 correct answer out of 4
         assertEquals(1, bobStats.getAttemptedRegularQuizzes().size()); // first quiz attempted
@@ -201,6 +210,26 @@ class StudentStatisticsTest {
         // *******
     }
 
+    @Test
+    void takeQuiz_AnswerSheet() {
+        // Same answers as the first quiz in takeQuiz, in the order of the questions (frq1, frq2, mcq1, mcq2)
+        AnswerSheet answerSheet = new AnswerSheet(regularQuiz, " pariS ", " 3", "d, a ", "d,b");
+
+        assertEquals(0.25f, bobStats.takeQuiz(answerSheet));
+        assertThrows(IllegalArgumentException.class, () -> bobStats.takeQuiz(answerSheet));
+        assertEquals(Map.of(frq1, true, frq2, false, mcq1, false, mcq2, false), bobStats.getQuestionHistory());
+
+        // Unanswered questions are graded as incorrect
+        AnswerSheet answerSheet2 = new AnswerSheet(regularQuiz2);
+        answerSheet2.setAnswer(0, "Three word answer");
+        assertEquals(1/3f, bobStats.takeQuiz(answerSheet2));
+        assertEquals(Verdict.FAIL, bobStats.getFinalVerdict());
+
+        AnswerSheet revisionSheet = new AnswerSheet(revisionQuiz, "paris", "2", "b,d", "a,b,d");
+        assertEquals(1f, jimStats.takeRevisionQuiz(revisionSheet));
+        assertEquals(1, jimStats.getAttemptedRevisionQuizzes().size());
+    }
+
     @Test
     void takeRevisionQuiz() {
         Map<Question, String> answers = Map.of(
@@ -236,6 +265,35 @@ class StudentStatisticsTest {
         assertThrows(IllegalStateException.class, () -> jimStats.takeRevisionQuiz(revisionQuiz, answers));
     }
 
+    @Test
+    void restoreSubmission_KeepsQuestionCount() throws Exception {
+        long fourBefore = ScoreDistribution.getRegular(4).getCount();
+        long threeBefore = ScoreDistribution.getRegular(3).getCount();
+        long twoBefore = ScoreDistribution.getRegular(2).getCount();
+        // mcq2 is not in use when the submission is replayed, so the quiz is rebuilt without it
+        int[] ids = {frq1.getId(), frq2.getId(), mcq1.getId(), mcq2.getId()};
+        bobStats.restoreSubmission(1, false, new Quiz(List.of(frq1, frq2, mcq1)), ids,
+                new boolean[]{true, true, false, false}, new int[4], 0.5f);
+        assertEquals(fourBefore + 1, ScoreDistribution.getRegular(4).getCount());
+        assertEquals(threeBefore, ScoreDistribution.getRegular(3).getCount());
+
+        // Read back from a snapshot in which frq1 has been retired as well, the score stays with four questions
+        RecordBuffer buffer = new RecordBuffer();
+        bobStats.writeTo(buffer.data);
+        int[] idMap = new int[QuestionFactory.getQuestionIdCount()];
+        for (int id = 0; id < idMap.length; id++) {
+            idMap[id] = id;
+        }
+        idMap[frq1.getId()] = -1;
+        bobStats.readFrom(buffer.asByteBuffer(), idMap);
+        assertEquals(fourBefore + 1, ScoreDistribution.getRegular(4).getCount());
+        assertEquals(threeBefore, ScoreDistribution.getRegular(3).getCount());
+        assertEquals(twoBefore, ScoreDistribution.getRegular(2).getCount());
+        assertEquals(List.of(0.5f), List.copyOf(bobStats.getAttemptedRegularQuizzes().values()));
+        assertEquals(List.of(frq2, mcq1),
+                bobStats.getAttemptedRegularQuizzes().keySet().iterator().next().getQuestionView());
+    }
+
     @Test
     void generateStatistics() {
         // *** FIRST REVISION QUIZ ***
@@ -352,4 +410,48 @@ class StudentStatisticsTest {
         jimStats.takeQuiz(revisionQuiz, answers);
         assertEquals(Verdict.FAIL, jimStats.getFinalVerdict());
     }
-}
\ No newline at end of file
+
+    @Test
+    void takeQuiz_Concurrent() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            // The same quiz submitted many times at once is only accepted once
+            List<Future<Float>> submissions = new ArrayList<>();
+            for (int i = 0; i < 16; i++) {
+                submissions.add(executor.submit(() -> bobStats.takeQuiz(regularQuiz, Map.of(frq1, "Paris"))));
+            }
+            int accepted = 0;
+            for (Future<Float> submission : submissions) {
+                try {
+                    submission.get();
+                    accepted++;
+                } catch (ExecutionException e) {
+                    assertInstanceOf(IllegalArgumentException.class, e.getCause());
+                }
+            }
+            assertEquals(1, accepted);
+            assertEquals(1, bobStats.getAttemptedRegularQuizzes().size());
+
+            // Only two of many concurrent revision quizzes are accepted
+            List<Future<Float>> revisions = new ArrayList<>();
+            for (int i = 0; i < 16; i++) {
+                revisions.add(executor.submit(() ->
+                        jimStats.takeRevisionQuiz(new Quiz(List.of(frq1, mcq1)), Map.of(frq1, "Paris"))));
+            }
+            accepted = 0;
+            for (Future<Float> revision : revisions) {
+                try {
+                    revision.get();
+                    accepted++;
+                } catch (ExecutionException e) {
+                    assertInstanceOf(IllegalStateException.class, e.getCause());
+                }
+            }
+            assertEquals(2, accepted);
+            assertEquals(2, jimStats.getAttemptedRevisionQuizzes().size());
+        } finally {
+            executor.shutdown();
+            assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+        }
+    }
+}
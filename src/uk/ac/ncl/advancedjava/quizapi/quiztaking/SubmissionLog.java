@@ -0,0 +1,728 @@
+package uk.ac.ncl.advancedjava.quizapi.quiztaking;
+
+import uk.ac.ncl.advancedjava.quizapi.questions.Question;
+import uk.ac.ncl.advancedjava.quizapi.questions.QuestionFactory;
+import uk.ac.ncl.advancedjava.quizapi.questions.QuestionType;
+
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.zip.CRC32;
+
+/**
+ * SubmissionLog - an append-only, binary write-ahead log of graded quiz submissions, so that the statistics of every
+ * student survive a restart. While a log is open, {@link StudentStatistics} writes each submission to it before
+ * updating the statistics, and the submitting thread waits until the record is on disk.
+ * Records are written by a single background thread. It takes every submission that is waiting, writes the whole
+ * batch with one call and forces it to disk with a single fsync (group commit), so the number of fsyncs grows with
+ * the number of batches rather than the number of submissions.
+ * <p>
+ * A log starts with a magic number and the version of its layout, so a log written with a different layout is
+ * rejected instead of being misread. Every record after it is framed as {@code [int length][int CRC-32][payload]}.
+ * Questions are referred to by ID; the first time a question is logged after the log is opened, a record with its
+ * type and text is written first, because IDs are only stable within one run. When a log is opened, the existing
+ * records are replayed to rebuild the statistics, and a torn record at the end left by a crash is cut off.
+ * <p>
+ * A log opened with a snapshot path can be checkpointed, so that it does not grow forever. A checkpoint moves the
+ * log aside to a {@code .previous} file and starts a new one, writes a {@link StatisticsSnapshot}, and then deletes
+ * the previous log, whose submissions are all in the snapshot. Submissions carry a per-student sequence number, so
+ * a submission found both in the snapshot and in a log is only counted once. On startup the snapshot is restored
+ * first, then whatever logs are left are replayed on top of it.
+ *
+ * @author Filip Kovarik - S24039999
+ */
+public final class SubmissionLog implements AutoCloseable {
+
+    private static final int MAGIC = 0x51534C47;
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 8;
+    private static final byte QUESTION_RECORD = 1;
+    private static final byte SUBMISSION_RECORD = 2;
+    private static final int FRAME_HEADER_SIZE = 8;
+    private static final int MAX_BATCH_SIZE = 1024;
+    private static final Submission CLOSE = new Submission(null, 0, false, null, null, null, 0);
+
+    private final Path path;
+    private final Path snapshotPath;
+    private final Object checkpointLock = new Object();
+    private FileChannel channel;
+    private ScheduledExecutorService checkpointScheduler;
+    private final LinkedBlockingQueue<Submission> pending = new LinkedBlockingQueue<>();
+    private final Thread writer;
+    private final Set<Integer> loggedQuestions = new HashSet<>();
+    private final RecordBuffer batchBuffer = new RecordBuffer();
+    private final RecordBuffer recordBuffer = new RecordBuffer();
+    private final CRC32 crc = new CRC32();
+    private volatile boolean closed;
+
+    private final LongAdder submissionCount = new LongAdder();
+    private final LongAdder commitCount = new LongAdder();
+    private final LongAdder checkpointCount = new LongAdder();
+
+    /**
+     * Private constructor, logs are opened with {@link #open(Path, Path)}.
+     *
+     * @param path         the path of the log file
+     * @param snapshotPath the path of the snapshot file, or {@code null} if the log is never checkpointed
+     * @param channel      the channel of the log file, positioned at its end
+     */
+    private SubmissionLog(Path path, Path snapshotPath, FileChannel channel) {
+        this.path = path;
+        this.snapshotPath = snapshotPath;
+        this.channel = channel;
+        this.writer = new Thread(this::writeBatches, "submission-log-writer");
+        this.writer.setDaemon(true);
+    }
+
+    /**
+     * Opens the submission log at the given path, creating the file if it does not exist. The records already in
+     * the log are replayed into {@link StudentStatistics}, and from then on every submission is written to the log.
+     * Questions should be loaded before the log is opened, so that the restored quizzes can refer to them; history of
+     * questions that are not loaded is still restored.
+     *
+     * @param path the path of the log file
+     * @return the open log
+     * @throws IOException if the log cannot be read or opened for writing
+     * @throws IllegalStateException if another submission log is already open
+     */
+    public static SubmissionLog open(Path path) throws IOException {
+        return open(path, null);
+    }
+
+    /**
+     * Opens the submission log at the given path, creating the file if it does not exist, and allows it to be
+     * checkpointed into a snapshot at the other path. The snapshot is restored into {@link StudentStatistics} if it
+     * exists, then the previous log left by an unfinished checkpoint and the log itself are replayed on top of it.
+     * From then on every submission is written to the log.
+     *
+     * @param path         the path of the log file
+     * @param snapshotPath the path of the snapshot file, or {@code null} if the log is never checkpointed
+     * @return the open log
+     * @throws IOException if the snapshot or the logs cannot be read, or the log cannot be opened for writing
+     * @throws IllegalStateException if another submission log is already open
+     */
+    public static SubmissionLog open(Path path, Path snapshotPath) throws IOException {
+        synchronized (SubmissionLog.class) {
+            if (StudentStatistics.getSubmissionLog() != null) {
+                throw new IllegalStateException("A submission log is already open");
+            }
+            if (snapshotPath != null && Files.exists(snapshotPath)) {
+                StatisticsSnapshot.restore(snapshotPath);
+            }
+            Path previous = previousPath(path);
+            if (Files.exists(previous)) {
+                try (FileChannel previousChannel = FileChannel.open(previous, StandardOpenOption.READ)) {
+                    replay(previous, previousChannel);
+                }
+            }
+            FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                    StandardOpenOption.WRITE);
+            try {
+                long validLength = replay(path, channel);
+                channel.truncate(validLength);
+                if (validLength == 0) {
+                    writeHeader(channel);
+                } else {
+                    channel.position(validLength);
+                }
+            } catch (IOException | RuntimeException e) {
+                channel.close();
+                throw e;
+            }
+            SubmissionLog log = new SubmissionLog(path, snapshotPath, channel);
+            log.writer.start();
+            StudentStatistics.setSubmissionLog(log);
+            return log;
+        }
+    }
+
+    /**
+     * Writes a graded submission to the log and waits until it is durable.
+     *
+     * @param student    the student who took the quiz
+     * @param sequence   the number of the submission among the student's submissions, starting at 1
+     * @param isRevision whether the quiz is a revision quiz
+     * @param quiz       the quiz taken by the student
+     * @param results    whether the answer to each question of the quiz is correct
+     * @param selections the bitmask of the options selected in the answer to each question of the quiz
+     * @param score      the score for the quiz
+     * @throws UncheckedIOException if the submission could not be written
+     * @throws IllegalStateException if the log is closed
+     */
+    void append(Student student, long sequence, boolean isRevision, Quiz quiz, boolean[] results, int[] selections,
+                float score) {
+        await(new Submission(student, sequence, isRevision, quiz, results, selections, score));
+    }
+
+    /**
+     * Writes a snapshot of all statistics and removes the logged submissions it contains, so the log only holds
+     * the submissions made since. Submissions carry on while the snapshot is written; they go to a new log file.
+     * If the snapshot cannot be written, the logs are kept and replayed together on the next startup.
+     *
+     * @throws IOException if the snapshot cannot be written
+     * @throws IllegalStateException if the log was opened without a snapshot path, or is closed
+     */
+    public void checkpoint() throws IOException {
+        if (snapshotPath == null) {
+            throw new IllegalStateException("The submission log was opened without a snapshot path");
+        }
+        synchronized (checkpointLock) {
+            // Once the log has been moved aside, every submission in it is already in the statistics, because
+            // each student's statistics are locked from before a submission is logged until it is recorded
+            await(Submission.rotation());
+            StatisticsSnapshot.write(snapshotPath);
+            Files.deleteIfExists(previousPath(path));
+            checkpointCount.increment();
+        }
+    }
+
+    /**
+     * Checkpoints the log in the background at a fixed interval, until it is closed. A checkpoint that fails is
+     * retried at the next interval.
+     *
+     * @param interval the time between the end of one checkpoint and the start of the next
+     * @throws IllegalArgumentException if the interval is not positive
+     * @throws IllegalStateException if the log was opened without a snapshot path, is closed, or checkpoints are
+     *                               already scheduled
+     */
+    public synchronized void scheduleCheckpoints(Duration interval) {
+        if (interval.isNegative() || interval.isZero()) {
+            throw new IllegalArgumentException("The checkpoint interval must be positive");
+        }
+        if (snapshotPath == null) {
+            throw new IllegalStateException("The submission log was opened without a snapshot path");
+        }
+        if (closed) {
+            throw new IllegalStateException("The submission log is closed");
+        }
+        if (checkpointScheduler != null) {
+            throw new IllegalStateException("Checkpoints are already scheduled");
+        }
+        checkpointScheduler = Executors.newSingleThreadScheduledExecutor(task -> {
+            Thread thread = new Thread(task, "submission-log-checkpoint");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long millis = interval.toMillis();
+        checkpointScheduler.scheduleWithFixedDelay(() -> {
+            try {
+                checkpoint();
+            } catch (IOException | RuntimeException ignored) {
+                // The logs are kept, so nothing is lost; the next checkpoint tries again
+            }
+        }, millis, millis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Hands a submission or a rotation to the writer thread and waits until it is done.
+     *
+     * @param submission the submission or rotation
+     * @throws UncheckedIOException if the log could not be written
+     * @throws IllegalStateException if the log is closed
+     */
+    private void await(Submission submission) {
+        if (closed) {
+            throw new IllegalStateException("The submission log is closed");
+        }
+        pending.add(submission);
+        // If the log was closed in the meantime, the writer may already have stopped without seeing the submission
+        if (closed && pending.remove(submission)) {
+            throw new IllegalStateException("The submission log is closed");
+        }
+        try {
+            submission.written.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof IOException cause) {
+                throw new UncheckedIOException(cause);
+            }
+            throw (RuntimeException) e.getCause();
+        }
+    }
+
+    /**
+     * Returns the path of the log file.
+     *
+     * @return the path of the log
+     */
+    public Path getPath() {
+        return path;
+    }
+
+    /**
+     * Returns the path of the snapshot file the log is checkpointed into.
+     *
+     * @return the path of the snapshot, or {@code null} if the log is never checkpointed
+     */
+    public Path getSnapshotPath() {
+        return snapshotPath;
+    }
+
+    /**
+     * Returns the number of submissions written since the log was opened.
+     *
+     * @return the submission count
+     */
+    public long getSubmissionCount() {
+        return submissionCount.sum();
+    }
+
+    /**
+     * Returns the number of group commits since the log was opened, each of which wrote a batch of submissions and
+     * forced it to disk once.
+     *
+     * @return the commit count
+     */
+    public long getCommitCount() {
+        return commitCount.sum();
+    }
+
+    /**
+     * Returns the number of checkpoints completed since the log was opened.
+     *
+     * @return the checkpoint count
+     */
+    public long getCheckpointCount() {
+        return checkpointCount.sum();
+    }
+
+    /**
+     * Stops scheduled checkpoints, writes the submissions that are still waiting, closes the log file and stops
+     * logging submissions.
+     *
+     * @throws IOException if the log file cannot be closed
+     */
+    @Override
+    public void close() throws IOException {
+        synchronized (SubmissionLog.class) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            if (StudentStatistics.getSubmissionLog() == this) {
+                StudentStatistics.setSubmissionLog(null);
+            }
+        }
+        ScheduledExecutorService scheduler;
+        synchronized (this) {
+            scheduler = checkpointScheduler;
+        }
+        if (scheduler != null) {
+            // A checkpoint that is under way is allowed to finish
+            scheduler.shutdown();
+            try {
+                scheduler.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        pending.add(CLOSE);
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        channel.close();
+    }
+
+    /**
+     * The loop of the writer thread. Waits for a submission, then commits it together with all other waiting
+     * submissions, until the log is closed. Rotations are carried out in between, in the order they were requested.
+     */
+    private void writeBatches() {
+        List<Submission> batch = new ArrayList<>();
+        boolean running = true;
+        while (running) {
+            try {
+                batch.add(pending.take());
+            } catch (InterruptedException e) {
+                continue;
+            }
+            pending.drainTo(batch, MAX_BATCH_SIZE - 1);
+            if (batch.remove(CLOSE)) {
+                running = false;
+                // Submissions that raced with close are still accepted
+                pending.drainTo(batch);
+            }
+            int from = 0;
+            for (int i = 0; i < batch.size(); i++) {
+                if (batch.get(i).isRotation()) {
+                    commit(batch.subList(from, i));
+                    rotate(batch.get(i));
+                    from = i + 1;
+                }
+            }
+            commit(batch.subList(from, batch.size()));
+            batch.clear();
+        }
+    }
+
+    /**
+     * Writes a batch of submissions with a single write and a single fsync, then releases the submitting threads.
+     *
+     * @param batch the submissions to write
+     */
+    private void commit(List<Submission> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        long start = -1;
+        try {
+            start = channel.position();
+            batchBuffer.reset();
+            for (Submission submission : batch) {
+                encode(submission);
+            }
+            ByteBuffer buffer = batchBuffer.asByteBuffer();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            channel.force(false);
+        } catch (IOException | RuntimeException e) {
+            // A partly written batch is cut off, so the records after it can still be replayed; its questions
+            // are logged again with the next batch
+            if (start >= 0) {
+                try {
+                    channel.truncate(start);
+                    channel.position(start);
+                } catch (IOException ignored) {
+                    // The torn batch is cut off when the log is next opened
+                }
+            }
+            loggedQuestions.clear();
+            for (Submission submission : batch) {
+                submission.written.completeExceptionally(e);
+            }
+            return;
+        }
+        submissionCount.add(batch.size());
+        commitCount.increment();
+        for (Submission submission : batch) {
+            submission.written.complete(null);
+        }
+    }
+
+    /**
+     * Moves the log aside to the previous log file and continues in a new, empty log. If a previous log is still
+     * there because the last checkpoint failed, the log is appended to it instead, so it keeps every submission
+     * since the last snapshot.
+     *
+     * @param rotation the rotation request to complete
+     */
+    private void rotate(Submission rotation) {
+        Path previous = previousPath(path);
+        try {
+            if (Files.exists(previous)) {
+                try (FileChannel previousChannel = FileChannel.open(previous, StandardOpenOption.WRITE,
+                        StandardOpenOption.APPEND)) {
+                    long size = channel.size();
+                    // The previous log has a header of its own
+                    for (long position = HEADER_SIZE; position < size; ) {
+                        position += channel.transferTo(position, size - position, previousChannel);
+                    }
+                    previousChannel.force(false);
+                }
+                channel.truncate(HEADER_SIZE);
+                channel.position(HEADER_SIZE);
+                channel.force(false);
+            } else {
+                channel.close();
+                Files.move(path, previous, StandardCopyOption.ATOMIC_MOVE);
+                channel = FileChannel.open(path, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ,
+                        StandardOpenOption.WRITE);
+                writeHeader(channel);
+            }
+        } catch (IOException | RuntimeException e) {
+            if (!channel.isOpen()) {
+                try {
+                    channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                            StandardOpenOption.WRITE);
+                    if (channel.size() < HEADER_SIZE) {
+                        channel.truncate(0);
+                        writeHeader(channel);
+                    }
+                    channel.position(channel.size());
+                } catch (IOException ignored) {
+                    // Submissions fail until the log can be written again
+                }
+            }
+            rotation.written.completeExceptionally(e);
+            return;
+        }
+        // The new log must declare the questions it refers to
+        loggedQuestions.clear();
+        rotation.written.complete(null);
+    }
+
+    /**
+     * Writes the header at the start of an empty log, forces it to disk and positions the channel after it.
+     *
+     * @param channel the channel of the empty log file
+     * @throws IOException if the header cannot be written
+     */
+    private static void writeHeader(FileChannel channel) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).putInt(MAGIC).putInt(VERSION).flip();
+        channel.position(0);
+        while (header.hasRemaining()) {
+            channel.write(header);
+        }
+        channel.force(false);
+    }
+
+    /**
+     * Returns the path of the previous log, which holds the submissions of a log moved aside by a checkpoint until
+     * the snapshot is written.
+     *
+     * @param path the path of the log file
+     * @return the path of the previous log
+     */
+    private static Path previousPath(Path path) {
+        return path.resolveSibling(path.getFileName() + ".previous");
+    }
+
+    /**
+     * Appends the records of a submission to the batch buffer, preceded by the records of any questions that have
+     * not been logged since the log was opened.
+     *
+     * @param submission the submission to encode
+     * @throws IOException never, as the records are written to memory
+     */
+    private void encode(Submission submission) throws IOException {
+        Quiz quiz = submission.quiz;
+        for (int i = 0; i < quiz.size(); i++) {
+            Question question = quiz.getQuestion(i);
+            if (loggedQuestions.add(question.getId())) {
+                DataOutputStream out = startRecord(QUESTION_RECORD);
+                out.writeInt(question.getId());
+                out.writeByte(question.getType().ordinal());
+                writeString(out, question.getQuestionText());
+                endRecord();
+            }
+        }
+
+        Student student = submission.student;
+        DataOutputStream out = startRecord(SUBMISSION_RECORD);
+        out.writeLong(submission.sequence);
+        out.writeBoolean(submission.isRevision);
+        writeString(out, student.getFirstName());
+        writeString(out, student.getLastName());
+        out.writeLong(student.getDateOfBirth().toEpochDay());
+        out.writeFloat(submission.score);
+        out.writeInt(quiz.size());
+        for (int i = 0; i < quiz.size(); i++) {
+            out.writeInt(quiz.getQuestion(i).getId());
+            out.writeBoolean(submission.results[i]);
+            out.writeInt(submission.selections[i]);
+        }
+        endRecord();
+    }
+
+    /**
+     * Starts encoding a record of the given kind.
+     *
+     * @param kind the kind of the record
+     * @return the stream to write the rest of the payload to
+     * @throws IOException never, as the record is written to memory
+     */
+    private DataOutputStream startRecord(byte kind) throws IOException {
+        recordBuffer.reset();
+        recordBuffer.data.writeByte(kind);
+        return recordBuffer.data;
+    }
+
+    /**
+     * Frames the record being encoded with its length and checksum and appends it to the batch buffer.
+     *
+     * @throws IOException never, as the record is written to memory
+     */
+    private void endRecord() throws IOException {
+        crc.reset();
+        crc.update(recordBuffer.array(), 0, recordBuffer.size());
+        batchBuffer.data.writeInt(recordBuffer.size());
+        batchBuffer.data.writeInt((int) crc.getValue());
+        recordBuffer.writeTo(batchBuffer);
+    }
+
+    /**
+     * Writes a string as its length in bytes followed by its UTF-8 encoding.
+     *
+     * @param out    the output to write to
+     * @param string the string to write
+     * @throws IOException if the output cannot be written
+     */
+    static void writeString(DataOutput out, String string) throws IOException {
+        byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    /**
+     * Reads a string written by {@link #writeString(DataOutput, String)}.
+     *
+     * @param buffer the buffer to read from
+     * @return the string
+     */
+    static String readString(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.getInt()];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Replays the records of the log file into {@link StudentStatistics}, stopping at the first record that is
+     * incomplete or fails its checksum. A log shorter than its header, left by a crash while it was created, holds
+     * no records.
+     *
+     * @param path    the path of the log file
+     * @param channel the channel of the log file
+     * @return the length of the valid part of the log, or 0 if it has no complete header
+     * @throws IOException if the log file cannot be read, is not a submission log or has a different layout
+     */
+    private static long replay(Path path, FileChannel channel) throws IOException {
+        // Mapped a window at a time, since a single mapping cannot cover a log of more than 2 GiB
+        FileWindow file = new FileWindow(channel);
+        long size = file.size();
+        ByteBuffer expected = ByteBuffer.allocate(HEADER_SIZE).putInt(MAGIC).putInt(VERSION).flip();
+        if (size < HEADER_SIZE) {
+            if (!file.slice(0, (int) size).equals(expected.limit((int) size))) {
+                throw new IOException("Not a submission log: " + path);
+            }
+            return 0;
+        }
+        ByteBuffer header = file.slice(0, HEADER_SIZE);
+        if (header.getInt() != MAGIC) {
+            throw new IOException("Not a submission log: " + path);
+        }
+        int version = header.getInt();
+        if (version != VERSION) {
+            throw new IOException("Unsupported submission log version " + version + ": " + path);
+        }
+        Map<Integer, Integer> questionIds = new HashMap<>();
+        CRC32 crc = new CRC32();
+
+        long position = HEADER_SIZE;
+        while (size - position >= FRAME_HEADER_SIZE) {
+            long start = position;
+            ByteBuffer frame = file.slice(start, FRAME_HEADER_SIZE);
+            int length = frame.getInt();
+            int checksum = frame.getInt();
+            if (length <= 0 || length > size - start - FRAME_HEADER_SIZE) {
+                return start;
+            }
+            ByteBuffer payload = file.slice(start + FRAME_HEADER_SIZE, length);
+            crc.reset();
+            crc.update(payload.duplicate());
+            if ((int) crc.getValue() != checksum) {
+                return start;
+            }
+            position = start + FRAME_HEADER_SIZE + length;
+
+            byte kind = payload.get();
+            if (kind == QUESTION_RECORD) {
+                int loggedId = payload.getInt();
+                QuestionType type = QuestionType.values()[payload.get()];
+                questionIds.put(loggedId, QuestionFactory.getQuestionId(type, readString(payload)));
+            } else if (kind == SUBMISSION_RECORD) {
+                replaySubmission(payload, questionIds);
+            } else {
+                return start;
+            }
+        }
+        return position;
+    }
+
+    /**
+     * Restores a single logged submission.
+     *
+     * @param payload     the payload of the submission record, positioned after its kind
+     * @param questionIds the mapping from logged question IDs to the IDs of this run
+     */
+    private static void replaySubmission(ByteBuffer payload, Map<Integer, Integer> questionIds) {
+        long sequence = payload.getLong();
+        boolean isRevision = payload.get() != 0;
+        String firstName = readString(payload);
+        String lastName = readString(payload);
+        LocalDate dateOfBirth = LocalDate.ofEpochDay(payload.getLong());
+        float score = payload.getFloat();
+        int count = payload.getInt();
+
+        int[] ids = new int[count];
+        boolean[] results = new boolean[count];
+        int[] selections = new int[count];
+        List<Question> questions = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            int loggedId = payload.getInt();
+            Integer id = questionIds.get(loggedId);
+            if (id == null) {
+                throw new IllegalStateException("The submission log refers to an unknown question " + loggedId);
+            }
+            ids[i] = id;
+            results[i] = payload.get() != 0;
+            selections[i] = payload.getInt();
+            Question question = QuestionFactory.getQuestion(id);
+            if (question != null) {
+                questions.add(question);
+            }
+        }
+
+        StudentStatistics statistics = StudentStatistics.getInstance(
+                Student.getInstance(firstName, lastName, dateOfBirth));
+        statistics.restoreSubmission(sequence, isRevision, new Quiz(questions), ids, results, selections, score);
+    }
+
+    /**
+     * Submission - a graded submission waiting to be written, and the future completed once it is durable.
+     * A submission without a quiz asks the writer thread to rotate the log instead.
+     */
+    private static final class Submission {
+        final Student student;
+        final long sequence;
+        final boolean isRevision;
+        final Quiz quiz;
+        final boolean[] results;
+        final int[] selections;
+        final float score;
+        final CompletableFuture<Void> written = new CompletableFuture<>();
+
+        Submission(Student student, long sequence, boolean isRevision, Quiz quiz, boolean[] results, int[] selections,
+                   float score) {
+            this.student = student;
+            this.sequence = sequence;
+            this.isRevision = isRevision;
+            this.quiz = quiz;
+            this.results = results;
+            this.selections = selections;
+            this.score = score;
+        }
+
+        static Submission rotation() {
+            return new Submission(null, 0, false, null, null, null, 0);
+        }
+
+        boolean isRotation() {
+            return quiz == null;
+        }
+    }
+}
@@ -0,0 +1,212 @@
+package uk.ac.ncl.advancedjava.quizapi.quiztaking;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import uk.ac.ncl.advancedjava.quizapi.questions.Question;
+import uk.ac.ncl.advancedjava.quizapi.questions.QuestionFactory;
+import uk.ac.ncl.advancedjava.quizapi.questions.QuestionType;
+
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SubmissionLogTest {
+
+    Path path;
+    SubmissionLog log;
+    Question frq1, mcq1;
+    Student alice;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        path = Files.createTempFile("submissions", ".log");
+        frq1 = QuestionFactory.getInstance(
+                QuestionType.FREE_RESPONSE,
+                "Which planet is known as the Red Planet?",
+                "Mars"
+        );
+        mcq1 = QuestionFactory.getInstance(
+                QuestionType.MULTIPLE_CHOICE,
+                "Select the prime numbers",
+                Map.of('A', "2", 'B', "4", 'C', "7"),
+                Set.of('A', 'C')
+        );
+        alice = Student.getInstance("Alice", "Log", LocalDate.of(2002, 1, 15));
+        log = SubmissionLog.open(path);
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        log.close();
+        clearStatistics();
+        Files.deleteIfExists(path);
+        path = null;
+        log = null;
+        frq1 = null;
+        mcq1 = null;
+        alice = null;
+    }
+
+    @Test
+    void replay() throws Exception {
+        StudentStatistics aliceStats = StudentStatistics.getInstance(alice);
+        Quiz regularQuiz = new Quiz(List.of(frq1, mcq1));
+        assertEquals(1f, aliceStats.takeRevisionQuiz(new AnswerSheet(new Quiz(List.of(frq1)), "mars")));
+        assertEquals(0.5f, aliceStats.takeQuiz(new AnswerSheet(regularQuiz, "Venus", "a, c")));
+        // A rejected submission is not logged
+        assertThrows(IllegalStateException.class, () ->
+                aliceStats.takeQuiz(new AnswerSheet(new Quiz(List.of(frq1, mcq1)), "Mars", "a")));
+        assertEquals(2, log.getSubmissionCount());
+        assertThrows(IllegalStateException.class, () -> SubmissionLog.open(path));
+        log.close();
+
+        clearStatistics();
+        log = SubmissionLog.open(path);
+        StudentStatistics restored = StudentStatistics.getInstance(alice);
+        assertNotSame(aliceStats, restored);
+        assertEquals(Verdict.PASS, restored.getFinalVerdict());
+        assertEquals(List.of(0.5f), List.copyOf(restored.getAttemptedRegularQuizzes().values()));
+        assertEquals(List.of(1f), List.copyOf(restored.getAttemptedRevisionQuizzes().values()));
+        assertEquals(Map.of(frq1, false, mcq1, true), restored.getQuestionHistory());
+        Quiz restoredQuiz = restored.getAttemptedRegularQuizzes().keySet().iterator().next();
+        assertEquals(List.of(frq1, mcq1), restoredQuiz.getQuestionView());
+
+        // Submissions after a restart are appended to the same log
+        Student bob = Student.getInstance("Bob", "Log", LocalDate.of(2003, 2, 1));
+        StudentStatistics.getInstance(bob).takeQuiz(new AnswerSheet(new Quiz(List.of(frq1, mcq1)), "Mars", "b"));
+        log.close();
+        clearStatistics();
+        log = SubmissionLog.open(path);
+        assertEquals(Map.of(frq1, true, mcq1, false), StudentStatistics.getInstance(bob).getQuestionHistory());
+        assertEquals(1, StudentStatistics.getInstance(alice).getAttemptedRegularQuizzes().size());
+    }
+
+    @Test
+    void replay_TornRecord() throws Exception {
+        StudentStatistics.getInstance(alice).takeQuiz(new AnswerSheet(new Quiz(List.of(frq1, mcq1)), "Mars", "a"));
+        log.close();
+        long validLength = Files.size(path);
+        // A crash in the middle of writing a record leaves a partial frame at the end
+        Files.write(path, new byte[]{0, 0, 0, 40, 1, 2, 3}, StandardOpenOption.APPEND);
+
+        clearStatistics();
+        log = SubmissionLog.open(path);
+        assertEquals(validLength, Files.size(path));
+        assertEquals(1, StudentStatistics.getInstance(alice).getAttemptedRegularQuizzes().size());
+    }
+
+    @Test
+    void open_ChecksHeader() throws Exception {
+        log.close();
+        // A log without the header, as written before the layout was versioned
+        Files.write(path, new byte[]{0, 0, 0, 5, 1, 2, 3, 4, 2, 0, 0, 0, 1});
+        IOException notALog = assertThrows(IOException.class, () -> SubmissionLog.open(path));
+        assertTrue(notALog.getMessage().startsWith("Not a submission log"));
+        assertNull(StudentStatistics.getSubmissionLog());
+
+        Files.write(path, new byte[]{0x51, 0x53, 0x4C, 0x47, 0, 0, 0, 99});
+        IOException newer = assertThrows(IOException.class, () -> SubmissionLog.open(path));
+        assertTrue(newer.getMessage().startsWith("Unsupported submission log version 99"));
+
+        // A header cut short by a crash while the log was created is written again
+        Files.write(path, new byte[]{0x51, 0x53, 0x4C});
+        log = SubmissionLog.open(path);
+        assertEquals(8, Files.size(path));
+        StudentStatistics.getInstance(alice).takeQuiz(new AnswerSheet(new Quiz(List.of(frq1, mcq1)), "Mars", "a"));
+        log.close();
+        clearStatistics();
+        log = SubmissionLog.open(path);
+        assertEquals(1, StudentStatistics.getInstance(alice).getAttemptedRegularQuizzes().size());
+    }
+
+    @Test
+    void groupCommit() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(16);
+        try {
+            List<Future<Float>> submissions = new ArrayList<>();
+            for (int i = 0; i < 200; i++) {
+                Student student = Student.getInstance("Student" + i, "Log", LocalDate.of(2000, 1, 1));
+                submissions.add(executor.submit(() -> StudentStatistics.getInstance(student)
+                        .takeQuiz(new AnswerSheet(new Quiz(List.of(frq1, mcq1)), "Mars", "a,c"))));
+            }
+            for (Future<Float> submission : submissions) {
+                assertEquals(1f, submission.get());
+            }
+        } finally {
+            executor.shutdown();
+            assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+        }
+        assertEquals(200, log.getSubmissionCount());
+        assertTrue(log.getCommitCount() <= 200);
+
+        log.close();
+        clearStatistics();
+        log = SubmissionLog.open(path);
+        for (int i = 0; i < 200; i++) {
+            Student student = Student.getInstance("Student" + i, "Log", LocalDate.of(2000, 1, 1));
+            assertEquals(Verdict.PASS, StudentStatistics.getInstance(student).getFinalVerdict());
+        }
+    }
+
+    @Test
+    void checkpoint() throws Exception {
+        Path snapshot = path.resolveSibling(path.getFileName() + ".snapshot");
+        Path previous = path.resolveSibling(path.getFileName() + ".previous");
+        assertThrows(IllegalStateException.class, () -> log.checkpoint());
+        log.close();
+        log = SubmissionLog.open(path, snapshot);
+        try {
+            StudentStatistics aliceStats = StudentStatistics.getInstance(alice);
+            assertEquals(1f, aliceStats.takeRevisionQuiz(new AnswerSheet(new Quiz(List.of(frq1)), "Mars")));
+            log.checkpoint();
+            assertEquals(1, log.getCheckpointCount());
+            assertTrue(Files.exists(snapshot));
+            assertFalse(Files.exists(previous));
+            assertEquals(8, Files.size(path)); // Only the header is left
+
+            // Submissions after the checkpoint go to the new log and are replayed on top of the snapshot
+            assertEquals(1f, aliceStats.takeQuiz(new AnswerSheet(new Quiz(List.of(frq1, mcq1)), "Mars", "a,c")));
+            log.close();
+            clearStatistics();
+            log = SubmissionLog.open(path, snapshot);
+            StudentStatistics restored = StudentStatistics.getInstance(alice);
+            assertEquals(Verdict.PASS, restored.getFinalVerdict());
+            assertEquals(1, restored.getAttemptedRegularQuizzes().size());
+            assertEquals(1, restored.getAttemptedRevisionQuizzes().size());
+            assertEquals(Map.of(frq1, true, mcq1, true), restored.getQuestionHistory());
+
+            // A snapshot that already contains the logged submissions does not count them twice
+            StatisticsSnapshot.write(snapshot);
+            log.close();
+            clearStatistics();
+            log = SubmissionLog.open(path, snapshot);
+            restored = StudentStatistics.getInstance(alice);
+            assertEquals(1, restored.getAttemptedRegularQuizzes().size());
+            assertEquals(1, restored.getAttemptedRevisionQuizzes().size());
+        } finally {
+            Files.deleteIfExists(snapshot);
+            Files.deleteIfExists(previous);
+        }
+    }
+
+    private static void clearStatistics() throws Exception {
+        Field field = StudentStatistics.class.getDeclaredField("ALLSTUDENTSTATISTICS");
+        field.setAccessible(true);
+        Map<?, ?> map = (Map<?, ?>) field.get(null);
+        map.clear();
+    }
+}
@@ -0,0 +1,145 @@
+package uk.ac.ncl.advancedjava.quizapi.quiztaking;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * TopicFilter - describes which topics the questions of a quiz should be drawn from, for use with
+ * {@link QuizGenerator#generateQuiz(int, TopicFilter)}. A question matches the filter if it is tagged with every
+ * topic given to {@link #allOf(String...)}, with at least one topic given to {@link #anyOf(String...)}, and with none
+ * of the topics given to {@link #excluding(String...)}.
+ * The objects are immutable; every method returns a new filter.
+ *
+ * @author Filip Kovarik - S24039999
+ */
+public final class TopicFilter {
+
+    private final Set<String> requiredTopics;
+    private final Set<String> anyTopics;
+    private final Set<String> excludedTopics;
+
+    /**
+     * Private constructor, filters are created through the static factory methods.
+     *
+     * @param requiredTopics the topics a question must all have
+     * @param anyTopics      the topics a question must have at least one of
+     * @param excludedTopics the topics a question must not have
+     */
+    private TopicFilter(Set<String> requiredTopics, Set<String> anyTopics, Set<String> excludedTopics) {
+        this.requiredTopics = Set.copyOf(requiredTopics);
+        this.anyTopics = Set.copyOf(anyTopics);
+        this.excludedTopics = Set.copyOf(excludedTopics);
+    }
+
+    /**
+     * Creates a filter matching questions tagged with at least one of the given topics.
+     *
+     * @param topics the topics to draw questions from
+     * @return a new {@code TopicFilter}
+     * @throws IllegalArgumentException if no topics are given, or if any topic is null or blank
+     */
+    public static TopicFilter anyOf(String... topics) {
+        return new TopicFilter(Set.of(), requireTopics(topics), Set.of());
+    }
+
+    /**
+     * Creates a filter matching questions tagged with all of the given topics.
+     *
+     * @param topics the topics every question must have
+     * @return a new {@code TopicFilter}
+     * @throws IllegalArgumentException if no topics are given, or if any topic is null or blank
+     */
+    public static TopicFilter allOf(String... topics) {
+        return new TopicFilter(requireTopics(topics), Set.of(), Set.of());
+    }
+
+    /**
+     * Returns a copy of this filter that additionally rejects questions tagged with any of the given topics.
+     *
+     * @param topics the topics to exclude
+     * @return a new {@code TopicFilter}
+     * @throws IllegalArgumentException if any topic is null or blank
+     */
+    public TopicFilter excluding(String... topics) {
+        Set<String> excluded = new HashSet<>(excludedTopics);
+        excluded.addAll(toSet(topics));
+        return new TopicFilter(requiredTopics, anyTopics, excluded);
+    }
+
+    /**
+     * Collects at least one topic into a set.
+     *
+     * @param topics the topics, which may repeat
+     * @return the distinct topics
+     * @throws IllegalArgumentException if no topics are given, or if any topic is null or blank
+     */
+    private static Set<String> requireTopics(String... topics) {
+        Set<String> set = toSet(topics);
+        if (set.isEmpty()) {
+            throw new IllegalArgumentException("At least one topic must be given");
+        }
+        return set;
+    }
+
+    /**
+     * Collects topics into a set, ignoring repeated topics.
+     *
+     * @param topics the topics, which may repeat
+     * @return the distinct topics
+     * @throws IllegalArgumentException if the array or any topic is null or blank
+     */
+    private static Set<String> toSet(String... topics) {
+        if (topics == null) {
+            throw new IllegalArgumentException("Topics cannot be null");
+        }
+        Set<String> set = new HashSet<>(Arrays.asList(topics));
+        for (String topic : set) {
+            if (topic == null || topic.isBlank()) {
+                throw new IllegalArgumentException("Topics cannot be null or blank");
+            }
+        }
+        return set;
+    }
+
+    /**
+     * Returns the topics a question must all have.
+     *
+     * @return the required topics
+     */
+    Set<String> getRequiredTopics() {
+        return requiredTopics;
+    }
+
+    /**
+     * Returns the topics a question must have at least one of.
+     *
+     * @return the alternative topics, empty if there is no such condition
+     */
+    Set<String> getAnyTopics() {
+        return anyTopics;
+    }
+
+    /**
+     * Returns the topics a question must not have.
+     *
+     * @return the excluded topics
+     */
+    Set<String> getExcludedTopics() {
+        return excludedTopics;
+    }
+
+    /**
+     * Returns a string representation of the filter.
+     *
+     * @return a string representation of the filter's topics
+     */
+    @Override
+    public String toString() {
+        return "TopicFilter{" +
+                "allOf=" + requiredTopics +
+                ", anyOf=" + anyTopics +
+                ", excluding=" + excludedTopics +
+                '}';
+    }
+}
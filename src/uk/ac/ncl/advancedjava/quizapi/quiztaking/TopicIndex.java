@@ -0,0 +1,209 @@
+package uk.ac.ncl.advancedjava.quizapi.quiztaking;
+
+import uk.ac.ncl.advancedjava.quizapi.questions.Question;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * TopicIndex - an inverted index from topic to the sorted list of IDs of the questions tagged with it (a posting
+ * list). Topic filters are resolved by intersecting, merging and subtracting posting lists, so the cost depends on
+ * the sizes of the lists involved rather than on the size of the whole question pool.
+ *
+ * @author Filip Kovarik - S24039999
+ */
+final class TopicIndex {
+
+    private static final int[] EMPTY = new int[0];
+
+    private final Map<String, int[]> postings;
+
+    /**
+     * Builds the index for the given questions.
+     *
+     * @param questions the questions to index
+     */
+    TopicIndex(Collection<Question> questions) {
+        Map<String, int[]> lists = new HashMap<>();
+        Map<String, Integer> sizes = new HashMap<>();
+        for (Question question : questions) {
+            for (String topic : question.getTopics()) {
+                int size = sizes.getOrDefault(topic, 0);
+                int[] list = lists.computeIfAbsent(topic, t -> new int[4]);
+                if (size == list.length) {
+                    list = Arrays.copyOf(list, size * 2);
+                    lists.put(topic, list);
+                }
+                list[size] = question.getId();
+                sizes.put(topic, size + 1);
+            }
+        }
+
+        postings = new HashMap<>();
+        for (Map.Entry<String, int[]> entry : lists.entrySet()) {
+            int[] list = Arrays.copyOf(entry.getValue(), sizes.get(entry.getKey()));
+            Arrays.sort(list);
+            postings.put(entry.getKey(), distinct(list));
+        }
+    }
+
+    /**
+     * Returns the sorted IDs of the indexed questions tagged with the given topic.
+     *
+     * @param topic the topic
+     * @return the posting list of the topic, empty if no question has it
+     */
+    int[] get(String topic) {
+        return postings.getOrDefault(topic, EMPTY);
+    }
+
+    /**
+     * Returns the sorted IDs of the indexed questions matching the given filter.
+     *
+     * @param filter the topic filter
+     * @return the sorted IDs of the matching questions
+     */
+    int[] resolve(TopicFilter filter) {
+        int[] result = null;
+        for (String topic : filter.getRequiredTopics()) {
+            result = result == null ? get(topic) : intersect(result, get(topic));
+        }
+        if (!filter.getAnyTopics().isEmpty()) {
+            int[] any = union(filter.getAnyTopics());
+            result = result == null ? any : intersect(result, any);
+        }
+        if (result == null) {
+            return EMPTY;
+        }
+        if (!filter.getExcludedTopics().isEmpty()) {
+            result = difference(result, union(filter.getExcludedTopics()));
+        }
+        return result;
+    }
+
+    /**
+     * Merges the posting lists of the given topics.
+     *
+     * @param topics the topics
+     * @return the sorted IDs of the questions tagged with at least one of the topics
+     */
+    private int[] union(Set<String> topics) {
+        int[] result = EMPTY;
+        for (String topic : topics) {
+            result = union(result, get(topic));
+        }
+        return result;
+    }
+
+    /**
+     * Intersects two sorted lists. Each element of the shorter list is looked up in the longer one with an
+     * exponential search that continues from the previous match, which is fast when the lists differ a lot in size.
+     *
+     * @param a a sorted list of IDs
+     * @param b a sorted list of IDs
+     * @return the sorted IDs contained in both lists
+     */
+    static int[] intersect(int[] a, int[] b) {
+        if (a.length > b.length) {
+            int[] swap = a;
+            a = b;
+            b = swap;
+        }
+        int[] result = new int[a.length];
+        int count = 0;
+        int from = 0;
+        for (int value : a) {
+            int step = 1;
+            int to = from;
+            while (to < b.length && b[to] < value) {
+                from = to + 1;
+                to += step;
+                step <<= 1;
+            }
+            int position = Arrays.binarySearch(b, from, Math.min(to + 1, b.length), value);
+            if (position >= 0) {
+                result[count++] = value;
+                from = position + 1;
+            } else {
+                from = -position - 1;
+            }
+            if (from >= b.length) {
+                break;
+            }
+        }
+        return Arrays.copyOf(result, count);
+    }
+
+    /**
+     * Merges two sorted lists, dropping duplicates.
+     *
+     * @param a a sorted list of IDs
+     * @param b a sorted list of IDs
+     * @return the sorted IDs contained in either list
+     */
+    static int[] union(int[] a, int[] b) {
+        int[] result = new int[a.length + b.length];
+        int i = 0;
+        int j = 0;
+        int count = 0;
+        while (i < a.length && j < b.length) {
+            if (a[i] < b[j]) {
+                result[count++] = a[i++];
+            } else if (a[i] > b[j]) {
+                result[count++] = b[j++];
+            } else {
+                result[count++] = a[i++];
+                j++;
+            }
+        }
+        while (i < a.length) {
+            result[count++] = a[i++];
+        }
+        while (j < b.length) {
+            result[count++] = b[j++];
+        }
+        return Arrays.copyOf(result, count);
+    }
+
+    /**
+     * Removes repeated IDs from a sorted list, which can only appear if the pool holds unequal questions with the
+     * same type and text.
+     *
+     * @param sorted a sorted list of IDs
+     * @return the sorted list without repeated IDs
+     */
+    private static int[] distinct(int[] sorted) {
+        int count = 0;
+        for (int i = 0; i < sorted.length; i++) {
+            if (i == 0 || sorted[i] != sorted[i - 1]) {
+                sorted[count++] = sorted[i];
+            }
+        }
+        return count == sorted.length ? sorted : Arrays.copyOf(sorted, count);
+    }
+
+    /**
+     * Subtracts one sorted list from another.
+     *
+     * @param a a sorted list of IDs
+     * @param b a sorted list of IDs to remove
+     * @return the sorted IDs contained in {@code a} but not in {@code b}
+     */
+    static int[] difference(int[] a, int[] b) {
+        int[] result = new int[a.length];
+        int j = 0;
+        int count = 0;
+        for (int value : a) {
+            while (j < b.length && b[j] < value) {
+                j++;
+            }
+            if (j == b.length || b[j] != value) {
+                result[count++] = value;
+            }
+        }
+        return Arrays.copyOf(result, count);
+    }
+}
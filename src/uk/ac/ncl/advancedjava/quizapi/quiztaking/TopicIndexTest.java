@@ -0,0 +1,91 @@
+package uk.ac.ncl.advancedjava.quizapi.quiztaking;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import uk.ac.ncl.advancedjava.quizapi.questions.Question;
+import uk.ac.ncl.advancedjava.quizapi.questions.QuestionFactory;
+import uk.ac.ncl.advancedjava.quizapi.questions.QuestionType;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TopicIndexTest {
+
+    Question frq1, frq2, frq3;
+    TopicIndex topicIndex;
+
+    @BeforeEach
+    void setUp() {
+        frq1 = QuestionFactory.getInstance(
+                QuestionType.FREE_RESPONSE,
+                "Which keyword declares a constant in Java?",
+                "final",
+                Set.of("java", "week1")
+        );
+        frq2 = QuestionFactory.getInstance(
+                QuestionType.FREE_RESPONSE,
+                "Which interface do Java lambdas implement?",
+                "functional interface",
+                Set.of("java", "week2")
+        );
+        frq3 = QuestionFactory.getInstance(
+                QuestionType.FREE_RESPONSE,
+                "Which SQL clause filters grouped rows?",
+                "having",
+                Set.of("sql", "week2")
+        );
+        topicIndex = new TopicIndex(List.of(frq1, frq2, frq3));
+    }
+
+    @AfterEach
+    void tearDown() {
+        frq1 = null;
+        frq2 = null;
+        frq3 = null;
+        topicIndex = null;
+    }
+
+    @Test
+    void resolve() {
+        assertEquals(ids(frq1, frq2), ids(topicIndex.resolve(TopicFilter.anyOf("java"))));
+        assertEquals(ids(frq1, frq2, frq3), ids(topicIndex.resolve(TopicFilter.anyOf("java", "sql"))));
+        assertEquals(ids(frq2), ids(topicIndex.resolve(TopicFilter.allOf("java", "week2"))));
+        assertEquals(ids(frq1), ids(topicIndex.resolve(TopicFilter.anyOf("java").excluding("week2"))));
+        assertEquals(ids(frq3), ids(topicIndex.resolve(TopicFilter.anyOf("week1", "week2").excluding("java"))));
+        assertEquals(0, topicIndex.resolve(TopicFilter.anyOf("unknown")).length);
+        assertThrowsExactly(IllegalArgumentException.class, TopicFilter::anyOf);
+
+        // Repeated topics are ignored, while missing ones are rejected with a clear message
+        assertEquals(ids(frq2), ids(topicIndex.resolve(TopicFilter.allOf("java", "week2", "java")
+                .excluding("sql", "sql"))));
+        assertThrowsExactly(IllegalArgumentException.class, () -> TopicFilter.anyOf("java", null));
+        assertThrowsExactly(IllegalArgumentException.class, () -> TopicFilter.anyOf("java").excluding(" "));
+    }
+
+    @Test
+    void intersect() {
+        int[] large = new int[1000];
+        Arrays.setAll(large, i -> i * 2);
+        assertArrayEquals(new int[]{0, 500, 1998}, TopicIndex.intersect(new int[]{0, 1, 500, 999, 1998, 5000}, large));
+        assertArrayEquals(new int[0], TopicIndex.intersect(new int[0], large));
+    }
+
+    @Test
+    void unionAndDifference() {
+        assertArrayEquals(new int[]{1, 2, 3, 5}, TopicIndex.union(new int[]{1, 3, 5}, new int[]{2, 3}));
+        assertArrayEquals(new int[]{1, 5}, TopicIndex.difference(new int[]{1, 3, 5}, new int[]{2, 3}));
+    }
+
+    private static Set<Integer> ids(Question... questions) {
+        return Arrays.stream(questions).map(Question::getId).collect(Collectors.toSet());
+    }
+
+    private static Set<Integer> ids(int[] ids) {
+        return Arrays.stream(ids).boxed().collect(Collectors.toSet());
+    }
+}